@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ToStringDisplayer} on primitive and object arrays of increasing size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ArrayDisplayBenchmark {
+
+  @Param({"10", "1000", "100000", "10000000"})
+  public int size;
+
+  private final Displayer<Object> displayer = ToStringDisplayer.get();
+  private int[] ints;
+  private double[] doubles;
+  private Object[] objects;
+  private Object[][] nested;
+
+  @Setup
+  public void setup() {
+    this.ints = new int[size];
+    this.doubles = new double[size];
+    this.objects = new Object[size];
+    for (int i = 0; i < size; i += 1) {
+      ints[i] = i;
+      doubles[i] = i / 3.0;
+      objects[i] = i;
+    }
+
+    int rows = (int) Math.sqrt(size);
+    this.nested = new Object[rows][];
+    for (int i = 0; i < rows; i += 1) {
+      nested[i] = new Object[rows];
+      System.arraycopy(objects, i * rows, nested[i], 0, rows);
+    }
+  }
+
+  @Benchmark
+  public Map<String, String> intArray() {
+    return displayer.display(ints);
+  }
+
+  @Benchmark
+  public Map<String, String> doubleArray() {
+    return displayer.display(doubles);
+  }
+
+  @Benchmark
+  public Map<String, String> objectArray() {
+    return displayer.display(objects);
+  }
+
+  @Benchmark
+  public Map<String, String> nestedObjectArray() {
+    return displayer.display(nested);
+  }
+}
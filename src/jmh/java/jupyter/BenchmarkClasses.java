@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Class hierarchies and displayers shared by the benchmarks.
+ */
+public class BenchmarkClasses {
+  public interface D0 {}
+  public interface D1 extends D0 {}
+  public interface D2 extends D1 {}
+  public interface D3 extends D2 {}
+  public interface D4 extends D3 {}
+  public interface D5 extends D4 {}
+  public interface D6 extends D5 {}
+  public interface D7 extends D6 {}
+  public interface D8 extends D7 {}
+  public interface D9 extends D8 {}
+  public interface D10 extends D9 {}
+  public interface D11 extends D10 {}
+  public interface D12 extends D11 {}
+  public interface D13 extends D12 {}
+  public interface D14 extends D13 {}
+  public interface D15 extends D14 {}
+
+  public interface F0 {}
+  public interface F1 {}
+  public interface F2 {}
+  public interface F3 {}
+  public interface F4 {}
+  public interface F5 {}
+  public interface F6 {}
+  public interface F7 {}
+
+  public interface Filler {}
+
+  /**
+   * Interfaces by depth: {@code DEPTH[n]} has n super-interfaces.
+   */
+  public static final Class<?>[] DEPTH = new Class<?>[] {
+      D0.class, D1.class, D2.class, D3.class, D4.class, D5.class, D6.class, D7.class,
+      D8.class, D9.class, D10.class, D11.class, D12.class, D13.class, D14.class, D15.class
+  };
+
+  /**
+   * Unrelated interfaces used to widen each level of the search.
+   */
+  public static final Class<?>[] FAN_OUT = new Class<?>[] {
+      F0.class, F1.class, F2.class, F3.class, F4.class, F5.class, F6.class, F7.class
+  };
+
+  public static final Displayer<Object> DISPLAYER = new Displayer<Object>() {
+    @Override
+    public Map<String, String> display(Object obj) {
+      return Collections.singletonMap(MIMETypes.TEXT, "displayed");
+    }
+  };
+
+  private static final InvocationHandler HANDLER = new InvocationHandler() {
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      return null;
+    }
+  };
+
+  /**
+   * Returns a class that implements {@code fanOut} unrelated interfaces, followed by an interface
+   * that is {@code depth} levels deep.
+   */
+  public static Class<?> hierarchy(int depth, int fanOut) {
+    Class<?>[] ifaces = Arrays.copyOf(FAN_OUT, fanOut + 1);
+    ifaces[fanOut] = DEPTH[depth - 1];
+    return newClass(ifaces);
+  }
+
+  /**
+   * Returns a new, distinct class that implements the given interfaces.
+   * <p>
+   * Each call defines a proxy class in a fresh class loader, so calls with the same interfaces
+   * still return different classes.
+   */
+  public static Class<?> newClass(Class<?>... ifaces) {
+    ClassLoader loader = new ClassLoader(BenchmarkClasses.class.getClassLoader()) {
+    };
+    return Proxy.newProxyInstance(loader, ifaces, HANDLER).getClass();
+  }
+
+  /**
+   * Registers {@link #DISPLAYER} for a class.
+   */
+  @SuppressWarnings("unchecked")
+  public static void register(Registration registration, Class<?> objClass) {
+    registration.add((Class<Object>) objClass, DISPLAYER);
+  }
+
+  /**
+   * Registers {@code count} displayers for classes that are not related to any benchmark target.
+   */
+  public static void addFillers(Registration registration, int count) {
+    for (int i = 0; i < count; i += 1) {
+      register(registration, newClass(Filler.class));
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures {@link Registration#find(Class)} from several threads, with and without a concurrent
+ * writer registering displayers.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ContendedLookupBenchmark {
+
+  private static final int NUM_TARGETS = 64;
+
+  @Param({"10", "1000"})
+  public int registrySize;
+
+  private Registration registration;
+  private Class<?>[] targets;
+  private Class<?>[] writerClasses;
+  private final AtomicInteger next = new AtomicInteger();
+
+  @Setup
+  public void setup() {
+    this.registration = new Registration();
+    BenchmarkClasses.addFillers(registration, registrySize);
+    BenchmarkClasses.register(registration, BenchmarkClasses.D0.class);
+
+    this.targets = new Class<?>[NUM_TARGETS];
+    for (int i = 0; i < NUM_TARGETS; i += 1) {
+      targets[i] = BenchmarkClasses.hierarchy(1 + i % 16, i % 8);
+    }
+
+    this.writerClasses = new Class<?>[NUM_TARGETS];
+    for (int i = 0; i < NUM_TARGETS; i += 1) {
+      writerClasses[i] = BenchmarkClasses.newClass(BenchmarkClasses.Filler.class);
+    }
+  }
+
+  private Class<?> nextTarget() {
+    return targets[next.getAndIncrement() & (NUM_TARGETS - 1)];
+  }
+
+  @Benchmark
+  @Group("readOnly")
+  @GroupThreads(4)
+  public Displayer<?> readOnlyFind() {
+    return registration.find(nextTarget());
+  }
+
+  @Benchmark
+  @Group("readWrite")
+  @GroupThreads(3)
+  public Displayer<?> readWriteFind() {
+    return registration.find(nextTarget());
+  }
+
+  @Benchmark
+  @Group("readWrite")
+  @GroupThreads(1)
+  public void readWriteRegister() {
+    BenchmarkClasses.register(registration, writerClasses[next.get() & (NUM_TARGETS - 1)]);
+  }
+}
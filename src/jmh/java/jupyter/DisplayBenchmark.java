@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures end-to-end {@link Displayers#display(Object)} for the main dispatch paths, with and
+ * without a {@link DisplayMetrics} listener.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DisplayBenchmark {
+
+  public static class Registered {
+  }
+
+  public static class SelfDisplaying implements AsDisplayData {
+    @Override
+    public Map<String, String> display() {
+      return Collections.singletonMap(MIMETypes.TEXT, "SelfDisplaying");
+    }
+  }
+
+  private static final int BATCH_SIZE = 1000;
+
+  @Param({"false", "true"})
+  public boolean metrics;
+
+  private final Object unregistered = "crunchy";
+  private final Object registered = new Registered();
+  private final Object selfDisplaying = new SelfDisplaying();
+  private final List<Object> batch = new ArrayList<>();
+
+  @Setup
+  public void setup() {
+    BenchmarkClasses.register(Displayers.registration(), Registered.class);
+    for (int i = 0; i < BATCH_SIZE; i += 1) {
+      batch.add(i % 2 == 0 ? new Registered() : new SelfDisplaying());
+    }
+    if (metrics) {
+      Displayers.registration().addListener(new DisplayMetrics());
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    Displayers.registration().clear();
+  }
+
+  @Benchmark
+  public Map<String, String> displayDefault() {
+    return Displayers.display(unregistered);
+  }
+
+  @Benchmark
+  public Map<String, String> displayRegistered() {
+    return Displayers.display(registered);
+  }
+
+  @Benchmark
+  public Map<String, String> displayAsDisplayData() {
+    return Displayers.display(selfDisplaying);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public int displayEach() {
+    int size = 0;
+    for (Object obj : batch) {
+      size += Displayers.display(obj).size();
+    }
+    return size;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public List<Map<String, String>> displayAll() {
+    return Displayers.displayAll(batch);
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link HtmlWriter} with escaping by chained {@link String#replace} calls, for text
+ * with and without characters to escape, and for writing a table of escaped cells.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class HtmlBenchmark {
+
+  @Param({ "plain", "markup" })
+  public String content;
+
+  private String text;
+  private String[][] cells;
+  private final StringBuilder sb = new StringBuilder();
+
+  @Setup
+  public void setup() {
+    String word = "markup".equals(content) ? "<b>a & \"b\"</b> " : "crunchy bacon ";
+    StringBuilder builder = new StringBuilder();
+    while (builder.length() < 200) {
+      builder.append(word);
+    }
+    this.text = builder.toString();
+    this.cells = new String[100][5];
+    for (int r = 0; r < cells.length; r += 1) {
+      for (int c = 0; c < cells[r].length; c += 1) {
+        cells[r][c] = text.substring(0, 20 + c);
+      }
+    }
+  }
+
+  private static String replaceEscape(String text) {
+    return text
+        .replace("&", "&amp;")
+        .replace("<", "&lt;")
+        .replace(">", "&gt;")
+        .replace("\"", "&quot;")
+        .replace("'", "&#39;");
+  }
+
+  @Benchmark
+  public String escapeReplace() {
+    return replaceEscape(text);
+  }
+
+  @Benchmark
+  public String escapeTable() {
+    return HtmlWriter.escape(text);
+  }
+
+  @Benchmark
+  public int escapeToBuffer() {
+    sb.setLength(0);
+    return HtmlWriter.escape(sb, text).length();
+  }
+
+  @Benchmark
+  public String tableReplace() {
+    StringBuilder out = new StringBuilder();
+    out.append("<table>");
+    for (String[] row : cells) {
+      out.append("<tr>");
+      for (String cell : row) {
+        out.append("<td>").append(replaceEscape(cell)).append("</td>");
+      }
+      out.append("</tr>");
+    }
+    return out.append("</table>").toString();
+  }
+
+  @Benchmark
+  public String tableWriter() {
+    StringBuilder out = new StringBuilder();
+    HtmlWriter html = new HtmlWriter(out);
+    html.startTable();
+    for (String[] row : cells) {
+      html.startRow();
+      for (String cell : row) {
+        html.cell(cell);
+      }
+      html.endRow();
+    }
+    html.endTable();
+    return out.toString();
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Registration#find(Class)} for hits and misses at varying hierarchy depth,
+ * interface fan-out and registry size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RegistrationBenchmark {
+
+  @Param({"1", "4", "16"})
+  public int depth;
+
+  @Param({"0", "2", "8"})
+  public int fanOut;
+
+  @Param({"10", "100", "1000", "10000"})
+  public int registrySize;
+
+  @Param({"true", "false"})
+  public boolean hit;
+
+  private Registration registration;
+  private Class<?> target;
+
+  @Setup
+  public void setup() {
+    this.registration = new Registration();
+    BenchmarkClasses.addFillers(registration, registrySize);
+    if (hit) {
+      // register the root of the deepest interface chain, so a hit visits the whole hierarchy
+      BenchmarkClasses.register(registration, BenchmarkClasses.D0.class);
+    }
+    this.target = BenchmarkClasses.hierarchy(depth, fanOut);
+  }
+
+  @Benchmark
+  public Displayer<?> find() {
+    return registration.find(target);
+  }
+
+  @Benchmark
+  public Displayer<?> findAfterChange() {
+    // replacing the default displayer discards cached lookups, so this measures a search over the
+    // cached search order of the target class
+    registration.setDefault(ToStringDisplayer.get());
+    return registration.find(target);
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the allocation of {@link ToStringDisplayer} for small objects and arrays, like the
+ * results of REPL loops. Run with the GC profiler and compare {@code gc.alloc.rate.norm}:
+ * <pre>
+ *   ./gradlew jmh -PjmhInclude=ToStringBenchmark -PjmhArgs="-prof gc"
+ * </pre>
+ * {@link #hashMapResult()} builds the result in a new HashMap, as the default displayer did
+ * before it returned single-entry maps, for comparison with {@link #displayObject()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ToStringBenchmark {
+
+  private final Displayer<Object> displayer = ToStringDisplayer.get();
+  private final Object obj = "crunchy";
+  private final int[] ints = new int[] { 1, 2, 3, 4, 5, 6, 7, 8 };
+  private final Object[] objects = new Object[] { "a", 1, 2.5, 'c', null, "b", 3L, true };
+
+  @Benchmark
+  public Map<String, String> displayObject() {
+    return displayer.display(obj);
+  }
+
+  @Benchmark
+  public Map<String, String> hashMapResult() {
+    Map<String, String> result = new HashMap<>();
+    result.put(MIMETypes.TEXT, obj.toString());
+    return result;
+  }
+
+  @Benchmark
+  public Map<String, String> displayIntArray() {
+    return displayer.display(ints);
+  }
+
+  @Benchmark
+  public Map<String, String> displayObjectArray() {
+    return displayer.display(objects);
+  }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+
+/**
+ * Formats arrays as text, applying {@link DisplayLimits} across nested arrays.
+ * <p>
+ * Output matches {@link java.util.Arrays#toString} for arrays within the
+ * limits. Primitive values, boxed numbers and objects that use the default
+ * displayer are appended directly to a single buffer, without creating a
+ * String or display Map per element. The buffer is reused from a
+ * {@link BuilderPool} and is presized from the array's length, so it is
+ * rarely grown. When writing to another {@link Appendable}, the buffer is
+ * flushed in chunks.
+ * <p>
+ * Nesting depth, cycles and the work budget are tracked with the current
+ * {@link RenderContext}, so an array that contains itself is shown as
+ * {@code [...]}, even when it is reached through other displayers.
+ */
+class ArrayFormatter {
+  private static final int CHUNK_SIZE = 8192;
+
+  private final StringBuilder sb;
+  private final Appendable out;
+  private final DisplayLimits limits;
+  private final RenderContext context = RenderContext.current();
+  private int remaining;
+  private long flushed = 0;
+
+  // one-entry cache for whether an element class uses the default displayer
+  private Class<?> lastClass = null;
+  private boolean lastIsDefault = false;
+
+  private ArrayFormatter(StringBuilder sb, Appendable out, DisplayLimits limits) {
+    this.sb = sb;
+    this.out = out;
+    this.limits = limits;
+    this.remaining = limits.getMaxChars();
+  }
+
+  /**
+   * Formats an array as a String.
+   *
+   * @param arr an array
+   * @param limits limits to apply
+   * @return the array as text
+   */
+  static String format(Object arr, DisplayLimits limits) {
+    ArrayFormatter formatter = new ArrayFormatter(
+        BuilderPool.acquire(estimateSize(arr, limits)), null, limits);
+    try {
+      formatter.appendArray(arr);
+      return formatter.sb.toString();
+    } finally {
+      BuilderPool.release(formatter.sb);
+    }
+  }
+
+  /**
+   * Formats an array to an Appendable.
+   *
+   * @param arr an array
+   * @param limits limits to apply
+   * @param out an Appendable that receives the array as text
+   * @throws IOException if the Appendable cannot be written
+   */
+  static void format(Object arr, DisplayLimits limits, Appendable out) throws IOException {
+    ArrayFormatter formatter = new ArrayFormatter(
+        BuilderPool.acquire(Math.min(estimateSize(arr, limits), CHUNK_SIZE)), out, limits);
+    try {
+      formatter.appendArray(arr);
+      out.append(formatter.sb);
+    } catch (ChunkException e) {
+      throw e.getCause();
+    } finally {
+      BuilderPool.release(formatter.sb);
+    }
+  }
+
+  /**
+   * Estimates the length of an array's text, so the buffer is rarely resized.
+   */
+  static int estimateSize(Object arr, DisplayLimits limits) {
+    Class<?> type = arr.getClass().getComponentType();
+    int length = Array.getLength(arr);
+    long shown = limits.shouldSummarize(length) ? 2L * limits.getEdgeItems() + 1 : length;
+    long size = 2 + shown * (elementSize(type) + 2);
+    return (int) Math.min(size, (long) limits.getMaxChars() + 16);
+  }
+
+  private static int elementSize(Class<?> type) {
+    if (type == Boolean.TYPE) {
+      return 5;
+    } else if (type == Byte.TYPE) {
+      return 3;
+    } else if (type == Short.TYPE) {
+      return 5;
+    } else if (type == Integer.TYPE) {
+      return 6;
+    } else if (type == Long.TYPE) {
+      return 10;
+    } else if (type == Float.TYPE) {
+      return 10;
+    } else if (type == Double.TYPE) {
+      return 18;
+    } else if (type == Character.TYPE) {
+      return 1;
+    } else {
+      return 16;
+    }
+  }
+
+  private void appendArray(Object arr) {
+    if (!context.enter(arr)) {
+      appendLimited(context.getMarker(arr));
+      return;
+    }
+
+    try {
+      appendElements(arr);
+    } finally {
+      context.exit(arr);
+    }
+  }
+
+  private void appendElements(Object arr) {
+    Class<?> type = arr.getClass().getComponentType();
+    int length = Array.getLength(arr);
+    boolean summarize = limits.shouldSummarize(length);
+    int edgeItems = limits.getEdgeItems();
+
+    sb.append('[');
+    for (int i = 0; i < length; i += 1) {
+      if (summarize && i == edgeItems) {
+        appendLimited(", ...");
+        i = length - edgeItems;
+      }
+      if (i > 0) {
+        sb.append(", ");
+      }
+      if (remaining <= 0 || !context.charge(1)) {
+        sb.append("...");
+        break;
+      }
+
+      if (type.isPrimitive()) {
+        long start = position();
+        appendPrimitive(arr, type, i);
+        charge(start);
+      } else {
+        appendObject(((Object[]) arr)[i]);
+      }
+      maybeFlush();
+    }
+    sb.append(']');
+  }
+
+  private void appendPrimitive(Object arr, Class<?> type, int i) {
+    if (type == Boolean.TYPE) {
+      sb.append(((boolean[]) arr)[i]);
+    } else if (type == Byte.TYPE) {
+      sb.append(((byte[]) arr)[i]);
+    } else if (type == Short.TYPE) {
+      sb.append(((short[]) arr)[i]);
+    } else if (type == Integer.TYPE) {
+      sb.append(((int[]) arr)[i]);
+    } else if (type == Long.TYPE) {
+      sb.append(((long[]) arr)[i]);
+    } else if (type == Float.TYPE) {
+      sb.append(((float[]) arr)[i]);
+    } else if (type == Double.TYPE) {
+      sb.append(((double[]) arr)[i]);
+    } else {
+      sb.append(((char[]) arr)[i]);
+    }
+  }
+
+  private void appendObject(Object elem) {
+    if (elem != null && elem.getClass().isArray() && usesDefaultDisplayer(elem.getClass())) {
+      // render nested arrays here so that limits apply to the whole value
+      appendArray(elem);
+      return;
+    } else if (context.isRendering(elem)) {
+      appendLimited(context.getMarker(elem));
+      return;
+    }
+
+    long start = position();
+    if (elem == null) {
+      // Displayers.display doesn't accept nulls
+      sb.append("null");
+    } else if (!usesDefaultDisplayer(elem.getClass())) {
+      // the element's result may be restricted to a hint that excludes text
+      String text = Displayers.display(elem).get(MIMETypes.TEXT);
+      sb.append(text != null ? text : String.valueOf(elem));
+    } else if (elem instanceof Integer) {
+      sb.append(((Integer) elem).intValue());
+    } else if (elem instanceof Long) {
+      sb.append(((Long) elem).longValue());
+    } else if (elem instanceof Double) {
+      sb.append(((Double) elem).doubleValue());
+    } else if (elem instanceof Float) {
+      sb.append(((Float) elem).floatValue());
+    } else if (elem instanceof Short) {
+      sb.append(((Short) elem).shortValue());
+    } else if (elem instanceof Byte) {
+      sb.append(((Byte) elem).byteValue());
+    } else if (elem instanceof Boolean) {
+      sb.append(((Boolean) elem).booleanValue());
+    } else if (elem instanceof Character) {
+      sb.append(((Character) elem).charValue());
+    } else {
+      sb.append(elem.toString());
+    }
+    charge(start);
+  }
+
+  private boolean usesDefaultDisplayer(Class<?> elemClass) {
+    if (elemClass != lastClass) {
+      this.lastClass = elemClass;
+      this.lastIsDefault = Displayers.registration().find(elemClass) instanceof ToStringDisplayer;
+    }
+    return lastIsDefault;
+  }
+
+  private void appendLimited(String text) {
+    long start = position();
+    sb.append(text);
+    charge(start);
+  }
+
+  private long position() {
+    return flushed + sb.length();
+  }
+
+  /**
+   * Charges text appended since start against the character limit, cutting it
+   * off with "..." if the limit is reached.
+   * <p>
+   * The buffer is only flushed between elements, so start is always within it.
+   */
+  private void charge(long start) {
+    long appended = position() - start;
+    if (appended > remaining) {
+      sb.setLength((int) (start - flushed) + remaining);
+      sb.append("...");
+      this.remaining = 0;
+    } else {
+      this.remaining -= appended;
+    }
+  }
+
+  private void maybeFlush() {
+    if (out != null && sb.length() >= CHUNK_SIZE) {
+      try {
+        out.append(sb);
+      } catch (IOException e) {
+        throw new ChunkException(e);
+      }
+      this.flushed += sb.length();
+      sb.setLength(0);
+    }
+  }
+
+  /**
+   * Carries an IOException from a chunk flush out of the formatting methods.
+   */
+  private static class ChunkException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private ChunkException(IOException cause) {
+      super(cause);
+    }
+
+    @Override
+    public synchronized IOException getCause() {
+      return (IOException) super.getCause();
+    }
+  }
+}
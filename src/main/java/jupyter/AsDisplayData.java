@@ -1,5 +1,6 @@
 package jupyter;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -23,6 +24,20 @@ public interface AsDisplayData {
    */
   Map<String, String> display();
 
+  /**
+   * Called to display this object by streaming each representation to a sink.
+   * <p>
+   * By default, this writes the representations returned by {@link #display()}.
+   *
+   * @see Displayer#displayTo(Object, SinkFactory)
+   *
+   * @param sinks opens a destination for each representation by MIME type
+   * @throws IOException if a destination cannot be written
+   */
+  default void displayTo(SinkFactory sinks) throws IOException {
+    Displayer.writeTo(display(), sinks);
+  }
+
   /**
    * Called to pass the MIME types supported by the kernel or front-end.
    * <p>
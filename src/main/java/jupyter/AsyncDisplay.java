@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs display calls on an executor, with optional timeouts.
+ */
+class AsyncDisplay {
+  private AsyncDisplay() {
+  }
+
+  private static final ScheduledThreadPoolExecutor TIMER = newTimer();
+
+  /**
+   * Returns the default executor for asynchronous display: a virtual thread
+   * per task when the JVM supports it, or a cached pool of daemon threads.
+   */
+  static Executor defaultExecutor() {
+    try {
+      return (ExecutorService) Executors.class
+          .getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      // virtual threads are not available before Java 21
+      return Executors.newCachedThreadPool(daemonThreads("jupyter-display"));
+    }
+  }
+
+  /**
+   * Runs a display call on an executor.
+   * <p>
+   * Lazy representations are computed on the executor before the future completes, so that the
+   * timeout and interrupts cover rendering and not just the call to the displayer.
+   * <p>
+   * Cancelling the returned future interrupts the display call. If timeoutNanos
+   * is positive and the call has not finished in time, the future is completed
+   * with a placeholder for obj and the call is interrupted.
+   *
+   * @param obj the object being displayed
+   * @param display computes the representations of obj
+   * @param executor an Executor to run the call
+   * @param timeoutNanos the timeout in nanoseconds, or 0 for no timeout
+   * @return a future for the representations of obj
+   */
+  static CompletableFuture<Map<String, String>> submit(
+      final Object obj, final Supplier<Map<String, String>> display,
+      Executor executor, final long timeoutNanos) {
+    final CompletableFuture<Map<String, String>> result = new CompletableFuture<>();
+    final FutureTask<Void> task = new FutureTask<>(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          result.complete(computeAll(display.get()));
+        } catch (Throwable t) {
+          result.completeExceptionally(t);
+        }
+      }
+    }, null);
+
+    try {
+      executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      result.completeExceptionally(e);
+      return result;
+    }
+
+    final ScheduledFuture<?> timeout;
+    if (timeoutNanos > 0) {
+      timeout = TIMER.schedule(new Runnable() {
+        @Override
+        public void run() {
+          if (result.complete(placeholder(obj, timeoutNanos))) {
+            task.cancel(true);
+          }
+        }
+      }, timeoutNanos, TimeUnit.NANOSECONDS);
+    } else {
+      timeout = null;
+    }
+
+    result.whenComplete(new BiConsumer<Map<String, String>, Throwable>() {
+      @Override
+      public void accept(Map<String, String> ignored, Throwable error) {
+        if (result.isCancelled()) {
+          task.cancel(true);
+        }
+        if (timeout != null) {
+          timeout.cancel(false);
+        }
+      }
+    });
+
+    return result;
+  }
+
+  /**
+   * Computes the representations of a {@link LazyDisplayData} into a Map, and the deferred
+   * representations of a {@link BinaryDisplayData} in place, so that binary and spilled
+   * representations are not read. Other results are returned unchanged.
+   */
+  private static Map<String, String> computeAll(Map<String, String> result) {
+    if (result instanceof LazyDisplayData) {
+      return new LinkedHashMap<>(result);
+    } else if (result instanceof BinaryDisplayData) {
+      return ((BinaryDisplayData) result).computeAll();
+    }
+    return result;
+  }
+
+  /**
+   * Returns a representation of obj that is cheap to produce and does not call
+   * any methods on obj.
+   */
+  static Map<String, String> placeholder(Object obj, long timeoutNanos) {
+    return Collections.singletonMap(MIMETypes.TEXT,
+        obj.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(obj)) +
+            " (display timed out after " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms)");
+  }
+
+  private static ScheduledThreadPoolExecutor newTimer() {
+    ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(
+        1, daemonThreads("jupyter-display-timeout"));
+    timer.setRemoveOnCancelPolicy(true);
+    return timer;
+  }
+
+  private static ThreadFactory daemonThreads(final String prefix) {
+    final AtomicInteger count = new AtomicInteger(0);
+    return new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    };
+  }
+}
@@ -0,0 +1,506 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * A Map of representations by MIME type that can hold binary data without
+ * converting it to a String.
+ * <p>
+ * Binary representations, such as {@link MIMETypes#PNG} images, can be added
+ * as byte arrays, {@link ByteBuffer}s (including direct buffers), or regions of
+ * a file. Kernels that support binary data can use {@link #getBuffer(String)}
+ * or {@link #writeTo(String, WritableByteChannel)} to send the bytes as they
+ * are. Callers that use the Map interface receive binary representations as
+ * Base64-encoded Strings, which are encoded on each request and not retained.
+ * <p>
+ * Text representations that exceed {@link DisplayLimits#getMaxResultChars()} may be spilled to
+ * a temporary file. Reading a spilled representation with {@link #get(Object)} reads the whole
+ * file back into one String, so kernels should use {@link #writeTo(String, WritableByteChannel)}
+ * or {@link #getBuffer(String)} instead. Spill files are deleted when the representation is
+ * replaced or removed, when {@link #release()} is called, when this object is garbage collected,
+ * or when the spill directory exceeds its size cap, so they should be sent promptly.
+ * <p>
+ * Like {@link java.util.HashMap}, this class is not thread-safe.
+ */
+public class BinaryDisplayData extends AbstractMap<String, String> {
+  // values are Strings, read-only ByteBuffers, FileRegions, or Deferred text
+  private final Map<String, Object> values = new LinkedHashMap<>();
+
+  /**
+   * Adds a binary representation.
+   *
+   * @param mimeType a MIME type
+   * @param data the representation's bytes; the array is not copied
+   * @return this for method chaining
+   */
+  public BinaryDisplayData putBinary(String mimeType, byte[] data) {
+    return putBinary(mimeType, ByteBuffer.wrap(data));
+  }
+
+  /**
+   * Adds a binary representation.
+   * <p>
+   * The representation is the buffer's remaining bytes. The buffer's contents
+   * are not copied and its position is not changed.
+   *
+   * @param mimeType a MIME type
+   * @param data a ByteBuffer, which may be direct
+   * @return this for method chaining
+   */
+  public BinaryDisplayData putBinary(String mimeType, ByteBuffer data) {
+    replaced(values.put(mimeType, data.slice().asReadOnlyBuffer()));
+    return this;
+  }
+
+  /**
+   * Adds a binary representation stored in a file.
+   * <p>
+   * The file is not read until the representation is requested, and is then
+   * memory-mapped.
+   *
+   * @param mimeType a MIME type
+   * @param file a file containing the representation
+   * @param position the offset of the representation in the file
+   * @param size the size of the representation in bytes
+   * @return this for method chaining
+   * @throws IllegalArgumentException if the region is not within the file
+   * @throws UncheckedIOException if the file's size cannot be read
+   */
+  public BinaryDisplayData putFile(String mimeType, Path file, long position, long size) {
+    checkRegion(file, position, size);
+    replaced(values.put(mimeType, new FileRegion(file, position, size, false, null, false)));
+    return this;
+  }
+
+  /**
+   * Adds a text representation stored as UTF-8 in a file.
+   * <p>
+   * The file is not read until the representation is requested.
+   *
+   * @param mimeType a MIME type
+   * @param file a file containing the representation
+   * @param position the offset of the representation in the file
+   * @param size the size of the representation in bytes
+   * @return this for method chaining
+   * @throws IllegalArgumentException if the region is not within the file
+   * @throws UncheckedIOException if the file's size cannot be read
+   */
+  public BinaryDisplayData putTextFile(String mimeType, Path file, long position, long size) {
+    checkRegion(file, position, size);
+    replaced(values.put(mimeType, new FileRegion(file, position, size, true, null, false)));
+    return this;
+  }
+
+  /**
+   * Adds a text representation that was spilled to a file owned by {@link SpillDirectory}.
+   * <p>
+   * The file is deleted when it is replaced or released, or when owner is garbage collected.
+   * Owner is held by this object and by its copies.
+   *
+   * @param owner the object passed to {@link SpillDirectory#write(Object, String)}
+   */
+  BinaryDisplayData putSpilledText(String mimeType, Path file, long size, Object owner) {
+    checkRegion(file, 0, size);
+    replaced(values.put(mimeType, new FileRegion(file, 0, size, true, owner, true)));
+    return this;
+  }
+
+  /**
+   * Adds a text representation that is computed when it is first requested, and then placed by a
+   * {@link SizeGuard}, which may spill it to a file.
+   */
+  BinaryDisplayData putDeferredText(String mimeType, Supplier<?> text, SizeGuard guard) {
+    replaced(values.put(mimeType, new Deferred(text, guard)));
+    return this;
+  }
+
+  /**
+   * Computes every deferred representation.
+   *
+   * @return this for method chaining
+   */
+  BinaryDisplayData computeAll() {
+    for (String mimeType : values.keySet()) {
+      value(mimeType);
+    }
+    return this;
+  }
+
+  /**
+   * Returns whether a representation is available without computing it.
+   *
+   * @param mimeType a MIME type
+   * @return true if the representation is not deferred
+   */
+  boolean isComputed(String mimeType) {
+    return values.containsKey(mimeType) && !(values.get(mimeType) instanceof Deferred);
+  }
+
+  /**
+   * Returns the value for a MIME type, computing it if it is deferred.
+   */
+  private Object value(Object mimeType) {
+    Object value = values.get(mimeType);
+    if (value instanceof Deferred) {
+      Deferred deferred = (Deferred) value;
+      value = deferred.compute((String) mimeType);
+      // copies share deferred text, and only the first to compute it owns its spill file
+      values.put((String) mimeType, deferred.claim() ? value : notOwned(value));
+    }
+    return value;
+  }
+
+  private static Object notOwned(Object value) {
+    if (value instanceof FileRegion && ((FileRegion) value).isSpilled) {
+      FileRegion region = (FileRegion) value;
+      return new FileRegion(
+          region.file, region.position, region.size, region.isText, region.owner, false);
+    }
+    return value;
+  }
+
+  /**
+   * Removes representations that were spilled to temporary files, and deletes the files.
+   * <p>
+   * Kernels can call this after sending a result to free disk space before the result is
+   * garbage collected.
+   */
+  public void release() {
+    Iterator<Object> iter = values.values().iterator();
+    while (iter.hasNext()) {
+      Object value = iter.next();
+      if (value instanceof FileRegion && ((FileRegion) value).isSpilled) {
+        iter.remove();
+        replaced(value);
+      }
+    }
+  }
+
+  private static void replaced(Object previous) {
+    if (previous instanceof FileRegion && ((FileRegion) previous).isSpilled) {
+      SpillDirectory.get().delete(((FileRegion) previous).file);
+    }
+  }
+
+  private static void checkRegion(Path file, long position, long size) {
+    if (position < 0) {
+      throw new IllegalArgumentException("Invalid position: " + position + " (must be >= 0)");
+    }
+    if (size < 0) {
+      throw new IllegalArgumentException("Invalid size: " + size + " (must be >= 0)");
+    }
+    long fileSize;
+    try {
+      fileSize = Files.size(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read " + file, e);
+    }
+    if (position > fileSize - size) {
+      throw new IllegalArgumentException("Invalid region: " + position + " + " + size +
+          " (must be within the " + fileSize + " bytes of " + file + ")");
+    }
+  }
+
+  /**
+   * Returns whether a representation is binary.
+   *
+   * @param mimeType a MIME type
+   * @return true if the representation is binary, false if it is text or missing
+   */
+  public boolean isBinary(String mimeType) {
+    Object value = values.get(mimeType);
+    return value instanceof ByteBuffer ||
+        (value instanceof FileRegion && !((FileRegion) value).isText);
+  }
+
+  /**
+   * Returns the bytes of a representation without copying them.
+   * <p>
+   * Text representations are returned encoded as UTF-8.
+   *
+   * @param mimeType a MIME type
+   * @return a read-only ByteBuffer, or null if there is no representation for the MIME type
+   */
+  public ByteBuffer getBuffer(String mimeType) {
+    Object value = value(mimeType);
+    if (value instanceof ByteBuffer) {
+      return ((ByteBuffer) value).duplicate();
+    } else if (value instanceof FileRegion) {
+      return ((FileRegion) value).map();
+    } else if (value != null) {
+      return StandardCharsets.UTF_8.encode((String) value).asReadOnlyBuffer();
+    }
+    return null;
+  }
+
+  /**
+   * Returns a copy of this BinaryDisplayData. Representations are not copied.
+   * <p>
+   * Spill files are still deleted by this object when it releases or replaces them, so the copy
+   * never deletes them. The copy holds their owners, so they are not deleted when only this object
+   * is garbage collected. Deferred representations are computed once and shared with the copy.
+   */
+  BinaryDisplayData copy() {
+    BinaryDisplayData copy = new BinaryDisplayData();
+    for (Map.Entry<String, Object> entry : values.entrySet()) {
+      copy.values.put(entry.getKey(), notOwned(entry.getValue()));
+    }
+    return copy;
+  }
+
+  /**
+   * Returns a text representation that is held in memory as a String.
+   *
+   * @param mimeType a MIME type
+   * @return the representation, or null if it is binary, in a file, not computed, or missing
+   */
+  String getString(String mimeType) {
+    Object value = values.get(mimeType);
+    return value instanceof String ? (String) value : null;
+  }
+
+  /**
+   * Returns the size of a representation in bytes, without reading it.
+   *
+   * @param mimeType a MIME type
+   * @return the size of the representation in bytes, or -1 if it is missing
+   */
+  public long getSize(String mimeType) {
+    Object value = value(mimeType);
+    if (value instanceof ByteBuffer) {
+      return ((ByteBuffer) value).remaining();
+    } else if (value instanceof FileRegion) {
+      return ((FileRegion) value).size;
+    } else if (value != null) {
+      return ((String) value).getBytes(StandardCharsets.UTF_8).length;
+    }
+    return -1;
+  }
+
+  /**
+   * Writes the bytes of a representation to a channel.
+   * <p>
+   * The channel is not closed.
+   *
+   * @param mimeType a MIME type
+   * @param out a channel
+   * @throws EOFException if a file region has been truncated since it was added
+   * @throws IOException if the channel cannot be written
+   */
+  public void writeTo(String mimeType, WritableByteChannel out) throws IOException {
+    Object value = value(mimeType);
+    if (value instanceof FileRegion) {
+      FileRegion region = (FileRegion) value;
+      try (FileChannel channel = FileChannel.open(region.file, StandardOpenOption.READ)) {
+        long written = 0;
+        while (written < region.size) {
+          long transferred =
+              channel.transferTo(region.position + written, region.size - written, out);
+          if (transferred == 0 && region.position + written >= channel.size()) {
+            throw new EOFException("Unexpected end of " + region.file + " after " + written +
+                " of " + region.size + " bytes");
+          }
+          written += transferred;
+        }
+      }
+    } else {
+      ByteBuffer buffer = getBuffer(mimeType);
+      if (buffer != null) {
+        while (buffer.hasRemaining()) {
+          out.write(buffer);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns a representation as a String.
+   * <p>
+   * Binary representations are Base64-encoded. The encoded String is not
+   * retained, so avoid calling this method for binary representations when the
+   * bytes can be used directly. Representations in files, including spilled
+   * text, are read into memory in full.
+   *
+   * @param key a MIME type
+   * @return the representation as a String, or null if it is missing
+   */
+  @Override
+  public String get(Object key) {
+    Object value = value(key);
+    if (value instanceof ByteBuffer) {
+      return encode((ByteBuffer) value);
+    } else if (value instanceof FileRegion) {
+      FileRegion region = (FileRegion) value;
+      return region.isText ?
+          StandardCharsets.UTF_8.decode(region.map()).toString() : encode(region.map());
+    }
+    return (String) value;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return values.containsKey(key);
+  }
+
+  @Override
+  public String put(String mimeType, String value) {
+    Object previous = values.put(mimeType, value);
+    replaced(previous);
+    return previous instanceof String ? (String) previous : null;
+  }
+
+  @Override
+  public String remove(Object key) {
+    Object previous = values.remove(key);
+    replaced(previous);
+    return previous instanceof String ? (String) previous : null;
+  }
+
+  @Override
+  public int size() {
+    return values.size();
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return Collections.unmodifiableSet(values.keySet());
+  }
+
+  @Override
+  public Set<Entry<String, String>> entrySet() {
+    return new AbstractSet<Entry<String, String>>() {
+      @Override
+      public Iterator<Entry<String, String>> iterator() {
+        final Iterator<Map.Entry<String, Object>> entries = values.entrySet().iterator();
+        return new Iterator<Entry<String, String>>() {
+          private Object last = null;
+
+          @Override
+          public boolean hasNext() {
+            return entries.hasNext();
+          }
+
+          @Override
+          public Entry<String, String> next() {
+            Map.Entry<String, Object> entry = entries.next();
+            this.last = entry.getValue();
+            return new SimpleImmutableEntry<>(entry.getKey(), get(entry.getKey()));
+          }
+
+          @Override
+          public void remove() {
+            entries.remove();
+            replaced(last);
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return values.size();
+      }
+    };
+  }
+
+  private static String encode(ByteBuffer buffer) {
+    ByteBuffer encoded = Base64.getEncoder().encode(buffer.duplicate());
+    return StandardCharsets.ISO_8859_1.decode(encoded).toString();
+  }
+
+  /**
+   * Text that is computed and placed by a {@link SizeGuard} when it is first requested.
+   */
+  private static class Deferred {
+    private final SizeGuard guard;
+    private Supplier<?> text;
+    private Object value = null;
+    private boolean claimed = false;
+
+    private Deferred(Supplier<?> text, SizeGuard guard) {
+      this.text = text;
+      this.guard = guard;
+    }
+
+    /**
+     * @return a String or a FileRegion
+     */
+    private synchronized Object compute(String mimeType) {
+      if (text != null) {
+        BinaryDisplayData placed = new BinaryDisplayData();
+        guard.place(placed, mimeType, (String) text.get());
+        this.value = placed.values.get(mimeType);
+        this.text = null;
+      }
+      return value;
+    }
+
+    private synchronized boolean claim() {
+      boolean first = !claimed;
+      this.claimed = true;
+      return first;
+    }
+  }
+
+  private static class FileRegion {
+    private final Path file;
+    private final long position;
+    private final long size;
+    private final boolean isText;
+    // keeps a spill file from being deleted by the SpillDirectory, or null
+    private final Object owner;
+    // whether this region deletes its spill file when it is released or replaced
+    private final boolean isSpilled;
+
+    private FileRegion(Path file, long position, long size, boolean isText, Object owner,
+                       boolean isSpilled) {
+      this.file = file;
+      this.position = position;
+      this.size = size;
+      this.isText = isText;
+      this.owner = owner;
+      this.isSpilled = isSpilled;
+    }
+
+    private ByteBuffer map() {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size).asReadOnlyBuffer();
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot read " + file, e);
+      }
+    }
+  }
+}
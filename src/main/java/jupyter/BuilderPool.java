@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+/**
+ * Reuses a StringBuilder per thread for formatting text, so that displaying many small objects
+ * does not allocate and grow a new buffer for each one.
+ * <p>
+ * A builder is taken from its thread while it is in use, so nested calls on the same thread get
+ * their own. Builders that grow beyond {@link #MAX_CAPACITY} characters are not kept, so one
+ * large display does not hold on to its buffer.
+ */
+class BuilderPool {
+  private BuilderPool() {
+  }
+
+  static final int MAX_CAPACITY = 16 * 1024;
+
+  private static final ThreadLocal<StringBuilder> BUILDERS = new ThreadLocal<>();
+
+  /**
+   * Returns an empty StringBuilder, reusing the current thread's builder if it is available.
+   *
+   * @param capacity the expected length of the text
+   * @return an empty StringBuilder with at least the given capacity
+   */
+  static StringBuilder acquire(int capacity) {
+    StringBuilder sb = BUILDERS.get();
+    if (sb == null) {
+      return new StringBuilder(capacity);
+    }
+    BUILDERS.set(null);
+    sb.ensureCapacity(capacity);
+    return sb;
+  }
+
+  /**
+   * Returns a builder from {@link #acquire(int)} to the current thread, unless it is too large.
+   *
+   * @param sb a StringBuilder that is no longer used
+   */
+  static void release(StringBuilder sb) {
+    if (sb.capacity() <= MAX_CAPACITY) {
+      sb.setLength(0);
+      BUILDERS.set(sb);
+    }
+  }
+}
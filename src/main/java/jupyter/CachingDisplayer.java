@@ -0,0 +1,363 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A {@link Displayer} that caches the representations produced by another
+ * Displayer, for objects that are displayed repeatedly and do not change.
+ * <p>
+ * Results are cached by object identity. Objects are weakly referenced, so
+ * caching never keeps an object from being garbage collected. A cached result
+ * is used only if the MIME type hint of the displaying {@link Registration} is
+ * unchanged and, when a version function is given, the object's version is
+ * equal to the version when the result was cached.
+ * <p>
+ * Results are cached as the wrapped displayer returns them. A
+ * {@link LazyDisplayData} is restricted to the hint and each representation is
+ * computed at most once, when a caller first requests it. A
+ * {@link BinaryDisplayData} keeps its buffers and file regions. Callers get
+ * their own copy of lazy and binary results, and other results are
+ * unmodifiable.
+ * <p>
+ * The cache holds at most {@code maxBytes} of representations, estimated as two
+ * bytes per character, and evicts the least recently used results first. Lazy
+ * representations are counted when they are computed, and binary
+ * representations, which may be in direct buffers or files, are not counted.
+ * <p>
+ * This class is thread-safe if the wrapped displayer is.
+ *
+ * @param <T> the class or interface of objects the instance can convert.
+ */
+public class CachingDisplayer<T> extends Displayer<T> {
+  private final Displayer<T> delegate;
+  private final Function<? super T, ?> version;
+  private final long maxBytes;
+
+  private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+  private final LinkedHashMap<IdentityKey, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+  private long cachedBytes = 0;
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+
+  /**
+   * Creates a caching displayer that assumes displayed objects never change.
+   *
+   * @param delegate a Displayer that produces representations
+   * @param maxBytes the maximum size of cached representations, in bytes
+   */
+  public CachingDisplayer(Displayer<T> delegate, long maxBytes) {
+    this(delegate, maxBytes, null);
+  }
+
+  /**
+   * Creates a caching displayer that validates cached results with a version.
+   *
+   * @param delegate a Displayer that produces representations
+   * @param maxBytes the maximum size of cached representations, in bytes
+   * @param version returns a value that changes whenever an object's
+   *                representation would change, or null if objects never change
+   */
+  public CachingDisplayer(Displayer<T> delegate, long maxBytes, Function<? super T, ?> version) {
+    if (delegate == null) {
+      throw new IllegalArgumentException("Invalid delegate: null");
+    }
+    if (maxBytes < 0) {
+      throw new IllegalArgumentException("Invalid maxBytes: " + maxBytes + " (must be >= 0)");
+    }
+    this.delegate = delegate;
+    this.maxBytes = maxBytes;
+    this.version = version;
+  }
+
+  @Override
+  public Map<String, String> display(T obj) {
+    MimeRanking ranking = Displayers.registration().getRanking();
+    Object currentVersion = version != null ? version.apply(obj) : null;
+
+    synchronized (cache) {
+      expungeCollected();
+      Entry entry = cache.get(new IdentityKey(obj, null));
+      if (entry != null && entry.matches(ranking, currentVersion)) {
+        this.hits += 1;
+        return entry.view();
+      }
+      this.misses += 1;
+    }
+
+    Map<String, String> result = delegate.display(obj);
+    final Entry entry;
+    if (result instanceof LazyDisplayData) {
+      LazyDisplayData lazy = (LazyDisplayData) result;
+      if (ranking != null) {
+        // only compute and cache the representations that will be used, matching wildcards
+        lazy = lazy.restrict(ranking.filter(lazy.keySet()));
+      }
+      entry = new Entry(ranking, currentVersion, sizeOf(lazy.keySet()));
+      entry.result = lazy.share(new BiConsumer<String, String>() {
+        @Override
+        public void accept(String mimeType, String computed) {
+          charge(entry, computed != null ? 2L * computed.length() : 0);
+        }
+      });
+    } else if (result instanceof BinaryDisplayData) {
+      BinaryDisplayData binary = ((BinaryDisplayData) result).copy();
+      entry = new Entry(ranking, currentVersion, sizeOf(binary));
+      entry.result = binary;
+    } else {
+      Map<String, String> copy = Collections.unmodifiableMap(new HashMap<>(result));
+      entry = new Entry(ranking, currentVersion, sizeOf(copy));
+      entry.result = copy;
+    }
+
+    synchronized (cache) {
+      if (entry.bytes <= maxBytes) {
+        Entry previous = cache.put(new IdentityKey(obj, collected), entry);
+        if (previous != null) {
+          previous.cached = false;
+          this.cachedBytes -= previous.bytes;
+        }
+        entry.cached = true;
+        this.cachedBytes += entry.bytes;
+        evict();
+      }
+    }
+
+    return entry.view();
+  }
+
+  @Override
+  public Set<String> getProducedMimeTypes() {
+    return delegate.getProducedMimeTypes();
+  }
+
+  @Override
+  public double getCost(String mimeType) {
+    return delegate.getCost(mimeType);
+  }
+
+  @Override
+  public void setMimeTypes(String... types) {
+    delegate.setMimeTypes(types);
+  }
+
+  /**
+   * Removes the cached result for an object.
+   *
+   * @param obj an object that has changed
+   */
+  public void invalidate(T obj) {
+    synchronized (cache) {
+      Entry removed = cache.remove(new IdentityKey(obj, null));
+      if (removed != null) {
+        removed.cached = false;
+        this.cachedBytes -= removed.bytes;
+      }
+    }
+  }
+
+  /**
+   * Removes all cached results.
+   */
+  public void invalidateAll() {
+    synchronized (cache) {
+      for (Entry entry : cache.values()) {
+        entry.cached = false;
+      }
+      cache.clear();
+      this.cachedBytes = 0;
+    }
+  }
+
+  /**
+   * @return the number of calls that returned a cached result
+   */
+  public long getHitCount() {
+    synchronized (cache) {
+      return hits;
+    }
+  }
+
+  /**
+   * @return the number of calls that called the wrapped displayer
+   */
+  public long getMissCount() {
+    synchronized (cache) {
+      return misses;
+    }
+  }
+
+  /**
+   * @return the number of results removed to stay within the size limit
+   */
+  public long getEvictionCount() {
+    synchronized (cache) {
+      return evictions;
+    }
+  }
+
+  /**
+   * @return the estimated size of cached representations, in bytes
+   */
+  public long getCachedBytes() {
+    synchronized (cache) {
+      expungeCollected();
+      return cachedBytes;
+    }
+  }
+
+  private void evict() {
+    Iterator<Map.Entry<IdentityKey, Entry>> iter = cache.entrySet().iterator();
+    while (cachedBytes > maxBytes && iter.hasNext()) {
+      Entry evicted = iter.next().getValue();
+      evicted.cached = false;
+      this.cachedBytes -= evicted.bytes;
+      iter.remove();
+      this.evictions += 1;
+    }
+  }
+
+  private void expungeCollected() {
+    Reference<?> ref;
+    while ((ref = collected.poll()) != null) {
+      Entry removed = cache.remove(ref);
+      if (removed != null) {
+        removed.cached = false;
+        this.cachedBytes -= removed.bytes;
+      }
+    }
+  }
+
+  /**
+   * Adds the size of a lazy representation to its entry when it is computed.
+   */
+  private void charge(Entry entry, long bytes) {
+    synchronized (cache) {
+      entry.bytes += bytes;
+      if (entry.cached) {
+        this.cachedBytes += bytes;
+        evict();
+      }
+    }
+  }
+
+  private static long sizeOf(Set<String> mimeTypes) {
+    long bytes = 0;
+    for (String mimeType : mimeTypes) {
+      bytes += 2L * mimeType.length();
+    }
+    return bytes;
+  }
+
+  private static long sizeOf(BinaryDisplayData result) {
+    long bytes = sizeOf(result.keySet());
+    for (String mimeType : result.keySet()) {
+      // binary representations may be in direct buffers or files, so count what is on the heap
+      String text = result.getString(mimeType);
+      if (text != null) {
+        bytes += 2L * text.length();
+      }
+    }
+    return bytes;
+  }
+
+  private static long sizeOf(Map<String, String> result) {
+    long bytes = 0;
+    for (Map.Entry<String, String> entry : result.entrySet()) {
+      bytes += 2L * entry.getKey().length();
+      if (entry.getValue() != null) {
+        bytes += 2L * entry.getValue().length();
+      }
+    }
+    return bytes;
+  }
+
+  private static class Entry {
+    private final MimeRanking ranking;
+    private final Object version;
+    // set once before the entry is published
+    private Map<String, String> result = null;
+    // guarded by the cache lock
+    private long bytes;
+    private boolean cached = false;
+
+    private Entry(MimeRanking ranking, Object version, long bytes) {
+      this.ranking = ranking;
+      this.version = version;
+      this.bytes = bytes;
+    }
+
+    private boolean matches(MimeRanking ranking, Object version) {
+      return this.ranking == ranking && Objects.equals(this.version, version);
+    }
+
+    /**
+     * Returns the cached result for one caller. Lazy and binary results are copied, so callers
+     * can modify them without changing the cache.
+     */
+    private Map<String, String> view() {
+      if (result instanceof LazyDisplayData) {
+        return ((LazyDisplayData) result).copy();
+      } else if (result instanceof BinaryDisplayData) {
+        return ((BinaryDisplayData) result).copy();
+      }
+      return result;
+    }
+  }
+
+  /**
+   * A weak reference that is equal to other keys for the same object.
+   */
+  private static class IdentityKey extends WeakReference<Object> {
+    private final int hash;
+
+    private IdentityKey(Object obj, ReferenceQueue<Object> queue) {
+      super(obj, queue);
+      this.hash = System.identityHashCode(obj);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof IdentityKey)) {
+        return false;
+      }
+      Object referent = get();
+      return referent != null && referent == ((IdentityKey) other).get();
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Caches the order in which {@link Registration#find(Class)} searches a class's ancestors.
+ * <p>
+ * The search order is a breadth-first traversal that visits a class, then its interfaces in
+ * left-to-right order, then its superclass. Level {@code k} of that traversal is the concatenation
+ * of level {@code k - 1} of each interface and the superclass, so each class's order is built by
+ * merging the cached levels of its parents instead of walking the whole hierarchy again. Classes
+ * that were already visited at an earlier position are dropped, which does not change the first
+ * position of any class and so does not change which displayer is found first.
+ * <p>
+ * {@link Object} is never searched unless it is the class being displayed.
+ */
+class ClassHierarchy {
+  private ClassHierarchy() {
+  }
+
+  private static final ClassValue<Linearization> LINEARIZATIONS =
+      new ClassValue<Linearization>() {
+        @Override
+        protected Linearization computeValue(Class<?> type) {
+          return linearize(type);
+        }
+      };
+
+  /**
+   * Returns a class and its ancestors in search order, without duplicates.
+   * <p>
+   * The returned array is shared and must not be modified.
+   *
+   * @param type a class
+   * @return the class, its interfaces and its superclasses in breadth-first order
+   */
+  static Class<?>[] searchOrder(Class<?> type) {
+    return LINEARIZATIONS.get(type).order;
+  }
+
+  /**
+   * Returns the end of each breadth-first level in {@link #searchOrder(Class)}.
+   * <p>
+   * The returned array is shared and must not be modified.
+   *
+   * @param type a class
+   * @return the exclusive end index of each level in the class's search order
+   */
+  static int[] levelEnds(Class<?> type) {
+    return LINEARIZATIONS.get(type).levelEnds;
+  }
+
+  private static Linearization linearize(Class<?> type) {
+    Class<?>[] interfaces = type.getInterfaces();
+    Class<?> superClass = type.getSuperclass();
+    boolean hasSuperClass = superClass != null && superClass != Object.class;
+
+    Linearization[] parents = new Linearization[interfaces.length + (hasSuperClass ? 1 : 0)];
+    int size = 1;
+    int numLevels = 1;
+    for (int i = 0; i < interfaces.length; i += 1) {
+      parents[i] = LINEARIZATIONS.get(interfaces[i]);
+    }
+    if (hasSuperClass) {
+      parents[interfaces.length] = LINEARIZATIONS.get(superClass);
+    }
+    for (Linearization parent : parents) {
+      size += parent.order.length;
+      numLevels = Math.max(numLevels, parent.levelEnds.length + 1);
+    }
+
+    Class<?>[] order = new Class<?>[size];
+    int[] levelEnds = new int[numLevels];
+    Set<Class<?>> visited = new HashSet<>();
+    order[0] = type;
+    visited.add(type);
+    int length = 1;
+    levelEnds[0] = 1;
+
+    for (int level = 1; level < numLevels; level += 1) {
+      for (Linearization parent : parents) {
+        if (level - 1 < parent.levelEnds.length) {
+          int start = level > 1 ? parent.levelEnds[level - 2] : 0;
+          int end = parent.levelEnds[level - 1];
+          for (int i = start; i < end; i += 1) {
+            if (visited.add(parent.order[i])) {
+              order[length] = parent.order[i];
+              length += 1;
+            }
+          }
+        }
+      }
+      levelEnds[level] = length;
+    }
+
+    return new Linearization(
+        length < size ? Arrays.copyOf(order, length) : order, levelEnds);
+  }
+
+  private static class Linearization {
+    private final Class<?>[] order;
+    // the end of each breadth-first level in order
+    private final int[] levelEnds;
+
+    private Linearization(Class<?>[] order, int[] levelEnds) {
+      this.order = order;
+      this.levelEnds = levelEnds;
+    }
+  }
+}
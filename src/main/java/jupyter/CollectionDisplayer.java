@@ -0,0 +1,214 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Displays collections as text and HTML lists.
+ * <p>
+ * Text matches {@link java.util.AbstractCollection#toString()} for collections
+ * within the {@link DisplayLimits}, except that elements are shown using their
+ * registered displayers. Collections with more than
+ * {@link DisplayLimits#getMaxElements()} elements are summarized: lists that
+ * support random access show {@link DisplayLimits#getEdgeItems()} elements at
+ * each end, like arrays, and other collections show the first
+ * {@code 2 * edgeItems} elements. Only the shown elements are visited, and the
+ * total size is reported after the summary.
+ */
+class CollectionDisplayer extends Displayer<Collection<?>> {
+
+  private static final CollectionDisplayer INSTANCE = new CollectionDisplayer();
+  private static final Set<String> MIME_TYPES = Collections.unmodifiableSet(
+      new HashSet<>(Arrays.asList(MIMETypes.TEXT, MIMETypes.HTML)));
+
+  public static Displayer<Collection<?>> get() {
+    return INSTANCE;
+  }
+
+  @Override
+  public Set<String> getProducedMimeTypes() {
+    return MIME_TYPES;
+  }
+
+  @Override
+  public Map<String, String> display(final Collection<?> collection) {
+    final Registration registration = Displayers.registration();
+    return new LazyDisplayData()
+        .add(MIMETypes.TEXT, new Supplier<String>() {
+          @Override
+          public String get() {
+            return registration.render(new Supplier<String>() {
+              @Override
+              public String get() {
+                return toText(collection, new ElementRenderer(registration));
+              }
+            });
+          }
+        })
+        .add(MIMETypes.HTML, new Supplier<String>() {
+          @Override
+          public String get() {
+            return registration.render(new Supplier<String>() {
+              @Override
+              public String get() {
+                return toHtml(collection, new ElementRenderer(registration));
+              }
+            });
+          }
+        });
+  }
+
+  private static String toText(Collection<?> collection, ElementRenderer renderer) {
+    RenderContext context = renderer.getContext();
+    if (!context.enter(collection)) {
+      return context.getMarker(collection);
+    }
+
+    try {
+      Shown shown = new Shown(collection, renderer.getLimits());
+      StringBuilder sb = new StringBuilder();
+      sb.append('[');
+      boolean stopped = false;
+      for (int i = 0; i < shown.size() && !stopped; i += 1) {
+        if (i > 0) {
+          sb.append(", ");
+        }
+        if (i == shown.gap) {
+          sb.append("..., ");
+        }
+        stopped = !renderer.next(sb);
+        if (stopped) {
+          sb.append("...");
+        } else {
+          renderer.appendText(sb, shown.get(i));
+        }
+      }
+      if (!stopped && shown.isSummarized() && shown.gap == shown.size()) {
+        sb.append(", ...");
+      }
+      sb.append(']');
+      if (shown.isSummarized()) {
+        sb.append(" (").append(collection.size()).append(" elements)");
+      }
+      return sb.toString();
+    } finally {
+      context.exit(collection);
+    }
+  }
+
+  private static String toHtml(Collection<?> collection, ElementRenderer renderer) {
+    RenderContext context = renderer.getContext();
+    if (!context.enter(collection)) {
+      return context.getMarker(collection);
+    }
+
+    try {
+      Shown shown = new Shown(collection, renderer.getLimits());
+      boolean ordered = collection instanceof List;
+      StringBuilder sb = new StringBuilder();
+      sb.append(ordered ? "<ol start=\"0\">" : "<ul>");
+      boolean stopped = false;
+      for (int i = 0; i < shown.size(); i += 1) {
+        stopped = !renderer.next(sb);
+        if (i == shown.gap || stopped) {
+          sb.append("<li>&hellip;</li>");
+        }
+        if (stopped) {
+          break;
+        } else if (ordered && i >= shown.gap) {
+          sb.append("<li value=\"").append(shown.indexOf(i)).append("\">");
+        } else {
+          sb.append("<li>");
+        }
+        renderer.appendHtml(sb, shown.get(i));
+        sb.append("</li>");
+      }
+      if (!stopped && shown.isSummarized() && shown.gap == shown.size()) {
+        sb.append("<li>&hellip;</li>");
+      }
+      sb.append(ordered ? "</ol>" : "</ul>");
+      if (shown.isSummarized()) {
+        sb.append("<p>").append(collection.size()).append(" elements</p>");
+      }
+      return sb.toString();
+    } finally {
+      context.exit(collection);
+    }
+  }
+
+  /**
+   * The elements of a collection that are shown. Elements after the gap are
+   * shown after an ellipsis.
+   */
+  private static class Shown {
+    private final Object[] elements;
+    private final int collectionSize;
+    private final int gap;
+
+    private Shown(Collection<?> collection, DisplayLimits limits) {
+      this.collectionSize = collection.size();
+      int edgeItems = limits.getEdgeItems();
+      if (!limits.shouldSummarize(collectionSize)) {
+        this.elements = collection.toArray();
+        this.gap = elements.length;
+      } else if (collection instanceof List && collection instanceof RandomAccess) {
+        List<?> list = (List<?>) collection;
+        this.elements = new Object[2 * edgeItems];
+        for (int i = 0; i < edgeItems; i += 1) {
+          elements[i] = list.get(i);
+          elements[edgeItems + i] = list.get(collectionSize - edgeItems + i);
+        }
+        this.gap = edgeItems;
+      } else {
+        this.elements = new Object[2 * edgeItems];
+        Iterator<?> iter = collection.iterator();
+        int count = 0;
+        while (count < elements.length && iter.hasNext()) {
+          elements[count] = iter.next();
+          count += 1;
+        }
+        this.gap = elements.length;
+      }
+    }
+
+    private int size() {
+      return elements.length;
+    }
+
+    private Object get(int i) {
+      return elements[i];
+    }
+
+    private boolean isSummarized() {
+      return elements.length < collectionSize;
+    }
+
+    private long indexOf(int i) {
+      return i < gap ? i : collectionSize - elements.length + i;
+    }
+  }
+}
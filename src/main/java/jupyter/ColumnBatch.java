@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.lang.reflect.Array;
+
+/**
+ * A batch of consecutive rows from a {@link TableSource}, stored by column.
+ * <p>
+ * Each column is an array with one element per row. Columns may be primitive
+ * arrays, like {@code double[]}, so numeric data does not need to be boxed.
+ */
+public final class ColumnBatch {
+  private final long offset;
+  private final int numRows;
+  private final Object[] columns;
+
+  /**
+   * @param offset the index of the batch's first row in the table
+   * @param numRows the number of rows in the batch
+   * @param columns one array per column, each with at least numRows elements
+   */
+  public ColumnBatch(long offset, int numRows, Object... columns) {
+    for (int i = 0; i < columns.length; i += 1) {
+      if (columns[i] == null || !columns[i].getClass().isArray()) {
+        throw new IllegalArgumentException("Invalid column " + i + ": not an array");
+      }
+      if (Array.getLength(columns[i]) < numRows) {
+        throw new IllegalArgumentException(
+            "Invalid column " + i + ": fewer than " + numRows + " rows");
+      }
+    }
+    this.offset = offset;
+    this.numRows = numRows;
+    this.columns = columns;
+  }
+
+  /**
+   * @return the index of the batch's first row in the table
+   */
+  public long getOffset() {
+    return offset;
+  }
+
+  /**
+   * @return the number of rows in the batch
+   */
+  public int getNumRows() {
+    return numRows;
+  }
+
+  /**
+   * @return the number of columns in the batch
+   */
+  public int getNumColumns() {
+    return columns.length;
+  }
+
+  /**
+   * Returns the array that stores a column.
+   *
+   * @param column a column index
+   * @return the column's array
+   */
+  public Object getColumn(int column) {
+    return columns[column];
+  }
+
+  /**
+   * Returns a single value, boxing primitive values.
+   *
+   * @param row a row index within this batch
+   * @param column a column index
+   * @return the value at the row and column
+   */
+  public Object getValue(int row, int column) {
+    if (row < 0 || row >= numRows) {
+      throw new IndexOutOfBoundsException("Invalid row: " + row);
+    }
+    return Array.get(columns[column], row);
+  }
+}
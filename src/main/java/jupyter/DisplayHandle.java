@@ -0,0 +1,246 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * An output that can be updated after it is displayed.
+ * <p>
+ * Kernels create handles with {@link Displayers#displayIncremental(Object)}, send
+ * {@link #getInitial()} as {@code display_data} with {@link #getDisplayId()}, and forward each
+ * {@link DisplayUpdate} passed to their {@link Listener} as {@code update_display_data}.
+ * <p>
+ * If the object's displayer is an {@link IncrementalDisplayer}, updates only describe what
+ * changed. Otherwise, {@link #refresh()} displays the object again and sends a
+ * {@link DisplayUpdate.Kind#REPLACE} update for the whole output if it has changed.
+ * <p>
+ * Updates are delivered to listeners in order, on the thread that sends them.
+ */
+public final class DisplayHandle {
+  /**
+   * Receives the updates sent through a handle.
+   */
+  public interface Listener {
+    void onUpdate(DisplayUpdate update);
+  }
+
+  private static final DisplayListener[] NO_LISTENERS = new DisplayListener[0];
+
+  private final Object lock = new Object();
+  private final String displayId;
+  private final Registration registration;
+  private final Object obj;
+  private final IncrementalDisplayer<Object> displayer;
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+  private Map<String, String> initial = null;
+  private long sequence = 0;
+  private volatile Object attachment = null;
+  private volatile boolean closed = false;
+
+  @SuppressWarnings("unchecked")
+  private DisplayHandle(String displayId, Registration registration, Object obj,
+                        IncrementalDisplayer<?> displayer) {
+    this.displayId = displayId;
+    this.registration = registration;
+    this.obj = obj;
+    this.displayer = (IncrementalDisplayer<Object>) displayer;
+  }
+
+  /**
+   * Displays an object and returns a handle for updates to its output.
+   *
+   * @param registration the registration that displays obj
+   * @param obj an object to display
+   * @param displayer the object's incremental displayer, or null to display it again on refresh
+   * @param displayId a display id, or null to generate one
+   */
+  static DisplayHandle open(final Registration registration, Object obj,
+                            IncrementalDisplayer<?> displayer, String displayId) {
+    final DisplayHandle handle = new DisplayHandle(
+        displayId != null ? displayId : UUID.randomUUID().toString(),
+        registration, obj,
+        displayer != null ? displayer : new Redisplay(registration));
+    handle.initial = registration.render(new Supplier<Map<String, String>>() {
+      @Override
+      public Map<String, String> get() {
+        Map<String, String> result = registration.restrict(
+            handle.displayer.open(handle.obj, handle));
+        return SizeGuard.apply(result, registration.getLimits(), handle.obj.getClass(),
+            handle.displayer, NO_LISTENERS);
+      }
+    });
+    return handle;
+  }
+
+  /**
+   * @return the display id that identifies this output to the front-end
+   */
+  public String getDisplayId() {
+    return displayId;
+  }
+
+  /**
+   * @return the initial representations of the object, by MIME type
+   */
+  public Map<String, String> getInitial() {
+    return initial;
+  }
+
+  /**
+   * @return the object that was displayed
+   */
+  public Object getObject() {
+    return obj;
+  }
+
+  /**
+   * @return the object attached with {@link #setAttachment(Object)}, or null
+   */
+  public Object getAttachment() {
+    return attachment;
+  }
+
+  /**
+   * Attaches an object to this handle, like the state an {@link IncrementalDisplayer} needs to
+   * compute the next update.
+   *
+   * @param attachment an object to attach, or null
+   */
+  public void setAttachment(Object attachment) {
+    this.attachment = attachment;
+  }
+
+  public void addListener(Listener listener) {
+    listeners.add(Objects.requireNonNull(listener, "listener"));
+  }
+
+  public boolean removeListener(Listener listener) {
+    return listeners.remove(listener);
+  }
+
+  /**
+   * Sends representations that are appended to the end of the output.
+   *
+   * @param data the appended representations, by MIME type
+   */
+  public void append(Map<String, String> data) {
+    send(DisplayUpdate.Kind.APPEND, null, data);
+  }
+
+  /**
+   * Sends representations that replace a region of the output.
+   *
+   * @param region the name of a region, or null to replace the whole output
+   * @param data the new representations of the region, by MIME type
+   */
+  public void replace(String region, Map<String, String> data) {
+    send(DisplayUpdate.Kind.REPLACE, region, data);
+  }
+
+  /**
+   * Sends the changes to the object since the last update, if there are any.
+   * <p>
+   * The displayer runs as if the registration that created this handle were displaying, so
+   * nested display calls use its displayers and limits.
+   *
+   * @throws IllegalStateException if this handle is closed
+   */
+  public void refresh() {
+    checkOpen();
+    registration.render(new Supplier<Void>() {
+      @Override
+      public Void get() {
+        displayer.update(obj, DisplayHandle.this);
+        return null;
+      }
+    });
+  }
+
+  /**
+   * Closes this handle. Later updates are rejected.
+   */
+  public void close() {
+    if (!closed) {
+      closed = true;
+      displayer.close(obj, this);
+    }
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  private void send(DisplayUpdate.Kind kind, String region, Map<String, String> data) {
+    checkOpen();
+    if (data.isEmpty()) {
+      return;
+    }
+    synchronized (lock) {
+      sequence += 1;
+      DisplayUpdate update = new DisplayUpdate(displayId, sequence, kind, region, data);
+      for (Listener listener : listeners) {
+        listener.onUpdate(update);
+      }
+    }
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Cannot update closed display: " + displayId);
+    }
+  }
+
+  /**
+   * Updates objects that do not have an incremental displayer by displaying them again.
+   */
+  private static class Redisplay extends IncrementalDisplayer<Object> {
+    private final Registration registration;
+
+    private Redisplay(Registration registration) {
+      this.registration = registration;
+    }
+
+    @Override
+    public Map<String, String> display(Object obj) {
+      return registration.display(obj);
+    }
+
+    @Override
+    public Map<String, String> open(Object obj, DisplayHandle handle) {
+      // compute lazy representations now, before the object changes
+      Map<String, String> result = new LinkedHashMap<>(display(obj));
+      handle.setAttachment(result);
+      return result;
+    }
+
+    @Override
+    public void update(Object obj, DisplayHandle handle) {
+      Map<String, String> result = new LinkedHashMap<>(display(obj));
+      if (!result.equals(handle.getAttachment())) {
+        handle.setAttachment(result);
+        handle.replace(null, result);
+      }
+    }
+  }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.util.Locale;
+import java.util.logging.Logger;
+
+/**
+ * Bounds on the output produced when displaying large or deeply nested values.
+ * <p>
+ * Sequences with more than {@link #getMaxElements()} elements are summarized
+ * by showing {@link #getEdgeItems()} elements at the start and end, separated
+ * by {@code ...}, like NumPy. Output stops with {@code ...} once it reaches
+ * {@link #getMaxChars()} characters, and nested values deeper than
+ * {@link #getMaxDepth()} are shown as {@code [...]}. A display call stops
+ * rendering nested values after {@link #getMaxWork()} values in total.
+ * <p>
+ * The representations returned by one display call may have at most
+ * {@link #getMaxResultChars()} characters in total. Representations that do
+ * not fit are truncated or spilled to a temporary file, depending on
+ * {@link #getOverflow()}.
+ * <p>
+ * Instances are immutable. The JVM-wide limits are set with
+ * {@link Registration#setLimits(DisplayLimits)}. The initial values can be set
+ * with the system properties {@code jupyter.display.maxElements},
+ * {@code jupyter.display.edgeItems}, {@code jupyter.display.maxChars},
+ * {@code jupyter.display.maxDepth}, {@code jupyter.display.maxWork},
+ * {@code jupyter.display.maxResultChars} and {@code jupyter.display.overflow}.
+ */
+public final class DisplayLimits {
+  private static final Logger LOG = Logger.getLogger(DisplayLimits.class.getName());
+
+  /**
+   * What to do with representations that exceed {@link #getMaxResultChars()}.
+   */
+  public enum Overflow {
+    /**
+     * Keep the start of the representation, followed by {@code ...}.
+     */
+    TRUNCATE,
+    /**
+     * Write the representation to a temporary file and return it as a file region of a
+     * {@link BinaryDisplayData}, so it is not held in memory. Spill files are kept in one
+     * directory of at most {@code jupyter.display.maxSpillBytes} bytes, and are deleted when the
+     * result is released. Representations that do not fit in the directory are truncated.
+     */
+    SPILL
+  }
+
+  /**
+   * The default limits, including any overrides from system properties.
+   * <p>
+   * Properties with invalid values are ignored with a warning.
+   */
+  public static final DisplayLimits DEFAULT = new DisplayLimits(
+      positiveProperty("jupyter.display.maxElements", 1000),
+      positiveProperty("jupyter.display.edgeItems", 3),
+      positiveProperty("jupyter.display.maxChars", 100000),
+      positiveProperty("jupyter.display.maxDepth", 16),
+      positiveProperty("jupyter.display.maxWork", 1000000),
+      positiveProperty("jupyter.display.maxResultChars", 16 * 1024 * 1024),
+      overflowProperty("jupyter.display.overflow", Overflow.TRUNCATE));
+
+  /**
+   * Limits that never truncate output.
+   */
+  public static final DisplayLimits UNLIMITED = new DisplayLimits(
+      Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE,
+      Integer.MAX_VALUE, Integer.MAX_VALUE, Overflow.TRUNCATE);
+
+  private final int maxElements;
+  private final int edgeItems;
+  private final int maxChars;
+  private final int maxDepth;
+  private final int maxWork;
+  private final int maxResultChars;
+  private final Overflow overflow;
+
+  private DisplayLimits(int maxElements, int edgeItems, int maxChars, int maxDepth,
+                        int maxWork, int maxResultChars, Overflow overflow) {
+    this.maxElements = checkPositive("maxElements", maxElements);
+    this.edgeItems = checkPositive("edgeItems", edgeItems);
+    this.maxChars = checkPositive("maxChars", maxChars);
+    this.maxDepth = checkPositive("maxDepth", maxDepth);
+    this.maxWork = checkPositive("maxWork", maxWork);
+    this.maxResultChars = checkPositive("maxResultChars", maxResultChars);
+    if (overflow == null) {
+      throw new IllegalArgumentException("Invalid overflow: null");
+    }
+    this.overflow = overflow;
+  }
+
+  /**
+   * @return the number of elements above which a sequence is summarized
+   */
+  public int getMaxElements() {
+    return maxElements;
+  }
+
+  /**
+   * @return the number of elements shown at each end of a summarized sequence
+   */
+  public int getEdgeItems() {
+    return edgeItems;
+  }
+
+  /**
+   * @return the number of characters after which output is truncated
+   */
+  public int getMaxChars() {
+    return maxChars;
+  }
+
+  /**
+   * @return the number of nesting levels that are shown
+   */
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * @return the number of values rendered by one display call, across all nesting levels,
+   *         after which rendering stops
+   * @see RenderContext#charge(long)
+   */
+  public int getMaxWork() {
+    return maxWork;
+  }
+
+  /**
+   * @return the number of characters in all of the representations returned by one display
+   *         call, after which representations are truncated or spilled
+   */
+  public int getMaxResultChars() {
+    return maxResultChars;
+  }
+
+  /**
+   * @return what to do with representations that exceed {@link #getMaxResultChars()}
+   */
+  public Overflow getOverflow() {
+    return overflow;
+  }
+
+  /**
+   * Returns whether a sequence of the given length should be summarized.
+   *
+   * @param length the number of elements in a sequence
+   * @return true if only the first and last {@link #getEdgeItems()} elements should be shown
+   */
+  public boolean shouldSummarize(long length) {
+    return length > maxElements && length > 2L * edgeItems;
+  }
+
+  /**
+   * Returns limits with a different maxElements.
+   *
+   * @param maxElements the number of elements above which a sequence is summarized
+   * @return a copy of these limits with the new value
+   * @throws IllegalArgumentException if the value is not positive
+   */
+  public DisplayLimits withMaxElements(int maxElements) {
+    return new DisplayLimits(maxElements, edgeItems, maxChars, maxDepth, maxWork, maxResultChars,
+        overflow);
+  }
+
+  /**
+   * Returns limits with a different edgeItems.
+   *
+   * @param edgeItems the number of elements shown at each end of a summarized sequence
+   * @return a copy of these limits with the new value
+   * @throws IllegalArgumentException if the value is not positive
+   */
+  public DisplayLimits withEdgeItems(int edgeItems) {
+    return new DisplayLimits(maxElements, edgeItems, maxChars, maxDepth, maxWork, maxResultChars,
+        overflow);
+  }
+
+  /**
+   * Returns limits with a different maxChars.
+   *
+   * @param maxChars the number of characters after which output is truncated
+   * @return a copy of these limits with the new value
+   * @throws IllegalArgumentException if the value is not positive
+   */
+  public DisplayLimits withMaxChars(int maxChars) {
+    return new DisplayLimits(maxElements, edgeItems, maxChars, maxDepth, maxWork, maxResultChars,
+        overflow);
+  }
+
+  /**
+   * Returns limits with a different maxDepth.
+   *
+   * @param maxDepth the number of nesting levels that are shown
+   * @return a copy of these limits with the new value
+   * @throws IllegalArgumentException if the value is not positive
+   */
+  public DisplayLimits withMaxDepth(int maxDepth) {
+    return new DisplayLimits(maxElements, edgeItems, maxChars, maxDepth, maxWork, maxResultChars,
+        overflow);
+  }
+
+  /**
+   * Returns limits with a different maxWork.
+   *
+   * @param maxWork the number of values rendered by one display call
+   * @return a copy of these limits with the new value
+   * @throws IllegalArgumentException if the value is not positive
+   */
+  public DisplayLimits withMaxWork(int maxWork) {
+    return new DisplayLimits(maxElements, edgeItems, maxChars, maxDepth, maxWork, maxResultChars,
+        overflow);
+  }
+
+  /**
+   * Returns limits with a different maxResultChars.
+   *
+   * @param maxResultChars the number of characters in all representations of one display call
+   * @return a copy of these limits with the new value
+   * @throws IllegalArgumentException if the value is not positive
+   */
+  public DisplayLimits withMaxResultChars(int maxResultChars) {
+    return new DisplayLimits(maxElements, edgeItems, maxChars, maxDepth, maxWork, maxResultChars,
+        overflow);
+  }
+
+  /**
+   * Returns limits with a different overflow behavior.
+   *
+   * @param overflow what to do with representations that exceed {@link #getMaxResultChars()}
+   * @return a copy of these limits with the new value
+   * @throws IllegalArgumentException if the value is null
+   */
+  public DisplayLimits withOverflow(Overflow overflow) {
+    return new DisplayLimits(maxElements, edgeItems, maxChars, maxDepth, maxWork, maxResultChars,
+        overflow);
+  }
+
+  private static int checkPositive(String name, int value) {
+    if (value < 1) {
+      throw new IllegalArgumentException("Invalid " + name + ": " + value + " (must be positive)");
+    }
+    return value;
+  }
+
+  static int positiveProperty(String name, int defaultValue) {
+    String value = System.getProperty(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      int parsed = Integer.parseInt(value.trim());
+      if (parsed >= 1) {
+        return parsed;
+      }
+    } catch (NumberFormatException e) {
+      // fall through to the warning
+    }
+    LOG.warning("Invalid " + name + ": " + value + " (must be positive), using " + defaultValue);
+    return defaultValue;
+  }
+
+  static Overflow overflowProperty(String name, Overflow defaultValue) {
+    String value = System.getProperty(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Overflow.valueOf(value.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      LOG.warning("Invalid " + name + ": " + value + " (must be truncate or spill), using " +
+          defaultValue.name().toLowerCase(Locale.ROOT));
+      return defaultValue;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "DisplayLimits(maxElements=" + maxElements + ", edgeItems=" + edgeItems +
+        ", maxChars=" + maxChars + ", maxDepth=" + maxDepth + ", maxWork=" + maxWork +
+        ", maxResultChars=" + maxResultChars + ", overflow=" + overflow + ")";
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.util.Map;
+
+/**
+ * Receives timing and outcome events for display calls made through a
+ * {@link Registration}.
+ * <p>
+ * Listeners are called synchronously on the displaying thread, so they should
+ * return quickly and must be thread-safe. Exceptions thrown by a listener are
+ * not caught.
+ *
+ * @see Registration#addListener(DisplayListener)
+ * @see DisplayMetrics
+ */
+public interface DisplayListener {
+  /**
+   * Called after a {@link Displayer} is found for an object's class.
+   *
+   * @param objClass the class of the displayed object
+   * @param displayer the Displayer that was found, or null if there is none
+   * @param isDefault true if the default displayer was used because no displayer
+   *                  is registered for the class, its interfaces or its superclasses
+   * @param nanos the time spent finding the displayer, in nanoseconds
+   */
+  default void onFind(Class<?> objClass, Displayer<?> displayer, boolean isDefault, long nanos) {
+  }
+
+  /**
+   * Called after a {@link Displayer} successfully displays an object.
+   *
+   * @param objClass the class of the displayed object
+   * @param displayer the Displayer that displayed the object
+   * @param result representations by MIME type, or null if they were streamed to a
+   *               {@link SinkFactory}
+   * @param nanos the time spent displaying the object, in nanoseconds
+   * @param allocatedBytes bytes allocated by the displaying thread, or -1 if
+   *                       allocations cannot be measured in this JVM
+   */
+  default void onDisplay(Class<?> objClass, Displayer<?> displayer, Map<String, String> result,
+                         long nanos, long allocatedBytes) {
+  }
+
+  /**
+   * Called when a representation does not fit in the
+   * {@link DisplayLimits#getMaxResultChars()} budget of a display call.
+   *
+   * @param objClass the class of the displayed object
+   * @param displayer the Displayer that produced the representation
+   * @param mimeType the MIME type of the representation
+   * @param chars the length of the representation, in characters
+   * @param spilled true if the representation was written to a temporary file,
+   *                false if it was truncated
+   */
+  default void onOversized(Class<?> objClass, Displayer<?> displayer, String mimeType,
+                           long chars, boolean spilled) {
+  }
+
+  /**
+   * Called when a {@link Displayer} throws an exception. The exception is
+   * rethrown to the caller after all listeners are called.
+   *
+   * @param objClass the class of the displayed object
+   * @param displayer the Displayer that failed
+   * @param error the exception thrown by the displayer
+   * @param nanos the time spent before the displayer failed, in nanoseconds
+   */
+  default void onError(Class<?> objClass, Displayer<?> displayer, Throwable error, long nanos) {
+  }
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * An in-memory {@link DisplayListener} that aggregates display metrics.
+ * <p>
+ * Records latency histograms, exception counts and allocated bytes per
+ * displayer class, the size of representations per MIME type, the classes
+ * of objects that fell back to the default displayer, and how often
+ * representations exceeded {@link DisplayLimits#getMaxResultChars()}. For example:
+ * <pre>
+ *   DisplayMetrics metrics = new DisplayMetrics();
+ *   Displayers.registration().addListener(metrics);
+ *   metrics.registerMBean();
+ * </pre>
+ * <p>
+ * Recording uses striped counters and fixed power-of-two latency buckets, so
+ * it does not lock or allocate on the display path once a displayer class has
+ * been seen. Percentiles are reported as the upper bound of their bucket.
+ * <p>
+ * Output size is counted in characters for text and bytes for
+ * {@link BinaryDisplayData}. Representations of a {@link LazyDisplayData} that
+ * have not been computed when the display call returns are not counted.
+ */
+public class DisplayMetrics implements DisplayListener, DisplayMetricsMXBean {
+  /**
+   * The name used by {@link #registerMBean()}.
+   */
+  public static final String OBJECT_NAME = "jupyter:type=DisplayMetrics";
+
+  private final Histogram findLatency = new Histogram();
+  private final LongAdder fallbacks = new LongAdder();
+  private final ConcurrentMap<String, Stats> statsByDisplayer = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, LongAdder> fallbacksByClass = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, LongAdder> sizesByMimeType = new ConcurrentHashMap<>();
+  private final LongAdder truncated = new LongAdder();
+  private final LongAdder spilled = new LongAdder();
+  private final ConcurrentMap<String, LongAdder> oversizedByDisplayer = new ConcurrentHashMap<>();
+
+  @Override
+  public void onFind(Class<?> objClass, Displayer<?> displayer, boolean isDefault, long nanos) {
+    findLatency.record(nanos);
+    if (isDefault) {
+      fallbacks.increment();
+      counter(fallbacksByClass, objClass.getName()).increment();
+    }
+  }
+
+  @Override
+  public void onDisplay(Class<?> objClass, Displayer<?> displayer, Map<String, String> result,
+                        long nanos, long allocatedBytes) {
+    Stats stats = stats(displayer);
+    stats.latency.record(nanos);
+    stats.totalNanos.add(nanos);
+    if (allocatedBytes > 0) {
+      stats.allocatedBytes.add(allocatedBytes);
+    }
+    if (result != null) {
+      recordSizes(result);
+    }
+  }
+
+  @Override
+  public void onError(Class<?> objClass, Displayer<?> displayer, Throwable error, long nanos) {
+    Stats stats = stats(displayer);
+    stats.latency.record(nanos);
+    stats.totalNanos.add(nanos);
+    stats.errors.increment();
+  }
+
+  @Override
+  public void onOversized(Class<?> objClass, Displayer<?> displayer, String mimeType,
+                          long chars, boolean spilled) {
+    (spilled ? this.spilled : this.truncated).increment();
+    counter(oversizedByDisplayer, displayer.getClass().getName()).increment();
+  }
+
+  @Override
+  public long getFindCount() {
+    return findLatency.count();
+  }
+
+  @Override
+  public long getFindP99Nanos() {
+    return findLatency.percentile(0.99);
+  }
+
+  @Override
+  public long getDisplayCount() {
+    long count = 0;
+    for (Stats stats : statsByDisplayer.values()) {
+      count += stats.latency.count();
+    }
+    return count;
+  }
+
+  @Override
+  public long getErrorCount() {
+    long count = 0;
+    for (Stats stats : statsByDisplayer.values()) {
+      count += stats.errors.sum();
+    }
+    return count;
+  }
+
+  @Override
+  public long getFallbackCount() {
+    return fallbacks.sum();
+  }
+
+  @Override
+  public Map<String, Long> getDisplayCounts() {
+    Map<String, Long> counts = new TreeMap<>();
+    for (Map.Entry<String, Stats> entry : statsByDisplayer.entrySet()) {
+      counts.put(entry.getKey(), entry.getValue().latency.count());
+    }
+    return counts;
+  }
+
+  @Override
+  public Map<String, Long> getErrorCounts() {
+    Map<String, Long> counts = new TreeMap<>();
+    for (Map.Entry<String, Stats> entry : statsByDisplayer.entrySet()) {
+      counts.put(entry.getKey(), entry.getValue().errors.sum());
+    }
+    return counts;
+  }
+
+  @Override
+  public Map<String, Long> getFallbackCounts() {
+    return sums(fallbacksByClass);
+  }
+
+  @Override
+  public Map<String, Long> getMeanDisplayNanos() {
+    Map<String, Long> means = new TreeMap<>();
+    for (Map.Entry<String, Stats> entry : statsByDisplayer.entrySet()) {
+      long count = entry.getValue().latency.count();
+      means.put(entry.getKey(), count > 0 ? entry.getValue().totalNanos.sum() / count : 0);
+    }
+    return means;
+  }
+
+  @Override
+  public Map<String, Long> getP99DisplayNanos() {
+    Map<String, Long> percentiles = new TreeMap<>();
+    for (Map.Entry<String, Stats> entry : statsByDisplayer.entrySet()) {
+      percentiles.put(entry.getKey(), entry.getValue().latency.percentile(0.99));
+    }
+    return percentiles;
+  }
+
+  @Override
+  public Map<String, Long> getAllocatedBytes() {
+    Map<String, Long> allocated = new TreeMap<>();
+    for (Map.Entry<String, Stats> entry : statsByDisplayer.entrySet()) {
+      allocated.put(entry.getKey(), entry.getValue().allocatedBytes.sum());
+    }
+    return allocated;
+  }
+
+  @Override
+  public Map<String, Long> getOutputSizes() {
+    return sums(sizesByMimeType);
+  }
+
+  @Override
+  public long getTruncatedCount() {
+    return truncated.sum();
+  }
+
+  @Override
+  public long getSpilledCount() {
+    return spilled.sum();
+  }
+
+  @Override
+  public Map<String, Long> getOversizedCounts() {
+    return sums(oversizedByDisplayer);
+  }
+
+  /**
+   * Returns a percentile of the time spent in a displayer class.
+   *
+   * @param displayerClass the class of a Displayer
+   * @param quantile the percentile to return, between 0.0 and 1.0
+   * @return the upper bound of the percentile in nanoseconds, or 0 if the class has not been used
+   */
+  public long getDisplayNanos(Class<?> displayerClass, double quantile) {
+    if (quantile < 0.0 || quantile > 1.0) {
+      throw new IllegalArgumentException(
+          "Invalid quantile: " + quantile + " (must be between 0.0 and 1.0)");
+    }
+    Stats stats = statsByDisplayer.get(displayerClass.getName());
+    return stats != null ? stats.latency.percentile(quantile) : 0;
+  }
+
+  @Override
+  public void reset() {
+    findLatency.reset();
+    fallbacks.reset();
+    statsByDisplayer.clear();
+    fallbacksByClass.clear();
+    sizesByMimeType.clear();
+    truncated.reset();
+    spilled.reset();
+    oversizedByDisplayer.clear();
+  }
+
+  /**
+   * Registers this recorder with the platform MBeanServer as {@link #OBJECT_NAME}.
+   *
+   * @return the ObjectName of the registered MBean
+   * @throws IllegalStateException if the MBean cannot be registered
+   */
+  public ObjectName registerMBean() {
+    try {
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+      return name;
+    } catch (JMException e) {
+      throw new IllegalStateException("Cannot register MBean: " + OBJECT_NAME, e);
+    }
+  }
+
+  /**
+   * Removes the MBean registered by {@link #registerMBean()}, if there is one.
+   */
+  public void unregisterMBean() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+    } catch (JMException e) {
+      throw new IllegalStateException("Cannot unregister MBean: " + OBJECT_NAME, e);
+    }
+  }
+
+  private Stats stats(Displayer<?> displayer) {
+    String name = displayer.getClass().getName();
+    Stats stats = statsByDisplayer.get(name);
+    if (stats == null) {
+      Stats created = new Stats();
+      stats = statsByDisplayer.putIfAbsent(name, created);
+      if (stats == null) {
+        stats = created;
+      }
+    }
+    return stats;
+  }
+
+  private void recordSizes(Map<String, String> result) {
+    if (result instanceof LazyDisplayData) {
+      LazyDisplayData lazy = (LazyDisplayData) result;
+      for (String mimeType : lazy.keySet()) {
+        if (lazy.isComputed(mimeType)) {
+          counter(sizesByMimeType, mimeType).add(lazy.get(mimeType).length());
+        }
+      }
+    } else if (result instanceof BinaryDisplayData) {
+      BinaryDisplayData binary = (BinaryDisplayData) result;
+      for (String mimeType : binary.keySet()) {
+        if (binary.isComputed(mimeType)) {
+          counter(sizesByMimeType, mimeType).add(binary.getSize(mimeType));
+        }
+      }
+    } else {
+      for (Map.Entry<String, String> entry : result.entrySet()) {
+        String value = entry.getValue();
+        if (value != null) {
+          counter(sizesByMimeType, entry.getKey()).add(value.length());
+        }
+      }
+    }
+  }
+
+  private static LongAdder counter(ConcurrentMap<String, LongAdder> counters, String key) {
+    LongAdder counter = counters.get(key);
+    if (counter == null) {
+      LongAdder created = new LongAdder();
+      counter = counters.putIfAbsent(key, created);
+      if (counter == null) {
+        counter = created;
+      }
+    }
+    return counter;
+  }
+
+  private static Map<String, Long> sums(Map<String, LongAdder> counters) {
+    Map<String, Long> sums = new TreeMap<>();
+    for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+      sums.put(entry.getKey(), entry.getValue().sum());
+    }
+    return sums;
+  }
+
+  private static class Stats {
+    private final Histogram latency = new Histogram();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+  }
+
+  /**
+   * Counts values in buckets by their highest set bit.
+   */
+  private static class Histogram {
+    private final AtomicLongArray buckets = new AtomicLongArray(64);
+
+    private void record(long value) {
+      // bucket i holds values in [2^(i-1), 2^i), and bucket 0 holds 0
+      buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(Math.max(value, 0)));
+    }
+
+    private long count() {
+      long count = 0;
+      for (int i = 0; i < buckets.length(); i += 1) {
+        count += buckets.get(i);
+      }
+      return count;
+    }
+
+    private long percentile(double quantile) {
+      long count = count();
+      if (count == 0) {
+        return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(quantile * count));
+      long seen = 0;
+      for (int i = 0; i < buckets.length(); i += 1) {
+        seen += buckets.get(i);
+        if (seen >= rank) {
+          return i == 0 ? 0 : (1L << i) - 1;
+        }
+      }
+      return Long.MAX_VALUE;
+    }
+
+    private void reset() {
+      for (int i = 0; i < buckets.length(); i += 1) {
+        buckets.set(i, 0);
+      }
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.util.Map;
+
+/**
+ * JMX view of the aggregates recorded by {@link DisplayMetrics}.
+ * <p>
+ * Maps are keyed by displayer class name unless noted otherwise.
+ */
+public interface DisplayMetricsMXBean {
+  /**
+   * @return the number of displayer lookups
+   */
+  long getFindCount();
+
+  /**
+   * @return the 99th percentile time to find a displayer, in nanoseconds
+   */
+  long getFindP99Nanos();
+
+  /**
+   * @return the number of objects displayed, including failed calls
+   */
+  long getDisplayCount();
+
+  /**
+   * @return the number of display calls that threw an exception
+   */
+  long getErrorCount();
+
+  /**
+   * @return the number of objects with no registered displayer that used the default
+   */
+  long getFallbackCount();
+
+  /**
+   * @return the number of display calls, by displayer class name
+   */
+  Map<String, Long> getDisplayCounts();
+
+  /**
+   * @return the number of display calls that threw an exception, by displayer class name
+   */
+  Map<String, Long> getErrorCounts();
+
+  /**
+   * @return the number of objects that used the default displayer, by object class name
+   */
+  Map<String, Long> getFallbackCounts();
+
+  /**
+   * @return the mean display time in nanoseconds, by displayer class name
+   */
+  Map<String, Long> getMeanDisplayNanos();
+
+  /**
+   * @return the 99th percentile display time in nanoseconds, by displayer class name
+   */
+  Map<String, Long> getP99DisplayNanos();
+
+  /**
+   * @return bytes allocated while displaying, by displayer class name
+   */
+  Map<String, Long> getAllocatedBytes();
+
+  /**
+   * @return the size of displayed representations, by MIME type
+   */
+  Map<String, Long> getOutputSizes();
+
+  /**
+   * @return the number of representations that were truncated to fit the result size limit
+   */
+  long getTruncatedCount();
+
+  /**
+   * @return the number of representations that were spilled to a file to fit the result size
+   *         limit
+   */
+  long getSpilledCount();
+
+  /**
+   * @return the number of representations that did not fit the result size limit, by displayer
+   *         class name
+   */
+  Map<String, Long> getOversizedCounts();
+
+  /**
+   * Discards all recorded metrics.
+   */
+  void reset();
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A change to an output that was displayed with a {@link DisplayHandle}.
+ * <p>
+ * Kernels can forward updates as {@code update_display_data} messages for the handle's display id.
+ * The representations in an update only describe the change: for {@link Kind#APPEND} they are
+ * added to the end of the output, and for {@link Kind#REPLACE} they replace a named region of the
+ * output, or the whole output if the region is null.
+ */
+public final class DisplayUpdate {
+  /**
+   * How an update changes the output.
+   */
+  public enum Kind {
+    APPEND,
+    REPLACE
+  }
+
+  private final String displayId;
+  private final long sequence;
+  private final Kind kind;
+  private final String region;
+  private final Map<String, String> data;
+
+  DisplayUpdate(String displayId, long sequence, Kind kind, String region,
+                Map<String, String> data) {
+    this.displayId = displayId;
+    this.sequence = sequence;
+    this.kind = kind;
+    this.region = region;
+    this.data = Collections.unmodifiableMap(data);
+  }
+
+  /**
+   * @return the display id of the output that this update changes
+   */
+  public String getDisplayId() {
+    return displayId;
+  }
+
+  /**
+   * Returns the position of this update in its handle's updates, starting at 1.
+   * <p>
+   * Updates must be applied in order.
+   *
+   * @return the sequence number of this update
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * @return whether this update appends to the output or replaces part of it
+   */
+  public Kind getKind() {
+    return kind;
+  }
+
+  /**
+   * @return the name of the region that is replaced, or null for the whole output
+   */
+  public String getRegion() {
+    return region;
+  }
+
+  /**
+   * @return the representations of the change, by MIME type
+   */
+  public Map<String, String> getData() {
+    return data;
+  }
+
+  @Override
+  public String toString() {
+    return "DisplayUpdate(" + displayId + "#" + sequence + ", " + kind +
+        (region != null ? " " + region : "") + ", " + data.keySet() + ")";
+  }
+}
@@ -16,7 +16,12 @@
 
 package jupyter;
 
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Converts objects to representations for display, by MIME type.
@@ -34,13 +39,109 @@ public abstract class Displayer<T> {
    * <p>
    * To avoid extra conversion, kernels or front-ends can call
    * {@link #setMimeTypes(String...)} to pass supported MIME types.
-   * Implementations may ignore these MIME type hints.
+   * Implementations may ignore these MIME type hints, or may return a
+   * {@link LazyDisplayData} so that only the representations that are used
+   * are computed.
    *
    * @param obj an object instance to display
    * @return a Map of representations of this object by MIME type
    */
   public abstract Map<String, String> display(T obj);
 
+  /**
+   * Called to display several objects at once.
+   * <p>
+   * The registry calls this with all of the objects in a batch that resolve to this
+   * displayer, so implementations can share work between them. By default, this
+   * calls {@link #display(Object)} for each object.
+   *
+   * @param objs object instances to display
+   * @return a List of representations by MIME type, in the same order as objs
+   * @see Registration#displayBatch(Iterable, boolean)
+   */
+  public List<Map<String, String>> displayBatch(List<? extends T> objs) {
+    List<Map<String, String>> results = new ArrayList<>(objs.size());
+    for (T obj : objs) {
+      results.add(display(obj));
+    }
+    return results;
+  }
+
+  /**
+   * Called to display an object by streaming each representation to a sink.
+   * <p>
+   * Representations are written to the {@link Appendable} returned by
+   * {@link SinkFactory#open(String)} for each MIME type, which avoids building
+   * every representation as a String.
+   * <p>
+   * By default, this writes the representations returned by {@link #display(Object)}.
+   * Implementations that produce large representations should override this
+   * method to write them directly.
+   *
+   * @param obj an object instance to display
+   * @param sinks opens a destination for each representation by MIME type
+   * @throws IOException if a destination cannot be written
+   */
+  public void displayTo(T obj, SinkFactory sinks) throws IOException {
+    writeTo(display(obj), sinks);
+  }
+
+  /**
+   * Writes each representation in a display result to a sink.
+   * <p>
+   * Binary representations in a {@link BinaryDisplayData} are written as bytes
+   * if the sink opens a binary destination for them.
+   */
+  static void writeTo(Map<String, String> result, SinkFactory sinks) throws IOException {
+    BinaryDisplayData binary =
+        result instanceof BinaryDisplayData ? (BinaryDisplayData) result : null;
+    for (String mimeType : result.keySet()) {
+      if (binary != null && binary.isBinary(mimeType)) {
+        WritableByteChannel channel = sinks.openBinary(mimeType);
+        if (channel != null) {
+          binary.writeTo(mimeType, channel);
+          continue;
+        }
+      }
+
+      Appendable out = sinks.open(mimeType);
+      if (out != null) {
+        try {
+          out.append(result.get(mimeType));
+        } finally {
+          sinks.close(mimeType, out);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the MIME types that this displayer can produce.
+   * <p>
+   * This allows kernels and the registry to know which representations are
+   * available without calling {@link #display(Object)}.
+   *
+   * @return the MIME types this displayer produces, or null if they are not declared
+   */
+  public Set<String> getProducedMimeTypes() {
+    return null;
+  }
+
+  /**
+   * Returns a hint for how expensive it is to produce a MIME type, relative to other displayers.
+   * <p>
+   * When several displayers at the same level of a class's hierarchy can produce an accepted
+   * MIME type with the same quality, the registry uses the one with the lowest cost. The default
+   * cost is 1.0.
+   *
+   * @param mimeType a MIME type that this displayer produces
+   * @return the relative cost of producing the MIME type
+   * @see Registration#find(Class)
+   */
+  public double getCost(String mimeType) {
+    return 1.0;
+  }
+
   /**
    * Called to pass the MIME types supported by the kernel or front-end.
    * <p>
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.util.Set;
+
+/**
+ * Provides {@link Displayer} instances for classes named as Strings, so that
+ * displayers can be discovered without loading the classes they display.
+ * <p>
+ * Providers are found with {@link java.util.ServiceLoader} by listing
+ * implementations in {@code META-INF/services/jupyter.DisplayerProvider}.
+ * A provider's displayer for a class is created the first time
+ * {@link Registration#find(Class)} is called for that class or one of its
+ * subclasses, so libraries that are never displayed are not initialized.
+ * Implementations should not refer to the displayed classes in fields or
+ * static initializers, which would load them when the provider is created.
+ *
+ * @see Registration#addProvider(DisplayerProvider)
+ */
+public interface DisplayerProvider {
+  /**
+   * Returns the names of classes and interfaces that this provider can display.
+   *
+   * @return a Set of binary class names, as returned by {@link Class#getName()}
+   */
+  Set<String> getClassNames();
+
+  /**
+   * Creates a Displayer for a class whose name was returned by {@link #getClassNames()}.
+   *
+   * @param objClass the class of objects to display
+   * @return a Displayer for objClass and its subclasses, or null if it cannot be displayed
+   */
+  Displayer<?> getDisplayer(Class<?> objClass);
+}
@@ -16,8 +16,13 @@
 
 package jupyter;
 
+import java.io.IOException;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Convenience methods using common JVM registration.
@@ -25,9 +30,12 @@ import java.util.Map;
 public abstract class Displayers {
   /**
    * Returns the common {@link Registration} in this JVM.
+   * <p>
+   * While a scope created with {@link Registration#newScope()} is displaying an
+   * object, this returns the scope on the displaying thread.
    */
   public static Registration registration() {
-    return Registration.INSTANCE;
+    return Registration.active();
   }
 
   /**
@@ -40,6 +48,18 @@ public abstract class Displayers {
     registration().add(objClass, displayer);
   }
 
+  /**
+   * Registers a Displayer instance for a parameterized type in this JVM, like
+   * {@code List<Double>}.
+   *
+   * @param token a TypeToken for a parameterized Collection or Map type
+   * @param displayer a Displayer instance
+   * @see Registration#add(TypeToken, Displayer)
+   */
+  public static <T> void register(TypeToken<T> token, Displayer<? extends T> displayer) {
+    registration().add(token, displayer);
+  }
+
   /**
    * Sets the MIME type hint for all registered {@link Displayer} instances in
    * this JVM.
@@ -50,17 +70,149 @@ public abstract class Displayers {
     registration().setMimeTypes(types);
   }
 
+  /**
+   * Sets the limits on output for large or nested values in this JVM.
+   *
+   * @param limits DisplayLimits for all displayers
+   */
+  public static void setLimits(DisplayLimits limits) {
+    registration().setLimits(limits);
+  }
+
   /**
    * Converts an object to one or more displayable representations by MIME type.
+   * <p>
+   * If a displayer returns a {@link LazyDisplayData} and a MIME type hint has
+   * been set, the result is restricted to the hinted MIME types so that other
+   * representations are never computed.
    *
    * @param obj an Object to display
    * @return a Map of representations of the object, by MIME type.
    */
-  @SuppressWarnings("unchecked")
   public static <T> Map<String, String> display(T obj) {
+    return registration().display(obj);
+  }
+
+  /**
+   * Converts several objects to displayable representations by MIME type.
+   * <p>
+   * Objects that use the same displayer are displayed together with
+   * {@link Displayer#displayBatch(List)}.
+   *
+   * @param objs objects to display
+   * @return a List of representations by MIME type, in the same order as objs
+   * @see Registration#displayBatch(Iterable, boolean)
+   */
+  public static List<Map<String, String>> displayAll(Iterable<?> objs) {
+    return registration().displayBatch(objs, false);
+  }
+
+  /**
+   * Converts several objects to displayable representations by MIME type,
+   * optionally displaying them in parallel on the common ForkJoinPool.
+   *
+   * @param objs objects to display
+   * @param parallel whether to display objects in parallel
+   * @return a List of representations by MIME type, in the same order as objs
+   * @see Registration#displayBatch(Iterable, boolean)
+   */
+  public static List<Map<String, String>> displayAll(Iterable<?> objs, boolean parallel) {
+    return registration().displayBatch(objs, parallel);
+  }
+
+  /**
+   * Converts an object to one or more displayable representations and streams
+   * each representation to a sink, by MIME type.
+   * <p>
+   * Nothing is written if there is no displayer for the object.
+   *
+   * @param obj an Object to display
+   * @param sinks opens a destination for each representation by MIME type
+   * @throws IOException if a destination cannot be written
+   */
+  public static <T> void displayTo(T obj, SinkFactory sinks) throws IOException {
+    registration().displayTo(obj, sinks);
+  }
+
+  /**
+   * Displays an object that changes over time, like a progress bar or a
+   * growing log.
+   * <p>
+   * Kernels send the handle's initial representations with its display id, and
+   * forward the {@link DisplayUpdate}s it sends to its listeners, which are only
+   * as large as each change if the object has an {@link IncrementalDisplayer}.
+   *
+   * @param obj an Object to display
+   * @return a DisplayHandle for updates to the object's output
+   * @see Registration#displayIncremental(Object, String)
+   */
+  public static <T> DisplayHandle displayIncremental(T obj) {
+    return registration().displayIncremental(obj, null);
+  }
+
+  /**
+   * Converts an object to displayable representations on the executor from
+   * {@link Registration#getExecutor()}.
+   * <p>
+   * Cancelling the returned future interrupts the display call.
+   *
+   * @param obj an Object to display
+   * @return a future for the representations of the object, by MIME type
+   */
+  public static <T> CompletableFuture<Map<String, String>> displayAsync(T obj) {
+    return displayAsync(obj, 0, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Converts an object to displayable representations on the executor from
+   * {@link Registration#getExecutor()}, with a timeout.
+   * <p>
+   * If the display call does not finish within the timeout, the returned future
+   * is completed with a placeholder {@code text/plain} representation that
+   * names the object's class, and the display call is interrupted. Cancelling
+   * the returned future also interrupts the display call. Lazy representations
+   * are computed before the future completes, so the timeout covers rendering.
+   *
+   * @param obj an Object to display
+   * @param timeout the maximum time to wait, or 0 to wait indefinitely
+   * @param unit the unit of timeout
+   * @return a future for the representations of the object, by MIME type
+   */
+  public static <T> CompletableFuture<Map<String, String>> displayAsync(
+      final T obj, long timeout, TimeUnit unit) {
+    final Registration registration = registration();
+    return AsyncDisplay.submit(obj, new Supplier<Map<String, String>>() {
+      @Override
+      public Map<String, String> get() {
+        return registration.display(obj);
+      }
+    }, registration.getExecutor(), unit.toNanos(timeout));
+  }
+
+  /**
+   * Displays a page of rows from an object that is displayed as a table.
+   * <p>
+   * If the object's displayer is a {@link TableDisplayer}, only the requested
+   * rows are read and rendered. Other objects are not paged: they are displayed
+   * in full at offset 0, and have no representations at other offsets.
+   *
+   * @param obj an Object to display
+   * @param offset the index of the first row to show
+   * @param limit the maximum number of rows to show
+   * @return a Map of representations of the page, by MIME type.
+   * @throws IllegalArgumentException if offset or limit is negative
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> Map<String, String> displayPage(T obj, long offset, int limit) {
+    TableDisplayer.checkPage(offset, limit);
     Displayer<? super T> displayer = registration().find((Class<T>) obj.getClass());
-    if (displayer != null) {
-      return displayer.display(obj);
+    if (displayer instanceof ElementTypeDispatcher) {
+      displayer = ((ElementTypeDispatcher) displayer).select(obj);
+    }
+    if (displayer instanceof TableDisplayer) {
+      return ((TableDisplayer<? super T>) displayer).displayPage(obj, offset, limit);
+    } else if (offset == 0) {
+      return display(obj);
     } else {
       return Collections.emptyMap();
     }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.util.Map;
+
+/**
+ * Renders the elements of a container as text or HTML for built-in displayers,
+ * using each element's registered displayer and the current
+ * {@link RenderContext}.
+ * <p>
+ * Elements that use the default displayer are appended with
+ * {@link Object#toString()}, without creating a display Map per element.
+ */
+class ElementRenderer {
+  private final Registration registration;
+  private final DisplayLimits limits;
+  private final RenderContext context;
+
+  // one-entry cache for whether an element class uses the default displayer
+  private Class<?> lastClass = null;
+  private boolean lastIsDefault = false;
+
+  ElementRenderer(Registration registration) {
+    this.registration = registration;
+    this.limits = registration.getLimits();
+    this.context = RenderContext.current();
+  }
+
+  DisplayLimits getLimits() {
+    return limits;
+  }
+
+  RenderContext getContext() {
+    return context;
+  }
+
+  /**
+   * Returns whether another element can be rendered, charging it against the
+   * work budget.
+   *
+   * @param sb the output so far
+   * @return true if the element is within the character limit and work budget
+   */
+  boolean next(StringBuilder sb) {
+    return sb.length() < limits.getMaxChars() && context.charge(1);
+  }
+
+  /**
+   * Appends an element's text representation, truncated to the character limit.
+   *
+   * @param sb a StringBuilder
+   * @param elem an element, or null
+   */
+  void appendText(StringBuilder sb, Object elem) {
+    if (elem == null) {
+      sb.append("null");
+    } else if (context.isRendering(elem)) {
+      sb.append(context.getMarker(elem));
+    } else if (usesToString(elem)) {
+      sb.append(elem.toString());
+    } else {
+      String text = registration.display(elem).get(MIMETypes.TEXT);
+      sb.append(text != null ? text : elem.toString());
+    }
+
+    if (sb.length() > limits.getMaxChars()) {
+      sb.setLength(limits.getMaxChars());
+      sb.append("...");
+    }
+  }
+
+  /**
+   * Appends an element's HTML representation, or its escaped text if it has none, truncated to
+   * the character limit.
+   * <p>
+   * HTML that does not fit cannot be cut without breaking its tags, so the element's text is
+   * escaped and truncated instead.
+   *
+   * @param sb a StringBuilder
+   * @param elem an element, or null
+   */
+  void appendHtml(StringBuilder sb, Object elem) {
+    int start = sb.length();
+    if (elem == null) {
+      sb.append("null");
+    } else if (context.isRendering(elem)) {
+      sb.append(context.getMarker(elem));
+    } else if (usesToString(elem)) {
+      HtmlWriter.escape(sb, elem.toString());
+    } else {
+      Map<String, String> result = registration.display(elem);
+      String html = result.get(MIMETypes.HTML);
+      if (html != null && start + html.length() <= limits.getMaxChars()) {
+        sb.append(html);
+        return;
+      }
+      String text = result.get(MIMETypes.TEXT);
+      HtmlWriter.escape(sb, text != null ? text : elem.toString());
+    }
+
+    if (sb.length() > limits.getMaxChars()) {
+      int end = Math.max(start, limits.getMaxChars());
+      // do not cut an entity, like &amp;, or a surrogate pair in half
+      int entity = sb.lastIndexOf("&", end - 1);
+      if (entity >= start && sb.indexOf(";", entity) >= end) {
+        end = entity;
+      } else if (end > start && Character.isHighSurrogate(sb.charAt(end - 1))) {
+        end -= 1;
+      }
+      sb.setLength(end);
+      sb.append("...");
+    }
+  }
+
+  private boolean usesToString(Object elem) {
+    Class<?> elemClass = elem.getClass();
+    if (elemClass != lastClass) {
+      this.lastClass = elemClass;
+      // arrays use the default displayer but are not shown with toString
+      this.lastIsDefault = !elemClass.isArray() &&
+          registration.find(elemClass) instanceof ToStringDisplayer;
+    }
+    return lastIsDefault;
+  }
+}
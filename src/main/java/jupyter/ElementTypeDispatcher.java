@@ -0,0 +1,276 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Chooses between displayers registered for parameterized types, like {@code List<Double>} and
+ * {@code List<String>}, by checking the classes of a sample of a collection's elements or a map's
+ * keys and values.
+ * <p>
+ * At most {@link #SAMPLE_SIZE} elements are checked. When all of the sampled elements have the
+ * same class, and all of the sampled values do for a map, the choice is cached by those classes,
+ * so later objects with the same element classes only need one lookup. Otherwise, each candidate
+ * is checked against the sampled elements. Objects with no sampled elements, or that do not match
+ * any candidate, use the displayer registered for their class.
+ * <p>
+ * The registry creates one dispatcher per displayed class, with the candidates registered for that
+ * class and its ancestors in search order.
+ */
+class ElementTypeDispatcher extends Displayer<Object> {
+  static final int SAMPLE_SIZE = 8;
+
+  // a marker for sampled elements with more than one class
+  private static final Class<?> MIXED = Void.class;
+
+  private final Candidate[] candidates;
+  private final Displayer<Object> fallback;
+  private final ClassValue<ConcurrentMap<Class<?>, Displayer<Object>>> decisions =
+      new ClassValue<ConcurrentMap<Class<?>, Displayer<Object>>>() {
+        @Override
+        protected ConcurrentMap<Class<?>, Displayer<Object>> computeValue(Class<?> type) {
+          return new ConcurrentHashMap<>();
+        }
+      };
+
+  @SuppressWarnings("unchecked")
+  ElementTypeDispatcher(List<Candidate> candidates, Displayer<?> fallback) {
+    this.candidates = candidates.toArray(new Candidate[0]);
+    this.fallback = (Displayer<Object>) fallback;
+  }
+
+  /**
+   * Returns the displayer to use for an object.
+   *
+   * @param obj an object to display
+   * @return the first candidate that matches obj's elements, or the fallback displayer
+   */
+  Displayer<Object> select(Object obj) {
+    Class<?> elementClass;
+    Class<?> valueClass;
+    if (obj instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) obj;
+      elementClass = commonClass(map.keySet());
+      valueClass = commonClass(map.values());
+    } else if (obj instanceof Collection) {
+      elementClass = commonClass((Collection<?>) obj);
+      valueClass = Object.class;
+    } else {
+      return fallback;
+    }
+
+    if (elementClass == null || valueClass == null) {
+      return fallback;
+    } else if (elementClass == MIXED || valueClass == MIXED) {
+      for (Candidate candidate : candidates) {
+        if (candidate.matchesSample(obj)) {
+          return candidate.displayer;
+        }
+      }
+      return fallback;
+    }
+
+    ConcurrentMap<Class<?>, Displayer<Object>> byValueClass = decisions.get(elementClass);
+    Displayer<Object> decision = byValueClass.get(valueClass);
+    if (decision == null) {
+      decision = fallback;
+      for (Candidate candidate : candidates) {
+        if (candidate.matches(elementClass, valueClass)) {
+          decision = candidate.displayer;
+          break;
+        }
+      }
+      byValueClass.putIfAbsent(valueClass, decision);
+    }
+    return decision;
+  }
+
+  @Override
+  public Map<String, String> display(Object obj) {
+    return select(obj).display(obj);
+  }
+
+  @Override
+  public void displayTo(Object obj, SinkFactory sinks) throws IOException {
+    select(obj).displayTo(obj, sinks);
+  }
+
+  @Override
+  public double getCost(String mimeType) {
+    return fallback != null ? fallback.getCost(mimeType) : super.getCost(mimeType);
+  }
+
+  /**
+   * Returns the class of the sampled non-null elements, {@link #MIXED} if they have more than one
+   * class, or null if there are none.
+   */
+  private static Class<?> commonClass(Collection<?> elements) {
+    Class<?> common = null;
+    if (elements instanceof List && elements instanceof RandomAccess) {
+      List<?> list = (List<?>) elements;
+      int size = list.size();
+      int count = Math.min(size, SAMPLE_SIZE);
+      for (int i = 0; i < count; i += 1) {
+        common = merge(common, list.get(sampleIndex(i, count, size)));
+      }
+    } else {
+      Iterator<?> iter = elements.iterator();
+      for (int i = 0; i < SAMPLE_SIZE && iter.hasNext(); i += 1) {
+        common = merge(common, iter.next());
+      }
+    }
+    return common;
+  }
+
+  /**
+   * Returns the index of the i-th of count samples from a random access list, spread across the
+   * list and including both ends.
+   */
+  private static int sampleIndex(int i, int count, int size) {
+    return count > 1 ? (int) ((long) i * (size - 1) / (count - 1)) : 0;
+  }
+
+  private static Class<?> merge(Class<?> common, Object element) {
+    if (element == null) {
+      return common;
+    } else if (common == null) {
+      return element.getClass();
+    } else if (common != element.getClass()) {
+      return MIXED;
+    }
+    return common;
+  }
+
+  /**
+   * A displayer registered for a parameterized Collection or Map type.
+   */
+  static class Candidate {
+    private final Type type;
+    private final Class<?> elementBound;
+    private final Class<?> valueBound;
+    private final Displayer<Object> displayer;
+
+    @SuppressWarnings("unchecked")
+    private Candidate(Type type, Class<?> elementBound, Class<?> valueBound,
+                      Displayer<?> displayer) {
+      this.type = type;
+      this.elementBound = elementBound;
+      this.valueBound = valueBound;
+      this.displayer = (Displayer<Object>) displayer;
+    }
+
+    /**
+     * Creates a candidate for a parameterized type.
+     *
+     * @param type a parameterized Collection or Map type
+     * @param displayer a Displayer for objects of the type
+     * @return a Candidate
+     * @throws IllegalArgumentException if type is not a parameterized Collection or Map
+     */
+    static Candidate of(Type type, Displayer<?> displayer) {
+      if (type instanceof ParameterizedType) {
+        ParameterizedType parameterized = (ParameterizedType) type;
+        Class<?> rawType = (Class<?>) parameterized.getRawType();
+        Type[] args = parameterized.getActualTypeArguments();
+        if (Collection.class.isAssignableFrom(rawType) && args.length == 1) {
+          return new Candidate(type, bound(args[0]), Object.class, displayer);
+        } else if (Map.class.isAssignableFrom(rawType) && args.length == 2) {
+          return new Candidate(type, bound(args[0]), bound(args[1]), displayer);
+        }
+      }
+      throw new IllegalArgumentException("Invalid type: " + type.getTypeName() +
+          " (must be a parameterized Collection or Map)");
+    }
+
+    Type getType() {
+      return type;
+    }
+
+    Class<?> getRawType() {
+      return (Class<?>) ((ParameterizedType) type).getRawType();
+    }
+
+    Displayer<?> getDisplayer() {
+      return displayer;
+    }
+
+    private boolean matches(Class<?> elementClass, Class<?> valueClass) {
+      return elementBound.isAssignableFrom(elementClass) && valueBound.isAssignableFrom(valueClass);
+    }
+
+    private boolean matchesSample(Object obj) {
+      if (obj instanceof Map) {
+        Map<?, ?> map = (Map<?, ?>) obj;
+        return allInstances(map.keySet(), elementBound) && allInstances(map.values(), valueBound);
+      }
+      return allInstances((Collection<?>) obj, elementBound);
+    }
+
+    private static boolean allInstances(Collection<?> elements, Class<?> bound) {
+      if (elements instanceof List && elements instanceof RandomAccess) {
+        List<?> list = (List<?>) elements;
+        int size = list.size();
+        int count = Math.min(size, SAMPLE_SIZE);
+        for (int i = 0; i < count; i += 1) {
+          Object element = list.get(sampleIndex(i, count, size));
+          if (element != null && !bound.isInstance(element)) {
+            return false;
+          }
+        }
+      } else {
+        Iterator<?> iter = elements.iterator();
+        for (int i = 0; i < SAMPLE_SIZE && iter.hasNext(); i += 1) {
+          Object element = iter.next();
+          if (element != null && !bound.isInstance(element)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    private static Class<?> bound(Type type) {
+      if (type instanceof Class) {
+        return (Class<?>) type;
+      } else if (type instanceof ParameterizedType) {
+        return bound(((ParameterizedType) type).getRawType());
+      } else if (type instanceof WildcardType) {
+        return bound(((WildcardType) type).getUpperBounds()[0]);
+      } else if (type instanceof TypeVariable) {
+        return bound(((TypeVariable<?>) type).getBounds()[0]);
+      } else if (type instanceof GenericArrayType) {
+        Class<?> component = bound(((GenericArrayType) type).getGenericComponentType());
+        return Array.newInstance(component, 0).getClass();
+      }
+      return Object.class;
+    }
+  }
+}
@@ -0,0 +1,423 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Writes HTML for {@code text/html} representations directly to a buffer or stream.
+ * <p>
+ * Text is escaped with a precomputed table, and runs of characters that do not need escaping are
+ * appended in bulk. Tables and lists stop writing rows after a configurable number, and write a
+ * single ellipsis row in place of the rows that were skipped, so displayers can stream a large
+ * source without checking its size first. For example:
+ * <pre>
+ *   StringBuilder sb = new StringBuilder();
+ *   HtmlWriter html = new HtmlWriter(sb, 100);
+ *   html.startTable().header("name", "age");
+ *   for (Person person : people) {
+ *     if (html.startRow()) {
+ *       html.cell(person.getName()).cell(person.getAge()).endRow();
+ *     }
+ *   }
+ *   html.endTable();
+ * </pre>
+ * <p>
+ * Tables and lists cannot be nested in one writer. To write nested HTML, like a list in a table
+ * cell, use another writer and pass its output to {@link #rawCell(CharSequence)}.
+ * <p>
+ * Errors from the underlying {@link Appendable} are thrown as {@link UncheckedIOException}. Like
+ * {@link StringBuilder}, this class is not thread-safe.
+ */
+public final class HtmlWriter {
+  private static final String[] ESCAPES = new String[128];
+
+  static {
+    ESCAPES['<'] = "&lt;";
+    ESCAPES['>'] = "&gt;";
+    ESCAPES['&'] = "&amp;";
+    ESCAPES['"'] = "&quot;";
+    ESCAPES['\''] = "&#39;";
+  }
+
+  private final Appendable out;
+  private final int maxRows;
+  private boolean hasHeader = false;
+  private int rows = 0;
+  private long skippedRows = 0;
+  private boolean skippingRow = false;
+
+  /**
+   * Creates a writer with no row limit.
+   *
+   * @param out an Appendable that receives the HTML
+   */
+  public HtmlWriter(Appendable out) {
+    this(out, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates a writer that writes at most maxRows rows in each table or list.
+   *
+   * @param out an Appendable that receives the HTML
+   * @param maxRows the number of rows or items to write before the rest are skipped
+   */
+  public HtmlWriter(Appendable out, int maxRows) {
+    if (maxRows < 1) {
+      throw new IllegalArgumentException("Invalid maxRows: " + maxRows + " (must be positive)");
+    }
+    this.out = out;
+    this.maxRows = maxRows;
+  }
+
+  /**
+   * Escapes characters that are special in HTML.
+   *
+   * @param text text to escape, or null
+   * @return the escaped text, or "null"
+   */
+  public static String escape(CharSequence text) {
+    if (text == null) {
+      return "null";
+    }
+    int first = firstEscaped(text);
+    if (first < 0) {
+      return text.toString();
+    }
+    StringBuilder sb = new StringBuilder(text.length() + 16);
+    sb.append(text, 0, first);
+    appendEscaped(sb, text, first);
+    return sb.toString();
+  }
+
+  /**
+   * Appends text to a buffer, escaping characters that are special in HTML.
+   *
+   * @param sb a StringBuilder
+   * @param text text to escape, or null
+   * @return the StringBuilder
+   */
+  public static StringBuilder escape(StringBuilder sb, CharSequence text) {
+    if (text == null) {
+      return sb.append("null");
+    }
+    appendEscaped(sb, text, 0);
+    return sb;
+  }
+
+  private static int firstEscaped(CharSequence text) {
+    for (int i = 0; i < text.length(); i += 1) {
+      char ch = text.charAt(i);
+      if (ch < 128 && ESCAPES[ch] != null) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static void appendEscaped(StringBuilder sb, CharSequence text, int start) {
+    int length = text.length();
+    int runStart = start;
+    for (int i = start; i < length; i += 1) {
+      char ch = text.charAt(i);
+      if (ch < 128 && ESCAPES[ch] != null) {
+        sb.append(text, runStart, i).append(ESCAPES[ch]);
+        runStart = i + 1;
+      }
+    }
+    sb.append(text, runStart, length);
+  }
+
+  private static void appendEscaped(Appendable out, CharSequence text) throws IOException {
+    int length = text.length();
+    int runStart = 0;
+    for (int i = 0; i < length; i += 1) {
+      char ch = text.charAt(i);
+      if (ch < 128 && ESCAPES[ch] != null) {
+        out.append(text, runStart, i).append(ESCAPES[ch]);
+        runStart = i + 1;
+      }
+    }
+    out.append(text, runStart, length);
+  }
+
+  /**
+   * Writes a value as escaped text.
+   *
+   * @param value a value, written with {@link String#valueOf(Object)}
+   * @return this for method chaining
+   */
+  public HtmlWriter text(Object value) {
+    try {
+      CharSequence text = value instanceof CharSequence ?
+          (CharSequence) value : String.valueOf(value);
+      if (out instanceof StringBuilder) {
+        appendEscaped((StringBuilder) out, text, 0);
+      } else {
+        appendEscaped(out, text);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return this;
+  }
+
+  /**
+   * Writes HTML without escaping it.
+   *
+   * @param html HTML to write
+   * @return this for method chaining
+   */
+  public HtmlWriter raw(CharSequence html) {
+    try {
+      out.append(html);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return this;
+  }
+
+  /**
+   * Writes an element that contains escaped text, like {@code <p>text</p>}.
+   *
+   * @param tag an HTML tag name
+   * @param value the element's text
+   * @return this for method chaining
+   */
+  public HtmlWriter element(String tag, Object value) {
+    return raw("<").raw(tag).raw(">").text(value).raw("</").raw(tag).raw(">");
+  }
+
+  /**
+   * Writes a block of preformatted code.
+   *
+   * @param code the code, which is escaped
+   * @return this for method chaining
+   */
+  public HtmlWriter code(CharSequence code) {
+    return raw("<pre><code>").text(code).raw("</code></pre>");
+  }
+
+  /**
+   * Writes a block of preformatted code with a language class for syntax highlighters.
+   *
+   * @param code the code, which is escaped
+   * @param language a language name, like {@code java}
+   * @return this for method chaining
+   */
+  public HtmlWriter code(CharSequence code, String language) {
+    return raw("<pre><code class=\"language-").text(language).raw("\">")
+        .text(code).raw("</code></pre>");
+  }
+
+  /**
+   * Starts a table.
+   *
+   * @return this for method chaining
+   */
+  public HtmlWriter startTable() {
+    startRows();
+    this.hasHeader = false;
+    return raw("<table>");
+  }
+
+  /**
+   * Writes a table's header row. Rows that follow are written in the table's body.
+   *
+   * @param names column names
+   * @return this for method chaining
+   */
+  public HtmlWriter header(Iterable<?> names) {
+    raw("<thead><tr>");
+    for (Object name : names) {
+      raw("<th>").text(name).raw("</th>");
+    }
+    this.hasHeader = true;
+    return raw("</tr></thead><tbody>");
+  }
+
+  /**
+   * Writes a table's header row. Rows that follow are written in the table's body.
+   *
+   * @param names column names
+   * @return this for method chaining
+   */
+  public HtmlWriter header(String... names) {
+    return header(Arrays.asList(names));
+  }
+
+  /**
+   * Starts a table row, unless the row limit has been reached.
+   * <p>
+   * If the row is skipped, cells are ignored until {@link #endRow()}.
+   *
+   * @return true if the row is written, false if it is skipped
+   */
+  public boolean startRow() {
+    if (!startItem()) {
+      return false;
+    }
+    raw("<tr>");
+    return true;
+  }
+
+  /**
+   * Writes a cell with escaped text.
+   *
+   * @param value the cell's value
+   * @return this for method chaining
+   */
+  public HtmlWriter cell(Object value) {
+    return skippingRow ? this : raw("<td>").text(value).raw("</td>");
+  }
+
+  /**
+   * Writes a header cell with escaped text, like a row label.
+   *
+   * @param value the cell's value
+   * @return this for method chaining
+   */
+  public HtmlWriter headerCell(Object value) {
+    return skippingRow ? this : raw("<th>").text(value).raw("</th>");
+  }
+
+  /**
+   * Writes a cell that contains HTML.
+   *
+   * @param html the cell's HTML, which is not escaped
+   * @return this for method chaining
+   */
+  public HtmlWriter rawCell(CharSequence html) {
+    return skippingRow ? this : raw("<td>").raw(html).raw("</td>");
+  }
+
+  /**
+   * Ends a table row.
+   *
+   * @return this for method chaining
+   */
+  public HtmlWriter endRow() {
+    if (skippingRow) {
+      this.skippingRow = false;
+      return this;
+    }
+    return raw("</tr>");
+  }
+
+  /**
+   * Ends a table. If rows were skipped, a row with an ellipsis is written in their place.
+   *
+   * @return this for method chaining
+   */
+  public HtmlWriter endTable() {
+    if (skippedRows > 0) {
+      raw("<tr><td>&vellip;</td></tr>");
+    }
+    if (hasHeader) {
+      raw("</tbody>");
+    }
+    return raw("</table>");
+  }
+
+  /**
+   * Starts an ordered or unordered list.
+   *
+   * @param ordered whether to start an ordered list
+   * @return this for method chaining
+   */
+  public HtmlWriter startList(boolean ordered) {
+    startRows();
+    return raw(ordered ? "<ol>" : "<ul>");
+  }
+
+  /**
+   * Writes a list item with escaped text, unless the row limit has been reached.
+   *
+   * @param value the item's value
+   * @return true if the item is written, false if it is skipped
+   */
+  public boolean item(Object value) {
+    if (!startItem()) {
+      return false;
+    }
+    raw("<li>").text(value).raw("</li>");
+    return true;
+  }
+
+  /**
+   * Writes a list item that contains HTML, unless the row limit has been reached.
+   *
+   * @param html the item's HTML, which is not escaped
+   * @return true if the item is written, false if it is skipped
+   */
+  public boolean rawItem(CharSequence html) {
+    if (!startItem()) {
+      return false;
+    }
+    raw("<li>").raw(html).raw("</li>");
+    return true;
+  }
+
+  /**
+   * Ends a list. If items were skipped, an item with an ellipsis is written in their place.
+   *
+   * @param ordered whether the list is ordered
+   * @return this for method chaining
+   */
+  public HtmlWriter endList(boolean ordered) {
+    if (skippedRows > 0) {
+      raw("<li>&hellip;</li>");
+    }
+    return raw(ordered ? "</ol>" : "</ul>");
+  }
+
+  /**
+   * Returns whether the current table or list has reached the row limit.
+   * <p>
+   * Displayers can use this to stop reading rows that would be skipped.
+   *
+   * @return true if later rows will be skipped
+   */
+  public boolean isFull() {
+    return rows >= maxRows;
+  }
+
+  /**
+   * @return the number of rows or items skipped in the current or last table or list
+   */
+  public long getSkippedRows() {
+    return skippedRows;
+  }
+
+  private void startRows() {
+    this.rows = 0;
+    this.skippedRows = 0;
+    this.skippingRow = false;
+  }
+
+  private boolean startItem() {
+    if (rows >= maxRows) {
+      this.skippedRows += 1;
+      this.skippingRow = true;
+      return false;
+    }
+    this.rows += 1;
+    return true;
+  }
+}
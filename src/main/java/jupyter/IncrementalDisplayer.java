@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.util.Map;
+
+/**
+ * A displayer for objects that change after they are displayed, like progress bars, logs or
+ * streaming query results.
+ * <p>
+ * When an object is displayed with {@link Registration#displayIncremental(Object, String)}, the
+ * registry calls {@link #open(Object, DisplayHandle)} for the initial representations. Later
+ * changes are sent through the {@link DisplayHandle} as {@link DisplayUpdate}s, either when the
+ * kernel calls {@link DisplayHandle#refresh()}, which calls {@link #update(Object, DisplayHandle)},
+ * or at any time by a displayer that keeps the handle.
+ * <p>
+ * Updates should only describe what changed since the last update, so that their size is
+ * proportional to the change rather than to the object. Displayers that are used for several
+ * objects can keep per-output state, like the number of rows sent, with
+ * {@link DisplayHandle#setAttachment(Object)}.
+ * <p>
+ * {@link #display(Object)} is still used when the object is displayed normally.
+ *
+ * @param <T> the class or interface of objects the instance can convert.
+ */
+public abstract class IncrementalDisplayer<T> extends Displayer<T> {
+  /**
+   * Called when an object is displayed with a handle for later updates.
+   * <p>
+   * By default, this returns {@link #display(Object)}.
+   *
+   * @param obj an object instance to display
+   * @param handle a handle to send updates for the output
+   * @return a Map of the initial representations of this object by MIME type
+   */
+  public Map<String, String> open(T obj, DisplayHandle handle) {
+    return display(obj);
+  }
+
+  /**
+   * Called by {@link DisplayHandle#refresh()} to send changes to the object since the last
+   * update, using {@link DisplayHandle#append(Map)} or {@link DisplayHandle#replace(String, Map)}.
+   * <p>
+   * If the object has not changed, this should not send an update.
+   *
+   * @param obj the object that was displayed
+   * @param handle the handle for the object's output
+   */
+  public abstract void update(T obj, DisplayHandle handle);
+
+  /**
+   * Called when a handle is closed and will not send more updates.
+   *
+   * @param obj the object that was displayed
+   * @param handle the handle for the object's output
+   */
+  public void close(T obj, DisplayHandle handle) {
+  }
+}
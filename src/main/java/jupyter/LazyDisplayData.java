@@ -0,0 +1,337 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * A Map of representations by MIME type that computes each representation the
+ * first time it is requested.
+ * <p>
+ * Displayers can return this from {@link Displayer#display(Object)} to avoid
+ * computing representations that the kernel or front-end does not use. The
+ * available MIME types are known without computing any representation, so
+ * {@link #keySet()}, {@link #containsKey(Object)} and {@link #size()} are cheap.
+ * <p>
+ * Each representation is computed at most once. Replacing or removing a
+ * representation never computes it, so {@link #put(String, String)} and
+ * {@link #remove(Object)} return the previous representation only if it was
+ * already computed, and null otherwise. Like {@link java.util.HashMap}, this
+ * class is not thread-safe.
+ */
+public class LazyDisplayData extends AbstractMap<String, String> {
+  // values are either computed Strings or Suppliers that have not been called
+  private final Map<String, Object> values;
+
+  public LazyDisplayData() {
+    this.values = new LinkedHashMap<>();
+  }
+
+  private LazyDisplayData(Map<String, Object> values) {
+    this.values = values;
+  }
+
+  /**
+   * Adds a representation that is computed when it is first requested.
+   *
+   * @param mimeType a MIME type
+   * @param supplier computes the representation for the MIME type
+   * @return this for method chaining
+   */
+  public LazyDisplayData add(String mimeType, Supplier<String> supplier) {
+    values.put(mimeType, supplier);
+    return this;
+  }
+
+  /**
+   * Returns whether the representation for a MIME type has been computed.
+   *
+   * @param mimeType a MIME type
+   * @return true if the representation is available without computing it
+   */
+  public boolean isComputed(String mimeType) {
+    return values.containsKey(mimeType) && !(values.get(mimeType) instanceof Supplier);
+  }
+
+  /**
+   * Returns a LazyDisplayData with only the given MIME types.
+   * <p>
+   * Representations are not computed. If none of the given MIME types are
+   * available, this is returned unchanged so that the object can still be
+   * displayed.
+   *
+   * @param mimeTypes MIME types to keep
+   * @return a LazyDisplayData with the representations for the given MIME types
+   */
+  public LazyDisplayData restrict(String... mimeTypes) {
+    Map<String, Object> restricted = new LinkedHashMap<>();
+    for (String mimeType : mimeTypes) {
+      if (values.containsKey(mimeType)) {
+        restricted.put(mimeType, values.get(mimeType));
+      }
+    }
+    return restricted.isEmpty() ? this : new LazyDisplayData(restricted);
+  }
+
+  /**
+   * Returns a LazyDisplayData that passes each representation through a function when it is
+   * computed.
+   * <p>
+   * Representations that are already computed are passed through the function immediately.
+   *
+   * @param function called with the MIME type and representation, returns the new representation
+   * @return a LazyDisplayData with the transformed representations
+   */
+  LazyDisplayData transform(final BiFunction<String, String, String> function) {
+    Map<String, Object> transformed = new LinkedHashMap<>();
+    for (Map.Entry<String, Object> entry : values.entrySet()) {
+      final String mimeType = entry.getKey();
+      Object value = entry.getValue();
+      if (value instanceof Supplier) {
+        final Supplier<?> supplier = (Supplier<?>) value;
+        transformed.put(mimeType, new Supplier<String>() {
+          @Override
+          public String get() {
+            return function.apply(mimeType, (String) supplier.get());
+          }
+        });
+      } else {
+        transformed.put(mimeType, function.apply(mimeType, (String) value));
+      }
+    }
+    return new LazyDisplayData(transformed);
+  }
+
+  /**
+   * Returns a BinaryDisplayData with the same representations, which are computed when they are
+   * first requested and then placed by a {@link SizeGuard}, which may spill them to files.
+   * <p>
+   * Representations that are already computed are placed immediately.
+   *
+   * @param guard the SizeGuard of a display call
+   * @return a BinaryDisplayData with the guarded representations
+   */
+  BinaryDisplayData defer(SizeGuard guard) {
+    BinaryDisplayData deferred = new BinaryDisplayData();
+    for (Map.Entry<String, Object> entry : values.entrySet()) {
+      Object value = entry.getValue();
+      if (value instanceof Supplier) {
+        deferred.putDeferredText(entry.getKey(), (Supplier<?>) value, guard);
+      } else {
+        guard.place(deferred, entry.getKey(), (String) value);
+      }
+    }
+    return deferred;
+  }
+
+  /**
+   * Returns a LazyDisplayData whose representations are computed at most once, by whichever copy
+   * requests them first. Copies made with {@link #copy()} share computed representations, and
+   * can be used from different threads.
+   *
+   * @param listener called with the MIME type and representation when one is computed, or null
+   * @return a LazyDisplayData with shared representations
+   */
+  LazyDisplayData share(BiConsumer<String, String> listener) {
+    Map<String, Object> shared = new LinkedHashMap<>();
+    for (Map.Entry<String, Object> entry : values.entrySet()) {
+      Object value = entry.getValue();
+      if (value instanceof Supplier) {
+        value = new SharedSupplier(entry.getKey(), (Supplier<?>) value, listener);
+      }
+      shared.put(entry.getKey(), value);
+    }
+    return new LazyDisplayData(shared);
+  }
+
+  /**
+   * Returns a copy of this LazyDisplayData. Representations are not computed.
+   */
+  LazyDisplayData copy() {
+    return new LazyDisplayData(new LinkedHashMap<>(values));
+  }
+
+  @Override
+  public String get(Object key) {
+    Object value = values.get(key);
+    if (value instanceof Supplier) {
+      String computed = (String) ((Supplier<?>) value).get();
+      values.put((String) key, computed);
+      return computed;
+    }
+    return (String) value;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return values.containsKey(key);
+  }
+
+  /**
+   * Sets a computed representation.
+   * <p>
+   * A representation that is replaced is not computed.
+   *
+   * @param mimeType a MIME type
+   * @param value the representation
+   * @return the previous representation if it was computed, or null
+   */
+  @Override
+  public String put(String mimeType, String value) {
+    return computedOrNull(values.put(mimeType, value));
+  }
+
+  /**
+   * Removes a representation without computing it.
+   *
+   * @param key a MIME type
+   * @return the previous representation if it was computed, or null
+   */
+  @Override
+  public String remove(Object key) {
+    return computedOrNull(values.remove(key));
+  }
+
+  private static String computedOrNull(Object previous) {
+    return previous instanceof String ? (String) previous : null;
+  }
+
+  @Override
+  public int size() {
+    return values.size();
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return Collections.unmodifiableSet(values.keySet());
+  }
+
+  @Override
+  public Set<Entry<String, String>> entrySet() {
+    return new AbstractSet<Entry<String, String>>() {
+      @Override
+      public Iterator<Entry<String, String>> iterator() {
+        final Iterator<String> keys = values.keySet().iterator();
+        return new Iterator<Entry<String, String>>() {
+          @Override
+          public boolean hasNext() {
+            return keys.hasNext();
+          }
+
+          @Override
+          public Entry<String, String> next() {
+            return new LazyEntry(keys.next());
+          }
+
+          @Override
+          public void remove() {
+            keys.remove();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return values.size();
+      }
+    };
+  }
+
+  /**
+   * A supplier that computes its representation once and shares it with every copy.
+   */
+  private static class SharedSupplier implements Supplier<String> {
+    private final String mimeType;
+    private final BiConsumer<String, String> listener;
+    private Supplier<?> supplier;
+    private String value = null;
+
+    private SharedSupplier(String mimeType, Supplier<?> supplier,
+                           BiConsumer<String, String> listener) {
+      this.mimeType = mimeType;
+      this.supplier = supplier;
+      this.listener = listener;
+    }
+
+    @Override
+    public synchronized String get() {
+      if (supplier != null) {
+        this.value = (String) supplier.get();
+        this.supplier = null;
+        if (listener != null) {
+          listener.accept(mimeType, value);
+        }
+      }
+      return value;
+    }
+  }
+
+  /**
+   * An entry that computes its value when it is requested.
+   */
+  private class LazyEntry implements Entry<String, String> {
+    private final String mimeType;
+
+    private LazyEntry(String mimeType) {
+      this.mimeType = mimeType;
+    }
+
+    @Override
+    public String getKey() {
+      return mimeType;
+    }
+
+    @Override
+    public String getValue() {
+      return get(mimeType);
+    }
+
+    @Override
+    public String setValue(String value) {
+      return put(mimeType, value);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Entry)) {
+        return false;
+      }
+      Entry<?, ?> entry = (Entry<?, ?>) other;
+      return mimeType.equals(entry.getKey()) && Objects.equals(getValue(), entry.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return mimeType.hashCode() ^ Objects.hashCode(getValue());
+    }
+
+    @Override
+    public String toString() {
+      return mimeType + "=" + getValue();
+    }
+  }
+}
@@ -19,4 +19,12 @@ package jupyter;
 public class MIMETypes {
   public static final String TEXT = "text/plain";
   public static final String HTML = "text/html";
+
+  // binary types, which can be returned as bytes using BinaryDisplayData
+  public static final String PNG = "image/png";
+  public static final String JPEG = "image/jpeg";
+  public static final String GIF = "image/gif";
+  public static final String PDF = "application/pdf";
+  public static final String ARROW_STREAM = "application/vnd.apache.arrow.stream";
+  public static final String OCTET_STREAM = "application/octet-stream";
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Displays maps as text and HTML tables.
+ * <p>
+ * Text matches {@link java.util.AbstractMap#toString()} for maps within the
+ * {@link DisplayLimits}, except that keys and values are shown using their
+ * registered displayers. Maps with more than
+ * {@link DisplayLimits#getMaxElements()} entries are summarized by showing the
+ * first {@code 2 * edgeItems} entries, followed by the total size. Only the
+ * shown entries are visited.
+ */
+class MapDisplayer extends Displayer<Map<?, ?>> {
+
+  private static final MapDisplayer INSTANCE = new MapDisplayer();
+  private static final Set<String> MIME_TYPES = Collections.unmodifiableSet(
+      new HashSet<>(Arrays.asList(MIMETypes.TEXT, MIMETypes.HTML)));
+
+  public static Displayer<Map<?, ?>> get() {
+    return INSTANCE;
+  }
+
+  @Override
+  public Set<String> getProducedMimeTypes() {
+    return MIME_TYPES;
+  }
+
+  @Override
+  public Map<String, String> display(final Map<?, ?> map) {
+    final Registration registration = Displayers.registration();
+    return new LazyDisplayData()
+        .add(MIMETypes.TEXT, new Supplier<String>() {
+          @Override
+          public String get() {
+            return registration.render(new Supplier<String>() {
+              @Override
+              public String get() {
+                return toText(map, new ElementRenderer(registration));
+              }
+            });
+          }
+        })
+        .add(MIMETypes.HTML, new Supplier<String>() {
+          @Override
+          public String get() {
+            return registration.render(new Supplier<String>() {
+              @Override
+              public String get() {
+                return toHtml(map, new ElementRenderer(registration));
+              }
+            });
+          }
+        });
+  }
+
+  private static String toText(Map<?, ?> map, ElementRenderer renderer) {
+    RenderContext context = renderer.getContext();
+    if (!context.enter(map)) {
+      return context.getMarker(map);
+    }
+
+    try {
+      Object[] entries = shownEntries(map, renderer.getLimits());
+      StringBuilder sb = new StringBuilder();
+      sb.append('{');
+      boolean stopped = false;
+      for (int i = 0; i < entries.length; i += 1) {
+        if (i > 0) {
+          sb.append(", ");
+        }
+        stopped = !renderer.next(sb);
+        if (stopped) {
+          sb.append("...");
+          break;
+        }
+        Map.Entry<?, ?> entry = (Map.Entry<?, ?>) entries[i];
+        renderer.appendText(sb, entry.getKey());
+        sb.append('=');
+        renderer.appendText(sb, entry.getValue());
+      }
+      boolean summarized = entries.length < map.size();
+      if (!stopped && summarized) {
+        sb.append(", ...");
+      }
+      sb.append('}');
+      if (summarized) {
+        sb.append(" (").append(map.size()).append(" entries)");
+      }
+      return sb.toString();
+    } finally {
+      context.exit(map);
+    }
+  }
+
+  private static String toHtml(Map<?, ?> map, ElementRenderer renderer) {
+    RenderContext context = renderer.getContext();
+    if (!context.enter(map)) {
+      return context.getMarker(map);
+    }
+
+    try {
+      Object[] entries = shownEntries(map, renderer.getLimits());
+      StringBuilder sb = new StringBuilder();
+      sb.append("<table>");
+      boolean stopped = false;
+      for (Object shown : entries) {
+        stopped = !renderer.next(sb);
+        if (stopped) {
+          break;
+        }
+        Map.Entry<?, ?> entry = (Map.Entry<?, ?>) shown;
+        sb.append("<tr><th>");
+        renderer.appendHtml(sb, entry.getKey());
+        sb.append("</th><td>");
+        renderer.appendHtml(sb, entry.getValue());
+        sb.append("</td></tr>");
+      }
+      boolean summarized = entries.length < map.size();
+      if (stopped || summarized) {
+        sb.append("<tr><th>&vellip;</th><td>&vellip;</td></tr>");
+      }
+      sb.append("</table>");
+      if (summarized) {
+        sb.append("<p>").append(map.size()).append(" entries</p>");
+      }
+      return sb.toString();
+    } finally {
+      context.exit(map);
+    }
+  }
+
+  private static Object[] shownEntries(Map<?, ?> map, DisplayLimits limits) {
+    if (!limits.shouldSummarize(map.size())) {
+      return map.entrySet().toArray();
+    }
+
+    Object[] entries = new Object[2 * limits.getEdgeItems()];
+    Iterator<? extends Map.Entry<?, ?>> iter = map.entrySet().iterator();
+    int count = 0;
+    while (count < entries.length && iter.hasNext()) {
+      // copy entries, which some iterators reuse
+      entries[count] = new AbstractMap.SimpleImmutableEntry<>(iter.next());
+      count += 1;
+    }
+    return count < entries.length ? Arrays.copyOf(entries, count) : entries;
+  }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Displays rectangular two-dimensional primitive arrays, like {@code double[][]},
+ * as an aligned text grid and an HTML table.
+ * <p>
+ * Matrices with more elements than {@link DisplayLimits#getMaxElements()} are
+ * summarized by showing {@link DisplayLimits#getEdgeItems()} rows and columns
+ * at each edge, so the time and memory used depend only on the limits. Ragged
+ * arrays are displayed like any other nested array.
+ * <p>
+ * A matrix that is rendered inside another value, such as an element of an
+ * array or collection, is shown on one line without alignment.
+ */
+class MatrixDisplayer extends Displayer<Object[]> {
+
+  private static final MatrixDisplayer INSTANCE = new MatrixDisplayer();
+  private static final Set<String> MIME_TYPES = Collections.unmodifiableSet(
+      new HashSet<>(Arrays.asList(MIMETypes.TEXT, MIMETypes.HTML)));
+
+  /**
+   * The matrix classes that are displayed by default.
+   */
+  static final Class<?>[] MATRIX_CLASSES = new Class<?>[] {
+      boolean[][].class, byte[][].class, short[][].class, int[][].class,
+      long[][].class, float[][].class, double[][].class, char[][].class
+  };
+
+  public static Displayer<Object[]> get() {
+    return INSTANCE;
+  }
+
+  @Override
+  public Set<String> getProducedMimeTypes() {
+    return MIME_TYPES;
+  }
+
+  @Override
+  public Map<String, String> display(final Object[] matrix) {
+    final Registration registration = Displayers.registration();
+    final DisplayLimits limits = registration.getLimits();
+    if (!isRectangular(matrix)) {
+      return new LazyDisplayData()
+          .add(MIMETypes.TEXT, new Supplier<String>() {
+            @Override
+            public String get() {
+              return registration.render(new Supplier<String>() {
+                @Override
+                public String get() {
+                  return ArrayFormatter.format(matrix, limits);
+                }
+              });
+            }
+          });
+    }
+
+    return new LazyDisplayData()
+        .add(MIMETypes.TEXT, new Supplier<String>() {
+          @Override
+          public String get() {
+            return registration.render(new Supplier<String>() {
+              @Override
+              public String get() {
+                boolean nested = RenderContext.current().getDepth() > 0;
+                return new Cells(matrix, limits).toText(nested);
+              }
+            });
+          }
+        })
+        .add(MIMETypes.HTML, new Supplier<String>() {
+          @Override
+          public String get() {
+            return registration.render(new Supplier<String>() {
+              @Override
+              public String get() {
+                return new Cells(matrix, limits).toHtml();
+              }
+            });
+          }
+        });
+  }
+
+  private static boolean isRectangular(Object[] matrix) {
+    if (matrix.length == 0) {
+      return true;
+    }
+    if (matrix[0] == null) {
+      return false;
+    }
+    int numCols = Array.getLength(matrix[0]);
+    for (Object row : matrix) {
+      if (row == null || Array.getLength(row) != numCols) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The formatted cells that are shown for a matrix. Rows and columns that are
+   * elided are represented by null.
+   */
+  private static class Cells {
+    private final String[][] cells;
+    private final boolean summarizeRows;
+    private final boolean summarizeCols;
+    private final int width;
+
+    private Cells(Object[] matrix, DisplayLimits limits) {
+      int numRows = matrix.length;
+      int numCols = numRows > 0 ? Array.getLength(matrix[0]) : 0;
+      // either dimension alone can be too long, even if the matrix has no elements
+      boolean summarize = limits.shouldSummarize((long) numRows * numCols) ||
+          limits.shouldSummarize(numRows) || limits.shouldSummarize(numCols);
+      int edgeItems = limits.getEdgeItems();
+      this.summarizeRows = summarize && numRows > 2 * edgeItems;
+      this.summarizeCols = summarize && numCols > 2 * edgeItems;
+
+      int[] rows = shownIndexes(numRows, summarizeRows, edgeItems);
+      int[] cols = shownIndexes(numCols, summarizeCols, edgeItems);
+      this.cells = new String[rows.length][];
+
+      int maxWidth = 0;
+      for (int r = 0; r < rows.length; r += 1) {
+        Object row = matrix[rows[r]];
+        String[] formatted = new String[cols.length];
+        for (int c = 0; c < cols.length; c += 1) {
+          formatted[c] = formatCell(row, cols[c]);
+          maxWidth = Math.max(maxWidth, formatted[c].length());
+        }
+        cells[r] = formatted;
+      }
+      this.width = maxWidth;
+    }
+
+    private static int[] shownIndexes(int length, boolean summarize, int edgeItems) {
+      if (!summarize) {
+        int[] indexes = new int[length];
+        for (int i = 0; i < length; i += 1) {
+          indexes[i] = i;
+        }
+        return indexes;
+      }
+
+      int[] indexes = new int[2 * edgeItems];
+      for (int i = 0; i < edgeItems; i += 1) {
+        indexes[i] = i;
+        indexes[edgeItems + i] = length - edgeItems + i;
+      }
+      return indexes;
+    }
+
+    private static String formatCell(Object row, int i) {
+      if (row instanceof double[]) {
+        return String.valueOf(((double[]) row)[i]);
+      } else if (row instanceof float[]) {
+        return String.valueOf(((float[]) row)[i]);
+      } else if (row instanceof long[]) {
+        return String.valueOf(((long[]) row)[i]);
+      } else if (row instanceof int[]) {
+        return String.valueOf(((int[]) row)[i]);
+      } else if (row instanceof short[]) {
+        return String.valueOf(((short[]) row)[i]);
+      } else if (row instanceof byte[]) {
+        return String.valueOf(((byte[]) row)[i]);
+      } else if (row instanceof boolean[]) {
+        return String.valueOf(((boolean[]) row)[i]);
+      } else {
+        return String.valueOf(((char[]) row)[i]);
+      }
+    }
+
+    private int estimateSize(int cellSize) {
+      int numCols = cells.length > 0 ? cells[0].length + 1 : 1;
+      return 16 + (cells.length + 1) * (numCols * cellSize + 4);
+    }
+
+    /**
+     * Formats the cells as text, with one aligned row per line, or on one line
+     * without alignment if the matrix is nested in another value.
+     */
+    private String toText(boolean singleLine) {
+      int cellWidth = singleLine ? 0 : width;
+      String separator = singleLine ? ", " : ",\n ";
+      StringBuilder sb = new StringBuilder(estimateSize(width + 2));
+      int half = cells.length / 2;
+      sb.append('[');
+      for (int r = 0; r < cells.length; r += 1) {
+        if (r > 0) {
+          sb.append(separator);
+          if (summarizeRows && r == half) {
+            sb.append("...").append(separator);
+          }
+        }
+        String[] row = cells[r];
+        int halfCols = row.length / 2;
+        sb.append('[');
+        for (int c = 0; c < row.length; c += 1) {
+          if (c > 0) {
+            sb.append(", ");
+            if (summarizeCols && c == halfCols) {
+              sb.append("..., ");
+            }
+          }
+          for (int pad = row[c].length(); pad < cellWidth; pad += 1) {
+            sb.append(' ');
+          }
+          sb.append(row[c]);
+        }
+        sb.append(']');
+      }
+      sb.append(']');
+      return sb.toString();
+    }
+
+    private String toHtml() {
+      StringBuilder sb = new StringBuilder(estimateSize(width + 9));
+      int half = cells.length / 2;
+      sb.append("<table>");
+      for (int r = 0; r < cells.length; r += 1) {
+        String[] row = cells[r];
+        if (summarizeRows && r == half) {
+          sb.append("<tr>");
+          int numCells = Math.max(1, row.length + (summarizeCols ? 1 : 0));
+          for (int c = 0; c < numCells; c += 1) {
+            sb.append("<td>&vellip;</td>");
+          }
+          sb.append("</tr>");
+        }
+        int halfCols = row.length / 2;
+        sb.append("<tr>");
+        for (int c = 0; c < row.length; c += 1) {
+          if (summarizeCols && c == halfCols) {
+            sb.append("<td>&hellip;</td>");
+          }
+          sb.append("<td>");
+          HtmlWriter.escape(sb, row[c]);
+          sb.append("</td>");
+        }
+        sb.append("</tr>");
+      }
+      sb.append("</table>");
+      return sb.toString();
+    }
+  }
+}
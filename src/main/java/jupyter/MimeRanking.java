@@ -0,0 +1,201 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A ranked list of the MIME types that a kernel or front-end accepts.
+ * <p>
+ * Hints are MIME types with an optional quality, like an HTTP Accept header:
+ * {@code text/html;q=0.9}. Types without a quality have quality 1. Types are ranked by quality,
+ * then in the order they were given. Wildcards like {@code image/*} and {@code *}{@code /*} match
+ * any type that does not have a more specific entry, and types with quality 0 are not accepted.
+ */
+final class MimeRanking {
+  private final Entry[] entries;
+  private final String[] types;
+
+  private MimeRanking(Entry[] entries) {
+    this.entries = entries;
+    List<String> accepted = new ArrayList<>();
+    for (Entry entry : entries) {
+      if (entry.quality > 0) {
+        accepted.add(entry.mimeType);
+      }
+    }
+    this.types = accepted.toArray(new String[0]);
+  }
+
+  /**
+   * Parses MIME type hints. Each hint may contain several comma-separated types.
+   *
+   * @param hints MIME types with optional {@code q} parameters
+   * @return a MimeRanking of the hinted types
+   * @throws IllegalArgumentException if a quality is not a number between 0 and 1
+   */
+  static MimeRanking parse(String... hints) {
+    List<Entry> entries = new ArrayList<>();
+    for (String hint : hints) {
+      for (String part : hint.split(",")) {
+        String[] params = part.split(";");
+        String mimeType = params[0].trim();
+        if (mimeType.isEmpty()) {
+          continue;
+        }
+        double quality = 1.0;
+        for (int i = 1; i < params.length; i += 1) {
+          String param = params[i].trim();
+          if (param.startsWith("q=")) {
+            quality = parseQuality(param.substring(2), part);
+          }
+        }
+        entries.add(new Entry(mimeType, quality));
+      }
+    }
+
+    Entry[] ranked = entries.toArray(new Entry[0]);
+    // stable, so types with the same quality keep their order
+    Arrays.sort(ranked, new Comparator<Entry>() {
+      @Override
+      public int compare(Entry left, Entry right) {
+        return Double.compare(right.quality, left.quality);
+      }
+    });
+    return new MimeRanking(ranked);
+  }
+
+  private static double parseQuality(String value, String hint) {
+    double quality;
+    try {
+      quality = Double.parseDouble(value.trim());
+    } catch (NumberFormatException e) {
+      quality = Double.NaN;
+    }
+    if (!(quality >= 0.0 && quality <= 1.0)) {
+      throw new IllegalArgumentException(
+          "Invalid MIME type quality: " + hint.trim() + " (must be between 0 and 1)");
+    }
+    return quality;
+  }
+
+  /**
+   * Returns the accepted MIME types without parameters, highest ranked first.
+   * <p>
+   * The returned array is shared and must not be modified.
+   */
+  String[] getTypes() {
+    return types;
+  }
+
+  /**
+   * Returns the quality of a MIME type, from its most specific matching entry.
+   *
+   * @param mimeType a MIME type
+   * @return the quality of the type, or 0 if it is not accepted
+   */
+  double quality(String mimeType) {
+    Entry match = null;
+    int matchSpecificity = -1;
+    for (Entry entry : entries) {
+      int specificity = entry.specificity(mimeType);
+      if (specificity > matchSpecificity) {
+        match = entry;
+        matchSpecificity = specificity;
+      }
+    }
+    return match != null ? match.quality : 0.0;
+  }
+
+  /**
+   * Returns the accepted MIME type with the highest quality from a set of producible types.
+   * <p>
+   * If the types are not declared, the highest ranked accepted type is returned, because the
+   * displayer may be able to produce it.
+   *
+   * @param produced MIME types that a displayer can produce, or null if they are not declared
+   * @return the best accepted MIME type, or null if none are accepted
+   */
+  String negotiate(Set<String> produced) {
+    if (produced == null) {
+      return types.length > 0 ? types[0] : null;
+    }
+    String best = null;
+    double bestQuality = 0.0;
+    for (String mimeType : produced) {
+      double quality = quality(mimeType);
+      if (quality > bestQuality) {
+        best = mimeType;
+        bestQuality = quality;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Returns the accepted MIME types from a collection, highest quality first.
+   *
+   * @param available MIME types
+   * @return the available types that are accepted
+   */
+  String[] filter(Collection<String> available) {
+    List<String> accepted = new ArrayList<>();
+    for (String mimeType : available) {
+      if (quality(mimeType) > 0) {
+        accepted.add(mimeType);
+      }
+    }
+    String[] filtered = accepted.toArray(new String[0]);
+    Arrays.sort(filtered, new Comparator<String>() {
+      @Override
+      public int compare(String left, String right) {
+        return Double.compare(quality(right), quality(left));
+      }
+    });
+    return filtered;
+  }
+
+  private static class Entry {
+    private final String mimeType;
+    private final double quality;
+
+    private Entry(String mimeType, double quality) {
+      this.mimeType = mimeType;
+      this.quality = quality;
+    }
+
+    /**
+     * Returns 2 for an exact match, 1 for a subtype wildcard, 0 for a full wildcard, or -1.
+     */
+    private int specificity(String other) {
+      if (mimeType.equalsIgnoreCase(other)) {
+        return 2;
+      } else if (mimeType.equals("*/*")) {
+        return 0;
+      } else if (mimeType.endsWith("/*")) {
+        String prefix = mimeType.substring(0, mimeType.length() - 1);
+        return other.regionMatches(true, 0, prefix, 0, prefix.length()) ? 1 : -1;
+      }
+      return -1;
+    }
+  }
+}
@@ -16,57 +16,360 @@
 
 package jupyter;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.RandomAccess;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 /**
  * Handles registration of {@link Displayer} instances.
  * <p>
  * Callers should use the singleton instance of this class, which is available
  * from {@link Displayers#registration()}.
+ * <p>
+ * Kernels that host several sessions in one JVM can create a scope for each
+ * session with {@link #newScope()}. A scope inherits displayers, providers, the
+ * default displayer, MIME type hints, limits, the executor and listeners from
+ * its parent without copying them, and changes made to a scope only affect that
+ * scope. While a scope is displaying an object, {@link Displayers#registration()}
+ * returns the scope on that thread, so nested display calls and built-in
+ * displayers use the scope's settings.
+ * <p>
+ * This class is thread-safe. Changes are published as immutable snapshots, so
+ * {@link #find(Class)} and {@link #getAll()} never block and always observe a
+ * consistent registry, even while another thread is registering displayers.
  */
 public class Registration {
 
-  static final Registration INSTANCE = new Registration();
-
-  private final Map<Class<?>, Displayer<?>> displayers = new HashMap<>();
-  private Displayer<Object> defaultDisplayer = ToStringDisplayer.get();
-  private String[] mimeTypes = null;
+  // cached in place of a null default displayer, which ClassValue cannot hold
+  private static final Displayer<Object> NO_DISPLAYER = new Displayer<Object>() {
+    public Map<String, String> display(Object obj) {
+      return Collections.emptyMap();
+    }
+  };
 
-  private static Displayer<AsDisplayData> asDisplayDataDisplayer = new Displayer<AsDisplayData>() {
-    public Map<String, String> display(AsDisplayData obj) {
-      return obj.display();
+  // the default displayer of a scope that uses its parent's default
+  private static final Displayer<Object> INHERITED = new Displayer<Object>() {
+    public Map<String, String> display(Object obj) {
+      return Collections.emptyMap();
     }
   };
 
+  private static final DisplayListener[] NO_LISTENERS = new DisplayListener[0];
+  private static final ThreadLocal<Registration> ACTIVE = new ThreadLocal<>();
+  private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+
+  static final Registration INSTANCE = new Registration();
+
+  // guards updates to state; readers use the published snapshot without locking
+  private final Object lock = new Object();
+  private final Registration parent;
+  private volatile State state;
+  private volatile DisplayLimits limits;
+  private volatile Executor executor = null;
+  private volatile DisplayListener[] listeners = NO_LISTENERS;
+
+  @SuppressWarnings("unchecked")
   private void init() {
-    add(AsDisplayData.class, asDisplayDataDisplayer);
+    add(AsDisplayData.class, new AsDisplayDataDisplayer());
+    add(Collection.class, CollectionDisplayer.get());
+    add(Map.class, MapDisplayer.get());
+    for (Class<?> matrixClass : MatrixDisplayer.MATRIX_CLASSES) {
+      add((Class<Object[]>) matrixClass, MatrixDisplayer.get());
+    }
+    loadProviders(Thread.currentThread().getContextClassLoader());
   }
 
   public Registration() {
+    this.parent = null;
+    this.state = emptyState();
+    this.limits = DisplayLimits.DEFAULT;
     init();
   }
 
+  private Registration(Registration parent) {
+    this.parent = parent;
+    this.state = emptyState();
+    this.limits = null;
+  }
+
+  private State emptyState() {
+    return new State(Collections.<Class<?>, Displayer<?>>emptyMap(),
+        Collections.<Class<?>, List<ElementTypeDispatcher.Candidate>>emptyMap(),
+        parent != null ? INHERITED : ToStringDisplayer.get(), null,
+        new Providers(Collections.<String, DisplayerProvider>emptyMap()),
+        parent != null ? parent.current() : null);
+  }
+
+  /**
+   * Creates a scope that inherits from this registration.
+   * <p>
+   * The scope shares this registration's displayers, and sees later changes to them. Displayers,
+   * providers, MIME type hints, limits and other settings that are set on the scope override this
+   * registration's for the scope only. A displayer registered in the scope for a class is used
+   * before one inherited for the same class, but an inherited displayer for a more specific class
+   * is still used first.
+   * <p>
+   * Displayers inherited from a parent receive the parent's MIME type hints. The scope's hint is
+   * available from {@code Displayers.registration().getMimeTypes()} while the scope is displaying,
+   * and is used to restrict {@link LazyDisplayData} results and to pass hints to
+   * {@link AsDisplayData} objects.
+   *
+   * @return a new Registration that inherits from this one
+   */
+  public Registration newScope() {
+    return new Registration(this);
+  }
+
+  /**
+   * Returns the registration that this scope inherits from.
+   *
+   * @return the parent Registration, or null if this is not a scope
+   */
+  public Registration getParent() {
+    return parent;
+  }
+
+  /**
+   * Returns the registration that is displaying on the current thread, or the JVM registration.
+   */
+  static Registration active() {
+    Registration active = ACTIVE.get();
+    return active != null ? active : INSTANCE;
+  }
+
+  /**
+   * Returns the current state, rebuilding it if a parent has changed since it was published.
+   */
+  private State current() {
+    State current = state;
+    if (parent != null && current.parentState != parent.current()) {
+      synchronized (lock) {
+        current = state;
+        State parentState = parent.current();
+        if (current.parentState != parentState) {
+          current = new State(current.displayers, current.typed, current.defaultDisplayer,
+              current.mimeTypes, current.providers, parentState);
+          this.state = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Makes this registration active on the current thread.
+   *
+   * @return the previously active registration, to pass to {@link #exit(Registration)}
+   */
+  private Registration enter() {
+    Registration previous = ACTIVE.get();
+    if (previous != this && (previous != null || this != INSTANCE)) {
+      ACTIVE.set(this);
+    }
+    return previous;
+  }
+
+  private void exit(Registration previous) {
+    if (previous != this && (previous != null || this != INSTANCE)) {
+      if (previous != null) {
+        ACTIVE.set(previous);
+      } else {
+        ACTIVE.remove();
+      }
+    }
+  }
+
+  /**
+   * Returns a snapshot of all registered displayers, by class.
+   * <p>
+   * The returned map is immutable and is not affected by later registrations. For a scope, it
+   * includes inherited displayers that are not overridden in the scope.
+   *
+   * @return a Map of registered Displayer instances, by class
+   */
   public Map<Class<?>, Displayer<?>> getAll() {
-    return Collections.unmodifiableMap(displayers);
+    State current = current();
+    if (current.parentState == null) {
+      return current.displayers;
+    }
+    Map<Class<?>, Displayer<?>> all = new HashMap<>(parent.getAll());
+    all.putAll(current.displayers);
+    return Collections.unmodifiableMap(all);
+  }
+
+  /**
+   * Returns the current MIME type hint.
+   *
+   * @return MIME types supported by the kernel, or null if no hint has been set
+   */
+  public String[] getMimeTypes() {
+    String[] types = current().hint();
+    return types != null ? types.clone() : null;
+  }
+
+  /**
+   * Returns the parsed MIME type hint, or null if no hint has been set. The ranking is replaced,
+   * not modified, when the hint changes.
+   */
+  MimeRanking getRanking() {
+    return current().ranking();
   }
 
   /**
    * Sets the MIME type hint for all registered {@link Displayer} instances.
+   * <p>
+   * Types are ranked in the order they are given. Like an HTTP Accept header, a type may have a
+   * quality, as in {@code text/html;q=0.5}, which ranks it below types with a higher quality, and
+   * wildcards like {@code image/*} are allowed. Types with quality 0 are not accepted. Displayers
+   * receive the accepted types without parameters, highest ranked first.
+   * <p>
+   * The hint is used by {@link #find(Class)} to choose displayers that produce accepted types.
+   * For a scope, the hint is only passed to displayers registered in the scope.
    *
    * @param types supported MIME types
+   * @throws IllegalArgumentException if a quality is not a number between 0 and 1
    */
   public void setMimeTypes(String... types) {
-    this.mimeTypes = types;
-    for (Displayer<?> displayer : displayers.values()) {
-      displayer.setMimeTypes(types);
+    MimeRanking ranking = types != null ? MimeRanking.parse(types) : null;
+    String[] accepted = ranking != null ? ranking.getTypes() : null;
+    synchronized (lock) {
+      State current = current();
+      this.state = new State(current.displayers, current.typed, current.defaultDisplayer,
+          ranking, current.providers, current.parentState);
+      for (Displayer<?> displayer : current.displayers.values()) {
+        displayer.setMimeTypes(accepted);
+      }
+      for (List<ElementTypeDispatcher.Candidate> candidates : current.typed.values()) {
+        for (ElementTypeDispatcher.Candidate candidate : candidates) {
+          candidate.getDisplayer().setMimeTypes(accepted);
+        }
+      }
+      for (Displayer<?> displayer : current.providers.created) {
+        displayer.setMimeTypes(accepted);
+      }
+      if (current.defaultDisplayer != null && current.defaultDisplayer != INHERITED) {
+        current.defaultDisplayer.setMimeTypes(accepted);
+      }
+    }
+  }
+
+  /**
+   * Returns the limits that displayers should apply to large or nested values.
+   *
+   * @return the current DisplayLimits
+   */
+  public DisplayLimits getLimits() {
+    DisplayLimits current = limits;
+    return current != null ? current : parent.getLimits();
+  }
+
+  /**
+   * Sets the limits that displayers should apply to large or nested values.
+   *
+   * @param limits DisplayLimits for all displayers using this registration
+   */
+  public void setLimits(DisplayLimits limits) {
+    if (limits == null) {
+      throw new IllegalArgumentException("Invalid limits: null");
+    }
+    this.limits = limits;
+  }
+
+  /**
+   * Returns the Executor used to display objects asynchronously.
+   * <p>
+   * Unless one has been set, this uses a virtual thread per display when the
+   * JVM supports it, or a pool of daemon threads.
+   *
+   * @return an Executor for asynchronous display
+   */
+  public Executor getExecutor() {
+    Executor current = executor;
+    if (current == null && parent != null) {
+      return parent.getExecutor();
+    } else if (current == null) {
+      synchronized (lock) {
+        if (executor == null) {
+          this.executor = AsyncDisplay.defaultExecutor();
+        }
+        current = executor;
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Sets the Executor used to display objects asynchronously.
+   *
+   * @param executor an Executor for asynchronous display
+   * @see Displayers#displayAsync(Object)
+   */
+  public void setExecutor(Executor executor) {
+    if (executor == null) {
+      throw new IllegalArgumentException("Invalid executor: null");
+    }
+    this.executor = executor;
+  }
+
+  /**
+   * Adds a listener that is called around each display through this registration.
+   *
+   * @param listener a DisplayListener
+   * @see DisplayMetrics
+   */
+  public void addListener(DisplayListener listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("Invalid listener: null");
+    }
+    synchronized (lock) {
+      DisplayListener[] current = listeners;
+      DisplayListener[] updated = Arrays.copyOf(current, current.length + 1);
+      updated[current.length] = listener;
+      this.listeners = updated;
     }
-    if (defaultDisplayer != null) {
-      defaultDisplayer.setMimeTypes(types);
+  }
+
+  /**
+   * Removes a listener that was added with {@link #addListener(DisplayListener)}.
+   *
+   * @param listener a DisplayListener
+   * @return true if the listener was removed
+   */
+  public boolean removeListener(DisplayListener listener) {
+    synchronized (lock) {
+      DisplayListener[] current = listeners;
+      for (int i = 0; i < current.length; i += 1) {
+        if (current[i] == listener) {
+          DisplayListener[] updated = new DisplayListener[current.length - 1];
+          System.arraycopy(current, 0, updated, 0, i);
+          System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+          this.listeners = updated;
+          return true;
+        }
+      }
+      return false;
     }
   }
 
@@ -77,20 +380,145 @@ public class Registration {
    * @param displayer a Displayer for any object.
    */
   public void setDefault(Displayer<Object> displayer) {
-    this.defaultDisplayer = displayer;
+    synchronized (lock) {
+      State current = current();
+      this.state = new State(current.displayers, current.typed, displayer, current.mimeTypes,
+          current.providers, current.parentState);
+    }
   }
 
   /**
    * Registers a Displayer instance for a class.
+   * <p>
+   * The displayer receives the current MIME type hint before it is published, so it will not miss a
+   * concurrent call to {@link #setMimeTypes(String...)}.
    *
    * @param objClass the class of objects to display
    * @param displayer a Displayer instance
    */
   public <T> void add(Class<T> objClass, Displayer<? extends T> displayer) {
-    if (mimeTypes != null) {
-      displayer.setMimeTypes(mimeTypes);
+    synchronized (lock) {
+      State current = current();
+      String[] types = current.hint();
+      if (types != null) {
+        displayer.setMimeTypes(types);
+      }
+      Map<Class<?>, Displayer<?>> displayers = new HashMap<>(current.displayers);
+      displayers.put(objClass, displayer);
+      this.state = new State(Collections.unmodifiableMap(displayers), current.typed,
+          current.defaultDisplayer, current.mimeTypes, current.providers, current.parentState);
+    }
+  }
+
+  /**
+   * Registers a Displayer instance for a parameterized type, like {@code List<Double>}.
+   * <p>
+   * Type tokens are checked after displayers for more specific classes and before the displayer
+   * registered for their raw class. When an object of the raw class is displayed, a sample of its
+   * elements (or a map's keys and values) is checked against the type arguments, and the first
+   * matching type token's displayer is used. The decision is cached by the classes of the sampled
+   * elements.
+   *
+   * @param token a TypeToken for a parameterized Collection or Map type
+   * @param displayer a Displayer instance
+   * @throws IllegalArgumentException if the type is not a parameterized Collection or Map
+   * @see ElementTypeDispatcher
+   */
+  public <T> void add(TypeToken<T> token, Displayer<? extends T> displayer) {
+    add(token.getType(), displayer);
+  }
+
+  /**
+   * Registers a Displayer instance for a type.
+   * <p>
+   * Classes are registered with {@link #add(Class, Displayer)}. Parameterized Collection and Map
+   * types are registered as described in {@link #add(TypeToken, Displayer)}. The displayer must
+   * be able to display objects of the type.
+   *
+   * @param type a Class, or a parameterized Collection or Map type
+   * @param displayer a Displayer instance
+   * @throws IllegalArgumentException if the type is not a Class or a parameterized Collection or
+   *                                  Map
+   */
+  @SuppressWarnings("unchecked")
+  public void add(Type type, Displayer<?> displayer) {
+    if (type instanceof Class) {
+      add((Class<Object>) type, (Displayer<Object>) displayer);
+      return;
+    }
+
+    ElementTypeDispatcher.Candidate candidate = ElementTypeDispatcher.Candidate.of(type, displayer);
+    synchronized (lock) {
+      State current = current();
+      String[] types = current.hint();
+      if (types != null) {
+        displayer.setMimeTypes(types);
+      }
+      Class<?> rawType = candidate.getRawType();
+      List<ElementTypeDispatcher.Candidate> candidates = new ArrayList<>();
+      if (current.typed.containsKey(rawType)) {
+        for (ElementTypeDispatcher.Candidate existing : current.typed.get(rawType)) {
+          if (!existing.getType().equals(type)) {
+            candidates.add(existing);
+          }
+        }
+      }
+      candidates.add(candidate);
+      Map<Class<?>, List<ElementTypeDispatcher.Candidate>> typed = new HashMap<>(current.typed);
+      typed.put(rawType, Collections.unmodifiableList(candidates));
+      this.state = new State(current.displayers, Collections.unmodifiableMap(typed),
+          current.defaultDisplayer, current.mimeTypes, current.providers, current.parentState);
+    }
+  }
+
+  /**
+   * Registers a DisplayerProvider for the classes it names.
+   * <p>
+   * The provider's displayer for a class is created the first time {@link #find(Class)} is called
+   * for that class or one of its subclasses. A displayer registered with
+   * {@link #add(Class, Displayer)} for the same class takes precedence.
+   *
+   * @param provider a DisplayerProvider
+   */
+  public void addProvider(DisplayerProvider provider) {
+    if (provider == null) {
+      throw new IllegalArgumentException("Invalid provider: null");
+    }
+    synchronized (lock) {
+      State current = current();
+      Map<String, DisplayerProvider> byClassName = new HashMap<>(current.providers.byClassName);
+      for (String className : provider.getClassNames()) {
+        byClassName.put(className, provider);
+      }
+      this.state = new State(current.displayers, current.typed, current.defaultDisplayer,
+          current.mimeTypes,
+          new Providers(Collections.unmodifiableMap(byClassName), current.providers),
+          current.parentState);
+    }
+  }
+
+  /**
+   * Registers each {@link DisplayerProvider} that {@link ServiceLoader} finds using a class loader.
+   * <p>
+   * This is called with the context class loader when a Registration is created. Kernels that add
+   * libraries at runtime can call it again with the libraries' class loader. Providers that cannot
+   * be loaded are skipped.
+   *
+   * @param loader a ClassLoader used to find provider configuration files and classes
+   */
+  public void loadProviders(ClassLoader loader) {
+    Iterator<DisplayerProvider> providers =
+        ServiceLoader.load(DisplayerProvider.class, loader).iterator();
+    while (true) {
+      try {
+        if (!providers.hasNext()) {
+          break;
+        }
+        addProvider(providers.next());
+      } catch (ServiceConfigurationError e) {
+        // skip providers that are misconfigured or fail to instantiate
+      }
     }
-    displayers.put(objClass, displayer);
   }
 
   /**
@@ -102,44 +530,779 @@ public class Registration {
    * interfaces, and so on.
    * <p>
    * The first displayer that can handle the class will be returned.
+   * <p>
+   * If a MIME type hint has been set with {@link #setMimeTypes(String...)}, displayers whose
+   * {@link Displayer#getProducedMimeTypes()} do not include an accepted type are skipped, and the
+   * search continues with the class's ancestors. Among the displayers at the same level of the
+   * search, the one that produces the highest ranked type is used, then the one with the lowest
+   * {@link Displayer#getCost(String)}. Displayers that do not declare their MIME types are assumed
+   * to produce the highest ranked type. If no displayer produces an accepted type, the first
+   * displayer is returned as if there were no hint.
+   * <p>
+   * At each class in the search, a displayer registered for the class is used before one from a
+   * {@link DisplayerProvider} that names it, and a scope's own displayers are used before ones
+   * inherited from its parent.
+   * <p>
+   * Results are cached per class until the registry changes, so repeated calls for the same class
+   * do not repeat the search. The search order of each class is cached separately and is built
+   * from the search orders of its superclass and interfaces, so a search after a change only
+   * checks the registry for each ancestor.
    *
    * @param objClass the class of objects to display
    * @return a Displayer instance for this class or one of its superclasses.
    */
-  @SuppressWarnings("unchecked")
   public <T> Displayer<? super T> find(Class<T> objClass) {
-    Set<Class<?>> visited = new HashSet<>();
-    visited.add(Object.class); // stop search with Object
-    LinkedList<Class<? super T>> classes = new LinkedList<>();
-    classes.addLast(objClass);
-
-    while (!classes.isEmpty()) {
-      Class<? super T> currentClass = classes.removeFirst();
-      Displayer<?> displayer = displayers.get(currentClass);
+    return current().find(objClass);
+  }
+
+  /**
+   * Finds a displayer that produces a MIME type for a class.
+   * <p>
+   * This searches in the same order as {@link #find(Class)} and returns the first displayer that
+   * produces the MIME type, using {@link Displayer#getCost(String)} to choose between displayers
+   * at the same level. Displayers that do not declare their MIME types are assumed to produce it.
+   * Results are cached per class and MIME type until the registry changes.
+   *
+   * @param objClass the class of objects to display
+   * @param mimeType a MIME type
+   * @return a Displayer that produces the MIME type, or null if there is none
+   */
+  public <T> Displayer<? super T> find(Class<T> objClass, String mimeType) {
+    return current().find(objClass, mimeType);
+  }
+
+  /**
+   * Converts an object to one or more displayable representations by MIME type, using the
+   * displayer returned by {@link #find(Class)}.
+   * <p>
+   * If a displayer returns a {@link LazyDisplayData} and a MIME type hint has been set, the result
+   * is restricted to the hinted MIME types so that other representations are never computed.
+   * <p>
+   * Text representations are bounded by {@link DisplayLimits#getMaxResultChars()}. Those that do
+   * not fit are truncated or spilled to a temporary file, depending on
+   * {@link DisplayLimits#getOverflow()}.
+   * <p>
+   * Listeners added with {@link #addListener(DisplayListener)} are called with the time spent
+   * finding and running the displayer.
+   *
+   * @param obj an Object to display
+   * @return a Map of representations of the object, by MIME type.
+   */
+  public <T> Map<String, String> display(T obj) {
+    Registration previous = enter();
+    RenderContext.Frame frame = RenderContext.begin();
+    try {
+      return displayActive(obj);
+    } finally {
+      RenderContext.end(frame);
+      exit(previous);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> Map<String, String> displayActive(T obj) {
+    DisplayListener[] current = listeners();
+    if (current.length == 0) {
+      State snapshot = current();
+      Displayer<? super T> displayer = snapshot.find((Class<T>) obj.getClass());
       if (displayer != null) {
-        return (Displayer<? super T>) displayer;
+        return displayGuarded(obj, displayer, snapshot, current);
+      } else {
+        return Collections.emptyMap();
+      }
+    }
+
+    Class<T> objClass = (Class<T>) obj.getClass();
+    Displayer<? super T> displayer = find(objClass, current);
+    if (displayer == null) {
+      return Collections.emptyMap();
+    }
+
+    long allocated = allocatedBytes();
+    long start = System.nanoTime();
+    Map<String, String> result;
+    try {
+      result = displayGuarded(obj, displayer, current(), current);
+    } catch (RuntimeException | Error e) {
+      onError(current, objClass, displayer, e, System.nanoTime() - start);
+      throw e;
+    }
+    long nanos = System.nanoTime() - start;
+    allocated = allocated >= 0 ? allocatedBytes() - allocated : -1;
+    for (DisplayListener listener : current) {
+      listener.onDisplay(objClass, displayer, result, nanos, allocated);
+    }
+
+    return result;
+  }
+
+  /**
+   * Displays an object within the {@link DisplayLimits#getMaxResultChars()} budget, streaming it
+   * if its representations may be spilled and the displayer can stream them.
+   */
+  private <T> Map<String, String> displayGuarded(T obj, Displayer<? super T> displayer,
+                                                 State snapshot, DisplayListener[] current) {
+    DisplayLimits limits = getLimits();
+    if (SizeGuard.streams(limits, displayer, obj)) {
+      return SizeGuard.stream(obj, displayer, limits, current);
+    }
+    return SizeGuard.apply(restrict(displayer.display(obj), snapshot), limits, obj.getClass(),
+        displayer, current);
+  }
+
+  /**
+   * Runs deferred rendering, like a {@link LazyDisplayData} supplier, as if this registration were
+   * displaying: it is active on the current thread and nested display calls share a
+   * {@link RenderContext}.
+   *
+   * @param work rendering to run
+   * @return the result of work
+   */
+  <V> V render(Supplier<V> work) {
+    Registration previous = enter();
+    RenderContext.Frame frame = RenderContext.begin();
+    try {
+      return work.get();
+    } finally {
+      RenderContext.end(frame);
+      exit(previous);
+    }
+  }
+
+  /**
+   * Displays an object and returns a handle that sends updates to its output as the object
+   * changes.
+   * <p>
+   * If the displayer for the object, including one registered with a {@link TypeToken}, is an
+   * {@link IncrementalDisplayer}, it is opened with the handle and sends updates that describe
+   * what changed. Otherwise, the object is displayed with {@link #display(Object)}, and
+   * {@link DisplayHandle#refresh()} displays it again and replaces the whole output if it has
+   * changed.
+   *
+   * @param obj an Object to display
+   * @param displayId the display id of the output, or null to generate one
+   * @return a DisplayHandle with the initial representations of the object
+   */
+  @SuppressWarnings("unchecked")
+  public <T> DisplayHandle displayIncremental(T obj, String displayId) {
+    Displayer<? super T> displayer = find((Class<T>) obj.getClass());
+    if (displayer instanceof ElementTypeDispatcher) {
+      displayer = ((ElementTypeDispatcher) displayer).select(obj);
+    }
+    return DisplayHandle.open(this, obj, displayer instanceof IncrementalDisplayer ?
+        (IncrementalDisplayer<? super T>) displayer : null, displayId);
+  }
+
+  /**
+   * Converts several objects to displayable representations by MIME type.
+   * <p>
+   * Objects are grouped by the displayer returned by {@link #find(Class)}, and each displayer is
+   * called once with its group using {@link Displayer#displayBatch(List)}. The lookup is only
+   * repeated when consecutive objects have different classes.
+   * <p>
+   * If parallel is true, groups are split into chunks that are displayed on the common
+   * {@link ForkJoinPool}, which helps when displayers are CPU-bound. Displayers must be
+   * thread-safe to be used in parallel.
+   * <p>
+   * Listeners are called for each object. The time and allocations of a batch call are divided
+   * evenly between the objects in its chunk.
+   *
+   * @param objs objects to display
+   * @param parallel whether to display chunks of objects in parallel
+   * @return an unmodifiable List of representations by MIME type, in the same order as objs;
+   *         null objects and objects with no displayer have no representations
+   */
+  public List<Map<String, String>> displayBatch(Iterable<?> objs, boolean parallel) {
+    Registration previous = enter();
+    RenderContext.Frame frame = RenderContext.begin();
+    try {
+      return displayBatchActive(objs, parallel);
+    } finally {
+      RenderContext.end(frame);
+      exit(previous);
+    }
+  }
+
+  private List<Map<String, String>> displayBatchActive(Iterable<?> objs, boolean parallel) {
+    final State snapshot = current();
+    final DisplayListener[] current = listeners();
+    final DisplayLimits limits = getLimits();
+    List<?> list = objs instanceof List && objs instanceof RandomAccess ?
+        (List<?>) objs : copyOf(objs);
+
+    @SuppressWarnings("unchecked")
+    final Map<String, String>[] results = (Map<String, String>[]) new Map<?, ?>[list.size()];
+    Map<Displayer<?>, Batch> batches = new IdentityHashMap<>();
+    List<Batch> ordered = new ArrayList<>();
+    Class<?> lastClass = null;
+    Batch lastBatch = null;
+    for (int i = 0; i < results.length; i += 1) {
+      Object obj = list.get(i);
+      if (obj == null) {
+        results[i] = Collections.emptyMap();
+        continue;
+      }
+      if (obj.getClass() != lastClass || current.length > 0) {
+        lastClass = obj.getClass();
+        Displayer<?> displayer = current.length > 0 ?
+            find(lastClass, current) : snapshot.find(lastClass);
+        if (displayer != null) {
+          lastBatch = batches.get(displayer);
+          if (lastBatch == null) {
+            lastBatch = new Batch(displayer);
+            batches.put(displayer, lastBatch);
+            ordered.add(lastBatch);
+          }
+        } else {
+          lastBatch = null;
+        }
       }
+      if (lastBatch != null) {
+        lastBatch.add(i, obj);
+      } else {
+        results[i] = Collections.emptyMap();
+      }
+    }
 
-      for (Class<?> iface : currentClass.getInterfaces()) {
-        if (!visited.contains(iface)) {
-          classes.add((Class<? super T>) iface);
+    if (!parallel) {
+      for (Batch batch : ordered) {
+        batch.display(0, batch.size(), results, snapshot, limits, current);
+      }
+    } else {
+      List<Callable<Void>> tasks = new ArrayList<>();
+      int chunkSize = Math.max(1, results.length / (4 * ForkJoinPool.getCommonPoolParallelism()));
+      for (final Batch batch : ordered) {
+        for (int start = 0; start < batch.size(); start += chunkSize) {
+          final int chunkStart = start;
+          final int chunkEnd = Math.min(batch.size(), start + chunkSize);
+          tasks.add(new Callable<Void>() {
+            @Override
+            public Void call() {
+              Registration previous = enter();
+              RenderContext.Frame frame = RenderContext.begin();
+              try {
+                batch.display(chunkStart, chunkEnd, results, snapshot, limits, current);
+              } finally {
+                RenderContext.end(frame);
+                exit(previous);
+              }
+              return null;
+            }
+          });
         }
       }
+      invokeAll(tasks);
+    }
+
+    return Collections.unmodifiableList(Arrays.asList(results));
+  }
+
+  private static List<Object> copyOf(Iterable<?> objs) {
+    List<Object> list = new ArrayList<>();
+    for (Object obj : objs) {
+      list.add(obj);
+    }
+    return list;
+  }
+
+  private static void invokeAll(List<Callable<Void>> tasks) {
+    List<Future<Void>> futures = ForkJoinPool.commonPool().invokeAll(tasks);
+    for (Future<Void> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CancellationException("Interrupted while displaying a batch");
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new IllegalStateException("Cannot display batch", cause);
+      }
+    }
+  }
+
+  /**
+   * Converts an object to one or more displayable representations and streams each
+   * representation to a sink, by MIME type, using the displayer returned by {@link #find(Class)}.
+   * <p>
+   * Nothing is written if there is no displayer for the object.
+   *
+   * @param obj an Object to display
+   * @param sinks opens a destination for each representation by MIME type
+   * @throws IOException if a destination cannot be written
+   */
+  public <T> void displayTo(T obj, SinkFactory sinks) throws IOException {
+    Registration previous = enter();
+    RenderContext.Frame frame = RenderContext.begin();
+    try {
+      displayToActive(obj, sinks);
+    } finally {
+      RenderContext.end(frame);
+      exit(previous);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> void displayToActive(T obj, SinkFactory sinks) throws IOException {
+    DisplayListener[] current = listeners();
+    Class<T> objClass = (Class<T>) obj.getClass();
+    if (current.length == 0) {
+      Displayer<? super T> displayer = find(objClass);
+      if (displayer != null) {
+        displayer.displayTo(obj, sinks);
+      }
+      return;
+    }
+
+    Displayer<? super T> displayer = find(objClass, current);
+    if (displayer == null) {
+      return;
+    }
+
+    long allocated = allocatedBytes();
+    long start = System.nanoTime();
+    try {
+      displayer.displayTo(obj, sinks);
+    } catch (IOException | RuntimeException | Error e) {
+      onError(current, objClass, displayer, e, System.nanoTime() - start);
+      throw e;
+    }
+    long nanos = System.nanoTime() - start;
+    allocated = allocated >= 0 ? allocatedBytes() - allocated : -1;
+    for (DisplayListener listener : current) {
+      listener.onDisplay(objClass, displayer, null, nanos, allocated);
+    }
+  }
+
+  private <T> Displayer<? super T> find(Class<T> objClass, DisplayListener[] current) {
+    long start = System.nanoTime();
+    State snapshot = current();
+    Displayer<? super T> displayer = snapshot.find(objClass);
+    long nanos = System.nanoTime() - start;
+    boolean isDefault = displayer != null && displayer == snapshot.defaultDisplayer();
+    for (DisplayListener listener : current) {
+      listener.onFind(objClass, displayer, isDefault, nanos);
+    }
+    return displayer;
+  }
+
+  /**
+   * Returns this registration's listeners, after those inherited from its parent.
+   */
+  private DisplayListener[] listeners() {
+    DisplayListener[] own = listeners;
+    if (parent == null) {
+      return own;
+    }
+    DisplayListener[] inherited = parent.listeners();
+    if (own.length == 0) {
+      return inherited;
+    } else if (inherited.length == 0) {
+      return own;
+    }
+    DisplayListener[] all = Arrays.copyOf(inherited, inherited.length + own.length);
+    System.arraycopy(own, 0, all, inherited.length, own.length);
+    return all;
+  }
 
-      Class<? super T> superClass = currentClass.getSuperclass();
-      // interface superclasses can be null
-      if (superClass != null && !visited.contains(superClass)) {
-        classes.add(superClass);
+  private static void onError(DisplayListener[] current, Class<?> objClass,
+                              Displayer<?> displayer, Throwable error, long nanos) {
+    for (DisplayListener listener : current) {
+      listener.onError(objClass, displayer, error, nanos);
+    }
+  }
+
+  /**
+   * Restricts a lazy result to the MIME types accepted by this registration's hint.
+   */
+  Map<String, String> restrict(Map<String, String> result) {
+    return restrict(result, current());
+  }
+
+  private static Map<String, String> restrict(Map<String, String> result, State snapshot) {
+    MimeRanking ranking = snapshot.ranking();
+    if (result instanceof LazyDisplayData && ranking != null) {
+      return ((LazyDisplayData) result).restrict(ranking.filter(result.keySet()));
+    }
+    return result;
+  }
+
+  private static com.sun.management.ThreadMXBean allocationBean() {
+    try {
+      java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+      if (threads instanceof com.sun.management.ThreadMXBean) {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threads;
+        if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+          return bean;
+        }
       }
+    } catch (LinkageError | RuntimeException e) {
+      // allocations are not reported in this JVM
     }
+    return null;
+  }
 
-    return defaultDisplayer;
+  private static long allocatedBytes() {
+    return THREADS != null ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
   }
 
   // Visible for testing
   void clear() {
-    displayers.clear();
-    defaultDisplayer = ToStringDisplayer.get();
-    init();
+    synchronized (lock) {
+      this.state = emptyState();
+      this.limits = parent != null ? null : DisplayLimits.DEFAULT;
+      this.executor = null;
+      this.listeners = NO_LISTENERS;
+      if (parent == null) {
+        init();
+      }
+    }
+  }
+
+  /**
+   * Displays {@link AsDisplayData} objects, passing them the MIME type hint of the active
+   * registration, so that each scope's hint is used.
+   */
+  static class AsDisplayDataDisplayer extends Displayer<AsDisplayData> {
+    @Override
+    public Map<String, String> display(AsDisplayData obj) {
+      String[] types = active().current().hint();
+      if (types != null) {
+        obj.setMimeTypes(types);
+      }
+      return obj.display();
+    }
+
+    @Override
+    public void displayTo(AsDisplayData obj, SinkFactory sinks) throws IOException {
+      String[] types = active().current().hint();
+      if (types != null) {
+        obj.setMimeTypes(types);
+      }
+      obj.displayTo(sinks);
+    }
+  }
+
+  /**
+   * Objects in a batch that resolve to the same displayer, with their positions in the batch.
+   */
+  private static class Batch {
+    private final Displayer<Object> displayer;
+    private final List<Object> objs = new ArrayList<>();
+    private int[] indexes = new int[8];
+
+    @SuppressWarnings("unchecked")
+    private Batch(Displayer<?> displayer) {
+      this.displayer = (Displayer<Object>) displayer;
+    }
+
+    private int size() {
+      return objs.size();
+    }
+
+    private void add(int index, Object obj) {
+      if (objs.size() == indexes.length) {
+        this.indexes = Arrays.copyOf(indexes, indexes.length * 2);
+      }
+      indexes[objs.size()] = index;
+      objs.add(obj);
+    }
+
+    private void display(int start, int end, Map<String, String>[] results, State snapshot,
+                         DisplayLimits limits, DisplayListener[] current) {
+      List<Object> chunk = objs.subList(start, end);
+      long allocated = current.length > 0 ? allocatedBytes() : -1;
+      long startNanos = current.length > 0 ? System.nanoTime() : 0;
+      List<Map<String, String>> displayed;
+      try {
+        displayed = displayer.displayBatch(chunk);
+      } catch (RuntimeException | Error e) {
+        long nanos = (System.nanoTime() - startNanos) / chunk.size();
+        for (Object obj : chunk) {
+          onError(current, obj.getClass(), displayer, e, nanos);
+        }
+        throw e;
+      }
+      if (displayed.size() != chunk.size()) {
+        throw new IllegalStateException(String.format(
+            "Invalid batch result from %s: %d results for %d objects",
+            displayer.getClass().getName(), displayed.size(), chunk.size()));
+      }
+
+      for (int i = 0; i < displayed.size(); i += 1) {
+        results[indexes[start + i]] = SizeGuard.apply(restrict(displayed.get(i), snapshot),
+            limits, chunk.get(i).getClass(), displayer, current);
+      }
+
+      if (current.length > 0) {
+        long nanos = (System.nanoTime() - startNanos) / chunk.size();
+        long allocatedEach = allocated >= 0 ? (allocatedBytes() - allocated) / chunk.size() : -1;
+        for (int i = 0; i < chunk.size(); i += 1) {
+          for (DisplayListener listener : current) {
+            listener.onDisplay(chunk.get(i).getClass(), displayer, results[indexes[start + i]],
+                nanos, allocatedEach);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * An immutable view of the registry. Each change publishes a new State, which also discards the
+   * {@link #find(Class)} results cached for the previous one.
+   * <p>
+   * The State of a scope refers to the State of its parent that it was built with, and is replaced
+   * when the parent publishes a new one.
+   */
+  private static class State {
+    private final Map<Class<?>, Displayer<?>> displayers;
+    // displayers for parameterized types, by raw class, in registration order
+    private final Map<Class<?>, List<ElementTypeDispatcher.Candidate>> typed;
+    private final Displayer<Object> defaultDisplayer;
+    private final MimeRanking mimeTypes;
+    private final Providers providers;
+    private final State parentState;
+    private final ClassValue<Displayer<?>> resolved = new ClassValue<Displayer<?>>() {
+      @Override
+      protected Displayer<?> computeValue(Class<?> type) {
+        Displayer<?> displayer = resolve(type);
+        return displayer != null ? displayer : NO_DISPLAYER;
+      }
+    };
+    private final ClassValue<ConcurrentMap<String, Displayer<?>>> resolvedByMimeType =
+        new ClassValue<ConcurrentMap<String, Displayer<?>>>() {
+          @Override
+          protected ConcurrentMap<String, Displayer<?>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+          }
+        };
+
+    private State(Map<Class<?>, Displayer<?>> displayers,
+                  Map<Class<?>, List<ElementTypeDispatcher.Candidate>> typed,
+                  Displayer<Object> defaultDisplayer, MimeRanking mimeTypes, Providers providers,
+                  State parentState) {
+      this.displayers = displayers;
+      this.typed = typed;
+      this.defaultDisplayer = defaultDisplayer;
+      this.mimeTypes = mimeTypes;
+      this.providers = providers;
+      this.parentState = parentState;
+    }
+
+    private Displayer<Object> defaultDisplayer() {
+      return defaultDisplayer != INHERITED ? defaultDisplayer : parentState.defaultDisplayer();
+    }
+
+    private MimeRanking ranking() {
+      return mimeTypes != null || parentState == null ? mimeTypes : parentState.ranking();
+    }
+
+    private String[] hint() {
+      MimeRanking ranking = ranking();
+      return ranking != null ? ranking.getTypes() : null;
+    }
+
+    private Displayer<?> lookup(Class<?> type) {
+      Displayer<?> displayer = displayers.get(type);
+      if (displayer == null) {
+        displayer = providers.find(type);
+      }
+      if (displayer == null && parentState != null) {
+        displayer = parentState.lookup(type);
+      }
+      return displayer;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Displayer<? super T> find(Class<T> objClass) {
+      Displayer<?> displayer = resolved.get(objClass);
+      return displayer != NO_DISPLAYER ? (Displayer<? super T>) displayer : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Displayer<? super T> find(Class<T> objClass, String mimeType) {
+      ConcurrentMap<String, Displayer<?>> cache = resolvedByMimeType.get(objClass);
+      Displayer<?> displayer = cache.get(mimeType);
+      if (displayer == null) {
+        displayer = negotiate(objClass, MimeRanking.parse(mimeType), false);
+        cache.putIfAbsent(mimeType, displayer != null ? displayer : NO_DISPLAYER);
+      }
+      return displayer != NO_DISPLAYER ? (Displayer<? super T>) displayer : null;
+    }
+
+    private boolean hasTyped() {
+      return !typed.isEmpty() || (parentState != null && parentState.hasTyped());
+    }
+
+    private void addTyped(Class<?> type, List<ElementTypeDispatcher.Candidate> candidates) {
+      List<ElementTypeDispatcher.Candidate> own = typed.get(type);
+      if (own != null) {
+        candidates.addAll(own);
+      }
+      if (parentState != null) {
+        parentState.addTyped(type, candidates);
+      }
+    }
+
+    private <T> Displayer<? super T> resolve(Class<T> objClass) {
+      Displayer<? super T> displayer = resolveByClass(objClass);
+      if (!hasTyped()) {
+        return displayer;
+      }
+
+      // type tokens are used before the displayer for their raw class, but not before displayers
+      // for more specific classes
+      List<ElementTypeDispatcher.Candidate> candidates = new ArrayList<>();
+      for (Class<?> currentClass : ClassHierarchy.searchOrder(objClass)) {
+        addTyped(currentClass, candidates);
+        if (lookup(currentClass) != null) {
+          break;
+        }
+      }
+      return candidates.isEmpty() ? displayer : new ElementTypeDispatcher(candidates, displayer);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Displayer<? super T> resolveByClass(Class<T> objClass) {
+      MimeRanking ranking = ranking();
+      if (ranking != null) {
+        return (Displayer<? super T>) negotiate(objClass, ranking, true);
+      }
+
+      for (Class<?> currentClass : ClassHierarchy.searchOrder(objClass)) {
+        Displayer<?> displayer = lookup(currentClass);
+        if (displayer != null) {
+          return (Displayer<? super T>) displayer;
+        }
+      }
+
+      return defaultDisplayer();
+    }
+
+    /**
+     * Returns the displayer at the most specific level of a class's search order that produces
+     * an accepted MIME type, preferring higher ranked types and then lower costs.
+     *
+     * @param fallback whether to return the displayer {@link #resolve(Class)} would use without
+     *                 a hint if no displayer produces an accepted type, instead of null
+     */
+    private Displayer<?> negotiate(Class<?> objClass, MimeRanking ranking, boolean fallback) {
+      Class<?>[] order = ClassHierarchy.searchOrder(objClass);
+      Displayer<?> first = null;
+      int start = 0;
+      for (int end : ClassHierarchy.levelEnds(objClass)) {
+        Displayer<?> best = null;
+        double bestQuality = 0.0;
+        double bestCost = 0.0;
+        for (int i = start; i < end; i += 1) {
+          Displayer<?> displayer = lookup(order[i]);
+          if (displayer == null) {
+            continue;
+          } else if (first == null) {
+            first = displayer;
+          }
+          String mimeType = ranking.negotiate(displayer.getProducedMimeTypes());
+          if (mimeType != null) {
+            double quality = ranking.quality(mimeType);
+            double cost = displayer.getCost(mimeType);
+            if (best == null || quality > bestQuality ||
+                (quality == bestQuality && cost < bestCost)) {
+              best = displayer;
+              bestQuality = quality;
+              bestCost = cost;
+            }
+          }
+        }
+        if (best != null) {
+          return best;
+        }
+        start = end;
+      }
+
+      Displayer<Object> defaultDisplayer = defaultDisplayer();
+      if (defaultDisplayer != null &&
+          ranking.negotiate(defaultDisplayer.getProducedMimeTypes()) != null) {
+        return defaultDisplayer;
+      } else if (fallback) {
+        return first != null ? first : defaultDisplayer;
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Displayers from {@link DisplayerProvider} instances by class name, created on first use.
+   * <p>
+   * Displayers that have been created are kept when providers are added, so each provider creates
+   * at most one displayer for a class.
+   */
+  private class Providers {
+    private final Map<String, DisplayerProvider> byClassName;
+    // displayers that have been created, so they receive later MIME type hints
+    private final List<Displayer<?>> created;
+    // displayers for each class by the provider that created them
+    private final ClassValue<ConcurrentMap<DisplayerProvider, Displayer<?>>> provided;
+
+    private Providers(Map<String, DisplayerProvider> byClassName) {
+      this.byClassName = byClassName;
+      this.created = new CopyOnWriteArrayList<>();
+      this.provided = new ClassValue<ConcurrentMap<DisplayerProvider, Displayer<?>>>() {
+        @Override
+        protected ConcurrentMap<DisplayerProvider, Displayer<?>> computeValue(Class<?> type) {
+          return new ConcurrentHashMap<>();
+        }
+      };
+    }
+
+    private Providers(Map<String, DisplayerProvider> byClassName, Providers previous) {
+      this.byClassName = byClassName;
+      this.created = previous.created;
+      this.provided = previous.provided;
+    }
+
+    private Displayer<?> find(Class<?> type) {
+      if (byClassName.isEmpty()) {
+        return null;
+      }
+      DisplayerProvider provider = byClassName.get(type.getName());
+      if (provider == null) {
+        return null;
+      }
+
+      ConcurrentMap<DisplayerProvider, Displayer<?>> byProvider = provided.get(type);
+      Displayer<?> displayer = byProvider.get(provider);
+      if (displayer == null) {
+        displayer = create(provider, type, byProvider);
+      }
+      return displayer != NO_DISPLAYER ? displayer : null;
+    }
+
+    private Displayer<?> create(DisplayerProvider provider, Class<?> type,
+                                ConcurrentMap<DisplayerProvider, Displayer<?>> byProvider) {
+      Displayer<?> displayer = provider.getDisplayer(type);
+      synchronized (lock) {
+        Displayer<?> existing = byProvider.get(provider);
+        if (existing != null) {
+          // another thread created a displayer first
+          return existing;
+        }
+        if (displayer == null) {
+          displayer = NO_DISPLAYER;
+        } else {
+          // the hint is read under the lock so that a concurrent setMimeTypes is not lost
+          String[] types = current().hint();
+          if (types != null) {
+            displayer.setMimeTypes(types);
+          }
+          created.add(displayer);
+        }
+        byProvider.put(provider, displayer);
+        return displayer;
+      }
+    }
   }
 }
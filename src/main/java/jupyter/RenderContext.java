@@ -0,0 +1,220 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Tracks the nested values that are being rendered by a display call, so that
+ * displayers that render nested objects stop at cycles, at the maximum depth
+ * and when the work budget for the call is spent.
+ * <p>
+ * One context is shared by all nested display calls made while a
+ * {@link Registration} is displaying an object on the current thread. A
+ * displayer that renders nested values should enter each container it renders,
+ * and show {@link #getMarker(Object)} in its place if it cannot be entered:
+ * <pre>
+ *   RenderContext context = RenderContext.current();
+ *   if (!context.enter(node)) {
+ *     return context.getMarker(node);
+ *   }
+ *   try {
+ *     for (Object child : node.getChildren()) {
+ *       if (!context.charge(1)) {
+ *         break;
+ *       }
+ *       ... Displayers.display(child) ...
+ *     }
+ *   } finally {
+ *     context.exit(node);
+ *   }
+ * </pre>
+ * <p>
+ * Contexts are not thread-safe and should only be used on the thread that
+ * returned them from {@link #current()}.
+ *
+ * @see DisplayLimits#getMaxDepth()
+ * @see DisplayLimits#getMaxWork()
+ */
+public final class RenderContext {
+
+  private static final ThreadLocal<Frame> FRAMES = new ThreadLocal<Frame>() {
+    @Override
+    protected Frame initialValue() {
+      return new Frame();
+    }
+  };
+
+  private final DisplayLimits limits;
+  // values that are being rendered, which are shown as a marker if they are reached again
+  private final IdentityHashMap<Object, Boolean> rendering = new IdentityHashMap<>();
+  private int depth = 0;
+  private long remainingWork;
+
+  private RenderContext(DisplayLimits limits) {
+    this.limits = limits;
+    this.remainingWork = limits.getMaxWork();
+  }
+
+  /**
+   * Returns the context for the display call in progress on this thread.
+   * <p>
+   * If no display call is in progress, this returns a new context that is not
+   * shared.
+   *
+   * @return a RenderContext
+   */
+  public static RenderContext current() {
+    Frame frame = FRAMES.get();
+    if (frame.displays == 0) {
+      return new RenderContext(Displayers.registration().getLimits());
+    }
+    if (frame.context == null) {
+      frame.context = new RenderContext(Displayers.registration().getLimits());
+    }
+    return frame.context;
+  }
+
+  /**
+   * Called by {@link Registration} when a display call starts on this thread.
+   */
+  static Frame begin() {
+    Frame frame = FRAMES.get();
+    frame.displays += 1;
+    return frame;
+  }
+
+  /**
+   * Called by {@link Registration} when a display call ends, to discard the
+   * context once the outermost call ends.
+   */
+  static void end(Frame frame) {
+    frame.displays -= 1;
+    if (frame.displays == 0) {
+      frame.context = null;
+    }
+  }
+
+  /**
+   * @return the limits used by this context
+   */
+  public DisplayLimits getLimits() {
+    return limits;
+  }
+
+  /**
+   * @return the number of values that have been entered and not exited
+   */
+  public int getDepth() {
+    return depth;
+  }
+
+  /**
+   * Returns whether a value is being rendered, which means that rendering it
+   * again would not terminate.
+   *
+   * @param obj a value
+   * @return true if obj has been entered and not exited
+   */
+  public boolean isRendering(Object obj) {
+    return obj != null && depth > 0 && rendering.containsKey(obj);
+  }
+
+  /**
+   * Starts rendering a value that contains other values.
+   * <p>
+   * Each call that returns true must be followed by a call to
+   * {@link #exit(Object)}.
+   *
+   * @param obj a value to render
+   * @return true if obj can be rendered, or false if it is already being
+   *         rendered, if the maximum depth has been reached, or if the work
+   *         budget is spent
+   */
+  public boolean enter(Object obj) {
+    if (obj == null) {
+      throw new IllegalArgumentException("Invalid value: null");
+    }
+    if (depth >= limits.getMaxDepth() || remainingWork <= 0 || isRendering(obj)) {
+      return false;
+    }
+    rendering.put(obj, Boolean.TRUE);
+    this.depth += 1;
+    return true;
+  }
+
+  /**
+   * Finishes rendering a value that was entered with {@link #enter(Object)}.
+   *
+   * @param obj a value that was entered
+   */
+  public void exit(Object obj) {
+    if (rendering.remove(obj) == null) {
+      throw new IllegalStateException("Cannot exit value that was not entered: " + obj.getClass());
+    }
+    this.depth -= 1;
+  }
+
+  /**
+   * Charges rendered values against the work budget for the display call.
+   *
+   * @param work the number of values rendered
+   * @return true if the budget was not spent before this call
+   */
+  public boolean charge(long work) {
+    boolean available = remainingWork > 0;
+    this.remainingWork -= work;
+    return available;
+  }
+
+  /**
+   * @return true if the work budget for the display call is spent
+   */
+  public boolean isExhausted() {
+    return remainingWork <= 0;
+  }
+
+  /**
+   * Returns the text to show in place of a value that could not be entered.
+   * <p>
+   * Arrays and collections are shown as {@code [...]}, like
+   * {@link java.util.Arrays#deepToString(Object[])}, maps as {@code {...}},
+   * and other values as {@code ...}.
+   *
+   * @param obj a value
+   * @return a marker for the value
+   */
+  public String getMarker(Object obj) {
+    if (obj != null && (obj.getClass().isArray() || obj instanceof Collection)) {
+      return "[...]";
+    } else if (obj instanceof Map) {
+      return "{...}";
+    } else {
+      return "...";
+    }
+  }
+
+  /**
+   * The display calls in progress on one thread, and their shared context.
+   */
+  static class Frame {
+    private int displays = 0;
+    private RenderContext context = null;
+  }
+}
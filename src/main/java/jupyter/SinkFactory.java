@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+/**
+ * Supplies destinations for representations that are streamed by
+ * {@link Displayer#displayTo(Object, SinkFactory)}, by MIME type.
+ * <p>
+ * Kernels can implement this interface to write representations directly to
+ * the wire instead of building a Map of Strings.
+ */
+@FunctionalInterface
+public interface SinkFactory {
+  /**
+   * Called to open a destination for one representation.
+   * <p>
+   * Displayers call this method once for each MIME type they produce, write
+   * the representation to the returned {@link Appendable}, and then call
+   * {@link #close(String, Appendable)}.
+   *
+   * @param mimeType the MIME type of the representation
+   * @return an Appendable for the representation, or null to skip this MIME type
+   * @throws IOException if the destination cannot be opened
+   */
+  Appendable open(String mimeType) throws IOException;
+
+  /**
+   * Called to open a destination for the bytes of a binary representation.
+   * <p>
+   * Displayers that produce binary data, like {@link BinaryDisplayData}, call
+   * this method before falling back to writing Base64-encoded text to
+   * {@link #open(String)}. The returned channel is not closed.
+   * <p>
+   * By default, this returns null so that binary data is written as text.
+   *
+   * @param mimeType the MIME type of the representation
+   * @return a channel for the representation's bytes, or null to receive it as text
+   * @throws IOException if the destination cannot be opened
+   */
+  default WritableByteChannel openBinary(String mimeType) throws IOException {
+    return null;
+  }
+
+  /**
+   * Called when a representation is complete.
+   * <p>
+   * By default, this closes the destination if it is {@link Closeable}, or
+   * flushes it if it is {@link Flushable}.
+   *
+   * @param mimeType the MIME type of the representation
+   * @param out the Appendable returned by {@link #open(String)}
+   * @throws IOException if the destination cannot be closed
+   */
+  default void close(String mimeType, Appendable out) throws IOException {
+    if (out instanceof Closeable) {
+      ((Closeable) out).close();
+    } else if (out instanceof Flushable) {
+      ((Flushable) out).flush();
+    }
+  }
+
+  /**
+   * Returns a SinkFactory that writes representations as UTF-8 to byte channels.
+   * <p>
+   * Channels are flushed but not closed when a representation is complete.
+   *
+   * @param channels returns a channel for a MIME type, or null to skip it
+   * @return a SinkFactory for the channels
+   */
+  static SinkFactory toChannels(final Function<String, ? extends WritableByteChannel> channels) {
+    return new SinkFactory() {
+      @Override
+      public Appendable open(String mimeType) {
+        WritableByteChannel channel = channels.apply(mimeType);
+        if (channel == null) {
+          return null;
+        }
+        return Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1);
+      }
+
+      @Override
+      public void close(String mimeType, Appendable out) throws IOException {
+        ((Writer) out).flush();
+      }
+    };
+  }
+}
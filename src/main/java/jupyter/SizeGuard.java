@@ -0,0 +1,389 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Enforces the {@link DisplayLimits#getMaxResultChars()} budget of one display call.
+ * <p>
+ * Representations use the budget in order. Text that does not fit in what is left is truncated or
+ * spilled to a temporary file, depending on {@link DisplayLimits#getOverflow()}. Binary
+ * representations and representations that are already in files are not counted.
+ * <p>
+ * Representations of a {@link LazyDisplayData} are checked when they are computed. When they may
+ * be spilled, the result is a {@link BinaryDisplayData} that computes them when they are first
+ * requested. Displayers that override {@link Displayer#displayTo(Object, SinkFactory)} are
+ * streamed instead of displayed when representations may be spilled, so a representation is
+ * written to its spill file as it is produced and is never held in memory in full.
+ * <p>
+ * Spilled representations are bounded in memory only if they are read as bytes. Reading one with
+ * {@link Map#get(Object)} reads the whole file back into one String.
+ */
+class SizeGuard implements BiFunction<String, String, String> {
+  private static final String MARKER = "...";
+
+  // whether a Displayer or AsDisplayData class overrides displayTo
+  private static final ClassValue<Boolean> STREAMS = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      try {
+        if (Displayer.class.isAssignableFrom(type)) {
+          return type.getMethod("displayTo", Object.class, SinkFactory.class)
+              .getDeclaringClass() != Displayer.class;
+        }
+        return type.getMethod("displayTo", SinkFactory.class)
+            .getDeclaringClass() != AsDisplayData.class;
+      } catch (NoSuchMethodException e) {
+        return false;
+      }
+    }
+  };
+
+  private final DisplayLimits limits;
+  private final Class<?> objClass;
+  private final Displayer<?> displayer;
+  private final DisplayListener[] listeners;
+  private long remaining;
+
+  private SizeGuard(DisplayLimits limits, Class<?> objClass, Displayer<?> displayer,
+                    DisplayListener[] listeners) {
+    this.limits = limits;
+    this.objClass = objClass;
+    this.displayer = displayer;
+    this.listeners = listeners;
+    this.remaining = limits.getMaxResultChars();
+  }
+
+  /**
+   * Returns whether an object should be displayed with {@link #stream}, because its
+   * representations may be spilled and the displayer can stream them.
+   *
+   * @param limits limits of the display call
+   * @param displayer the Displayer for obj, or a displayer that delegates to it
+   * @param obj the displayed object
+   * @return true if obj should be streamed
+   */
+  static boolean streams(DisplayLimits limits, Displayer<?> displayer, Object obj) {
+    if (limits.getOverflow() != DisplayLimits.Overflow.SPILL ||
+        limits.getMaxResultChars() == Integer.MAX_VALUE) {
+      return false;
+    }
+    if (displayer instanceof ElementTypeDispatcher) {
+      return streams(limits, ((ElementTypeDispatcher) displayer).select(obj), obj);
+    } else if (displayer instanceof Registration.AsDisplayDataDisplayer) {
+      // the registry's AsDisplayData displayer streams only if the object does
+      return STREAMS.get(obj.getClass());
+    }
+    return STREAMS.get(displayer.getClass());
+  }
+
+  /**
+   * Displays an object by streaming its representations, spilling each one that does not fit in
+   * the budget to a file as it is written.
+   *
+   * @param obj the displayed object
+   * @param displayer the Displayer for obj
+   * @param limits limits of the display call
+   * @param listeners listeners to notify when a representation does not fit
+   * @return representations that fit in the budget, by MIME type
+   */
+  static <T> BinaryDisplayData stream(T obj, Displayer<? super T> displayer, DisplayLimits limits,
+                                      DisplayListener[] listeners) {
+    SizeGuard guard = new SizeGuard(limits, obj.getClass(), displayer, listeners);
+    GuardedSinks sinks = guard.new GuardedSinks();
+    try {
+      displayer.displayTo(obj, sinks);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot display " + obj.getClass().getName(), e);
+    }
+    return sinks.finish();
+  }
+
+  /**
+   * Returns a display result whose text representations fit in the budget of the given limits.
+   * <p>
+   * The result is returned unchanged if it fits. Otherwise, a copy is returned, so that results
+   * cached by a displayer are not modified.
+   *
+   * @param result representations by MIME type
+   * @param limits limits of the display call
+   * @param objClass the class of the displayed object
+   * @param displayer the Displayer that produced result
+   * @param listeners listeners to notify when a representation does not fit
+   * @return representations that fit in the budget, by MIME type
+   */
+  static Map<String, String> apply(Map<String, String> result, DisplayLimits limits,
+                                   Class<?> objClass, Displayer<?> displayer,
+                                   DisplayListener[] listeners) {
+    if (result.isEmpty() || limits.getMaxResultChars() == Integer.MAX_VALUE) {
+      return result;
+    }
+
+    SizeGuard guard = new SizeGuard(limits, objClass, displayer, listeners);
+    if (result instanceof LazyDisplayData) {
+      if (limits.getOverflow() == DisplayLimits.Overflow.SPILL) {
+        return ((LazyDisplayData) result).defer(guard);
+      }
+      return ((LazyDisplayData) result).transform(guard);
+    } else if (result instanceof BinaryDisplayData) {
+      return guard.applyEager(result, (BinaryDisplayData) result);
+    } else {
+      return guard.applyEager(result, null);
+    }
+  }
+
+  /**
+   * Checks a lazy representation when it is computed.
+   */
+  @Override
+  public String apply(String mimeType, String text) {
+    if (text == null || text.length() <= remaining) {
+      this.remaining -= text != null ? text.length() : 0;
+      return text;
+    }
+    return truncate(mimeType, text, text.length());
+  }
+
+  /**
+   * Adds a representation to a guarded result, spilling it to a file if it does not fit.
+   */
+  void place(BinaryDisplayData guarded, String mimeType, String text) {
+    if (text == null || text.length() <= remaining) {
+      this.remaining -= text != null ? text.length() : 0;
+      guarded.put(mimeType, text);
+    } else if (!spill(guarded, mimeType, text)) {
+      guarded.put(mimeType, truncate(mimeType, text, text.length()));
+    }
+  }
+
+  private Map<String, String> applyEager(Map<String, String> result, BinaryDisplayData binary) {
+    long total = 0;
+    for (String mimeType : result.keySet()) {
+      String text = binary != null ? binary.getString(mimeType) : result.get(mimeType);
+      total += text != null ? text.length() : 0;
+    }
+    if (total <= remaining) {
+      return result;
+    }
+
+    boolean spill = limits.getOverflow() == DisplayLimits.Overflow.SPILL;
+    Map<String, String> guarded;
+    if (binary != null) {
+      guarded = binary.copy();
+    } else if (spill) {
+      guarded = new BinaryDisplayData();
+    } else {
+      guarded = new LinkedHashMap<>();
+    }
+
+    for (String mimeType : result.keySet()) {
+      String text = binary != null ? binary.getString(mimeType) : result.get(mimeType);
+      if (text == null && binary != null) {
+        continue; // binary or in a file, already in the copy
+      } else if (spill) {
+        place((BinaryDisplayData) guarded, mimeType, text);
+      } else {
+        guarded.put(mimeType, apply(mimeType, text));
+      }
+    }
+
+    return guarded;
+  }
+
+  private String truncate(String mimeType, CharSequence text, long length) {
+    int end = (int) Math.min(remaining, text.length());
+    if (end > 0 && Character.isHighSurrogate(text.charAt(end - 1))) {
+      end -= 1;
+    }
+    this.remaining = 0;
+    oversized(mimeType, length, false);
+    return text.subSequence(0, end) + MARKER;
+  }
+
+  /**
+   * Writes a representation to a file in the {@link SpillDirectory}, which is deleted when the
+   * guarded result and its copies are garbage collected.
+   *
+   * @return true if the representation was written, false if it should be truncated instead
+   */
+  private boolean spill(BinaryDisplayData guarded, String mimeType, String text) {
+    try {
+      Object owner = new Object();
+      Path file = SpillDirectory.get().write(owner, text);
+      if (file == null) {
+        return false;
+      }
+      guarded.putSpilledText(mimeType, file, Files.size(file), owner);
+    } catch (IOException e) {
+      return false;
+    }
+    oversized(mimeType, text.length(), true);
+    return true;
+  }
+
+  private void oversized(String mimeType, long length, boolean spilled) {
+    for (DisplayListener listener : listeners) {
+      listener.onOversized(objClass, displayer, mimeType, length, spilled);
+    }
+  }
+
+  /**
+   * Adds streamed representations to a guarded result.
+   */
+  private class GuardedSinks implements SinkFactory {
+    private final BinaryDisplayData guarded = new BinaryDisplayData();
+    private final Map<String, ByteArrayOutputStream> binaries = new LinkedHashMap<>();
+
+    @Override
+    public Appendable open(String mimeType) {
+      return new GuardedSink(guarded, mimeType);
+    }
+
+    @Override
+    public WritableByteChannel openBinary(String mimeType) {
+      // binary representations are not counted, and are added when streaming is done
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      binaries.put(mimeType, bytes);
+      guarded.putBinary(mimeType, new byte[0]);
+      return Channels.newChannel(bytes);
+    }
+
+    @Override
+    public void close(String mimeType, Appendable out) {
+      ((GuardedSink) out).close();
+    }
+
+    private BinaryDisplayData finish() {
+      for (Map.Entry<String, ByteArrayOutputStream> entry : binaries.entrySet()) {
+        guarded.putBinary(entry.getKey(), entry.getValue().toByteArray());
+      }
+      return guarded;
+    }
+  }
+
+  /**
+   * Buffers a streamed representation while it fits in the budget, and then writes it to a spill
+   * file. The buffer keeps the part that fits, in case the representation cannot be spilled.
+   */
+  private class GuardedSink extends Writer {
+    private final BinaryDisplayData guarded;
+    private final String mimeType;
+    private final StringBuilder buffer = new StringBuilder();
+    private long length = 0;
+    private boolean overflowed = false;
+    private Path file = null;
+    private Writer spill = null;
+    private boolean failed = false;
+    private boolean closed = false;
+
+    private GuardedSink(BinaryDisplayData guarded, String mimeType) {
+      this.guarded = guarded;
+      this.mimeType = mimeType;
+    }
+
+    @Override
+    public void write(char[] chars, int off, int len) {
+      this.length += len;
+      if (!overflowed) {
+        if (length <= remaining) {
+          buffer.append(chars, off, len);
+          return;
+        }
+        this.overflowed = true;
+        int fits = (int) Math.max(0, Math.min(len, remaining - buffer.length()));
+        try {
+          this.file = SpillDirectory.get().createFile();
+          this.spill = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+          spill.append(buffer);
+        } catch (IOException e) {
+          this.failed = true;
+        }
+        buffer.append(chars, off, fits);
+      }
+
+      if (!failed) {
+        try {
+          spill.write(chars, off, len);
+        } catch (IOException e) {
+          this.failed = true;
+        }
+      }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+      if (closed) {
+        return;
+      }
+      this.closed = true;
+
+      if (!overflowed) {
+        place(guarded, mimeType, buffer.toString());
+        return;
+      }
+
+      boolean spilled = false;
+      if (file != null) {
+        try {
+          if (spill != null) {
+            spill.close();
+          }
+          Object owner = new Object();
+          if (!failed && SpillDirectory.get().add(owner, file)) {
+            guarded.putSpilledText(mimeType, file, Files.size(file), owner);
+            spilled = true;
+          }
+        } catch (IOException e) {
+          // truncate instead
+        }
+        if (!spilled) {
+          deleteQuietly(file);
+        }
+      }
+
+      if (spilled) {
+        oversized(mimeType, length, true);
+      } else {
+        guarded.put(mimeType, truncate(mimeType, buffer, length));
+      }
+    }
+  }
+
+  private static void deleteQuietly(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      // the spill directory is deleted when the JVM exits
+    }
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * The directory that holds representations spilled by {@link SizeGuard}.
+ * <p>
+ * Spill files are written to one temporary directory owned by this class, which holds at most
+ * {@code jupyter.display.maxSpillBytes} bytes (256 MiB by default). A spill file is deleted when
+ * the {@link BinaryDisplayData} that holds it is released or replaces the representation, when
+ * no BinaryDisplayData that refers to it is reachable, when the directory is over its size cap
+ * (oldest files first), and when the JVM exits.
+ */
+final class SpillDirectory {
+  private static final Logger LOG = Logger.getLogger(SpillDirectory.class.getName());
+  private static final String MAX_BYTES_PROPERTY = "jupyter.display.maxSpillBytes";
+  private static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+  private static final SpillDirectory INSTANCE = new SpillDirectory(maxBytesProperty());
+
+  static SpillDirectory get() {
+    return INSTANCE;
+  }
+
+  private final long maxBytes;
+  private final ReferenceQueue<Object> released = new ReferenceQueue<>();
+  // oldest first
+  private final LinkedHashMap<Path, Spill> spills = new LinkedHashMap<>();
+  private Path dir = null;
+  private long totalBytes = 0;
+
+  SpillDirectory(long maxBytes) {
+    if (maxBytes < 1) {
+      throw new IllegalArgumentException("Invalid maxBytes: " + maxBytes + " (must be positive)");
+    }
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Writes text to a new spill file.
+   *
+   * @param owner an object held by every result that refers to the file; the file is deleted
+   *              when it is garbage collected
+   * @param text text to write as UTF-8
+   * @return the spill file, or null if the text is larger than the size cap
+   * @throws IOException if the file cannot be written
+   */
+  Path write(Object owner, String text) throws IOException {
+    Path file = createFile();
+    try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writer.write(text);
+    } catch (IOException e) {
+      deleteQuietly(file);
+      throw e;
+    }
+    return add(owner, file) ? file : null;
+  }
+
+  /**
+   * Creates an empty file in the spill directory, which is not tracked until it is passed to
+   * {@link #add(Object, Path)}.
+   *
+   * @return a new file
+   * @throws IOException if the file cannot be created
+   */
+  synchronized Path createFile() throws IOException {
+    expungeReleased();
+    return Files.createTempFile(directory(), "display-", ".txt");
+  }
+
+  /**
+   * Tracks a file returned by {@link #createFile()} after it is written, and deletes the oldest
+   * files if the directory is over its size cap.
+   *
+   * @param owner an object held by every result that refers to the file; the file is deleted
+   *              when it is garbage collected
+   * @param file a file returned by {@link #createFile()}
+   * @return true if the file was added, false if it was deleted because it is larger than the cap
+   * @throws IOException if the file's size cannot be read
+   */
+  synchronized boolean add(Object owner, Path file) throws IOException {
+    expungeReleased();
+
+    long size;
+    try {
+      size = Files.size(file);
+    } catch (IOException e) {
+      deleteQuietly(file);
+      throw e;
+    }
+    if (size > maxBytes) {
+      deleteQuietly(file);
+      return false;
+    }
+
+    spills.put(file, new Spill(owner, file, size, released));
+    this.totalBytes += size;
+
+    Iterator<Spill> oldest = spills.values().iterator();
+    while (totalBytes > maxBytes && oldest.hasNext()) {
+      Spill spill = oldest.next();
+      oldest.remove();
+      spill.clear();
+      this.totalBytes -= spill.size;
+      deleteQuietly(spill.file);
+    }
+
+    return true;
+  }
+
+  /**
+   * Deletes a spill file that is no longer used.
+   *
+   * @param file a file returned by {@link #write(Object, String)}
+   */
+  synchronized void delete(Path file) {
+    Spill spill = spills.remove(file);
+    if (spill != null) {
+      spill.clear();
+      this.totalBytes -= spill.size;
+      deleteQuietly(file);
+    }
+  }
+
+  /**
+   * @return the number of bytes in spill files
+   */
+  synchronized long getSize() {
+    expungeReleased();
+    return totalBytes;
+  }
+
+  /**
+   * @return the number of spill files
+   */
+  synchronized int getFileCount() {
+    expungeReleased();
+    return spills.size();
+  }
+
+  private Path directory() throws IOException {
+    if (dir == null) {
+      this.dir = Files.createTempDirectory("jupyter-display-");
+      Runtime.getRuntime().addShutdownHook(new Thread("jupyter-display-spill-cleanup") {
+        @Override
+        public void run() {
+          deleteAll();
+        }
+      });
+    }
+    return dir;
+  }
+
+  private synchronized void deleteAll() {
+    List<Path> files = new ArrayList<>(spills.keySet());
+    spills.clear();
+    this.totalBytes = 0;
+    for (Path file : files) {
+      deleteQuietly(file);
+    }
+    if (dir != null) {
+      deleteQuietly(dir);
+    }
+  }
+
+  private void expungeReleased() {
+    Reference<?> ref;
+    while ((ref = released.poll()) != null) {
+      Spill spill = (Spill) ref;
+      if (spills.get(spill.file) == spill) {
+        spills.remove(spill.file);
+        this.totalBytes -= spill.size;
+        deleteQuietly(spill.file);
+      }
+    }
+  }
+
+  private static void deleteQuietly(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      LOG.warning("Cannot delete " + file + ": " + e);
+    }
+  }
+
+  private static long maxBytesProperty() {
+    String value = System.getProperty(MAX_BYTES_PROPERTY);
+    if (value == null) {
+      return DEFAULT_MAX_BYTES;
+    }
+    try {
+      long parsed = Long.parseLong(value.trim());
+      if (parsed >= 1) {
+        return parsed;
+      }
+    } catch (NumberFormatException e) {
+      // fall through to the warning
+    }
+    LOG.warning("Invalid " + MAX_BYTES_PROPERTY + ": " + value + " (must be positive), using " +
+        DEFAULT_MAX_BYTES);
+    return DEFAULT_MAX_BYTES;
+  }
+
+  private static class Spill extends PhantomReference<Object> {
+    private final Path file;
+    private final long size;
+
+    private Spill(Object owner, Path file, long size, ReferenceQueue<Object> queue) {
+      super(owner, queue);
+      this.file = file;
+      this.size = size;
+    }
+  }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Displays tabular data one page at a time.
+ * <p>
+ * Subclasses convert objects to a {@link TableSource}. {@link #display(Object)}
+ * reads and renders only the first page, as {@code text/plain} and
+ * {@code text/html}. Kernels can show other pages with
+ * {@link #displayPage(Object, long, int)} or
+ * {@link Displayers#displayPage(Object, long, int)}, so browsing a large table
+ * costs time and memory proportional to the page size.
+ *
+ * @param <T> the class or interface of objects the instance can convert.
+ */
+public abstract class TableDisplayer<T> extends Displayer<T> {
+  /**
+   * The number of rows shown by {@link #display(Object)} unless configured.
+   */
+  public static final int DEFAULT_PAGE_SIZE = 25;
+
+  private static final int MAX_CELL_WIDTH = 80;
+  private static final int SAMPLE_SIZE = 100;
+  private static final Set<String> MIME_TYPES = Collections.unmodifiableSet(
+      new HashSet<>(Arrays.asList(MIMETypes.TEXT, MIMETypes.HTML)));
+
+  private final int pageSize;
+
+  protected TableDisplayer() {
+    this(DEFAULT_PAGE_SIZE);
+  }
+
+  /**
+   * @param pageSize the number of rows shown by {@link #display(Object)}
+   */
+  protected TableDisplayer(int pageSize) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("Invalid page size: " + pageSize + " (must be positive)");
+    }
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * Returns a TableDisplayer for lists of rows, where each row is a Map from
+   * column name to value.
+   *
+   * @return a TableDisplayer for lists of Maps
+   * @see TableSource#fromRows(List, int)
+   */
+  public static TableDisplayer<List<? extends Map<String, ?>>> ofRows() {
+    return new TableDisplayer<List<? extends Map<String, ?>>>() {
+      @Override
+      protected TableSource toTable(List<? extends Map<String, ?>> rows) {
+        return TableSource.fromRows(rows, SAMPLE_SIZE);
+      }
+    };
+  }
+
+  /**
+   * Converts an object to a TableSource.
+   * <p>
+   * This is called each time a page is displayed and should not read any rows.
+   *
+   * @param obj an object to display
+   * @return a TableSource for the object
+   */
+  protected abstract TableSource toTable(T obj);
+
+  /**
+   * @return the number of rows shown by {@link #display(Object)}
+   */
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  @Override
+  public Set<String> getProducedMimeTypes() {
+    return MIME_TYPES;
+  }
+
+  @Override
+  public Map<String, String> display(T obj) {
+    return displayPage(obj, 0, pageSize);
+  }
+
+  /**
+   * Displays a page of rows.
+   *
+   * @param obj an object to display
+   * @param offset the index of the first row to show
+   * @param limit the maximum number of rows to show
+   * @return a Map of representations of the page by MIME type
+   * @throws IllegalArgumentException if offset or limit is negative
+   */
+  public Map<String, String> displayPage(T obj, long offset, int limit) {
+    checkPage(offset, limit);
+    RenderContext context = RenderContext.current();
+    if (!context.enter(obj)) {
+      return Collections.singletonMap(MIMETypes.TEXT, context.getMarker(obj));
+    }
+
+    final Page page;
+    try {
+      TableSource table = toTable(obj);
+      page = new Page(
+          table.getColumnNames(), table.read(offset, limit), table.getRowCount(), context);
+    } finally {
+      context.exit(obj);
+    }
+
+    return new LazyDisplayData()
+        .add(MIMETypes.TEXT, new Supplier<String>() {
+          @Override
+          public String get() {
+            return page.toText();
+          }
+        })
+        .add(MIMETypes.HTML, new Supplier<String>() {
+          @Override
+          public String get() {
+            return page.toHtml();
+          }
+        });
+  }
+
+  /**
+   * Checks the offset and limit of a requested page.
+   */
+  static void checkPage(long offset, int limit) {
+    if (offset < 0) {
+      throw new IllegalArgumentException("Invalid offset: " + offset + " (must be >= 0)");
+    }
+    if (limit < 0) {
+      throw new IllegalArgumentException("Invalid limit: " + limit + " (must be >= 0)");
+    }
+  }
+
+  /**
+   * The formatted cells of one page.
+   */
+  private static class Page {
+    private final List<String> names;
+    private final String[][] cells;
+    private final boolean[] numeric;
+    private final long offset;
+    private final long rowCount;
+
+    private Page(List<String> names, ColumnBatch batch, long rowCount, RenderContext context) {
+      this.names = names;
+      this.offset = batch.getOffset();
+      this.rowCount = rowCount;
+      this.numeric = new boolean[batch.getNumColumns()];
+      this.cells = new String[batch.getNumRows()][batch.getNumColumns()];
+      for (int c = 0; c < batch.getNumColumns(); c += 1) {
+        numeric[c] = true;
+        for (int r = 0; r < batch.getNumRows(); r += 1) {
+          Object value = batch.getValue(r, c);
+          numeric[c] &= value == null || value instanceof Number;
+          cells[r][c] = formatCell(value, context);
+        }
+      }
+    }
+
+    private static String formatCell(Object value, RenderContext context) {
+      String text = null;
+      if (context.isRendering(value)) {
+        text = context.getMarker(value);
+      } else if (!context.charge(1)) {
+        text = "...";
+      } else if (value != null) {
+        text = displayText(value);
+      }
+      if (text == null) {
+        text = String.valueOf(value);
+      }
+      if (text.length() > MAX_CELL_WIDTH) {
+        text = text.substring(0, MAX_CELL_WIDTH - 3) + "...";
+      }
+      return text.replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * Returns a value's text from its displayer. Results from the registry are restricted to the
+     * MIME type hint, which may not include text, so the displayer is called directly.
+     */
+    @SuppressWarnings("unchecked")
+    private static <V> String displayText(V value) {
+      Displayer<? super V> displayer =
+          Displayers.registration().find((Class<V>) value.getClass());
+      return displayer != null ? displayer.display(value).get(MIMETypes.TEXT) : null;
+    }
+
+    private boolean isPartial() {
+      return offset > 0 || rowCount < 0 || rowCount > offset + cells.length;
+    }
+
+    private String footer() {
+      String shown = cells.length > 0 ?
+          "rows " + (offset + 1) + "-" + (offset + cells.length) : "no rows at " + offset;
+      return rowCount >= 0 ? shown + " of " + rowCount : shown;
+    }
+
+    private String toText() {
+      int[] widths = new int[names.size()];
+      for (int c = 0; c < widths.length; c += 1) {
+        widths[c] = names.get(c).length();
+        for (String[] row : cells) {
+          widths[c] = Math.max(widths[c], row[c].length());
+        }
+      }
+
+      StringBuilder sb = new StringBuilder();
+      for (int c = 0; c < widths.length; c += 1) {
+        if (c > 0) {
+          sb.append(" | ");
+        }
+        pad(sb, names.get(c), widths[c], false);
+      }
+      sb.append('\n');
+      for (int c = 0; c < widths.length; c += 1) {
+        if (c > 0) {
+          sb.append("-+-");
+        }
+        for (int i = 0; i < widths[c]; i += 1) {
+          sb.append('-');
+        }
+      }
+      for (String[] row : cells) {
+        sb.append('\n');
+        for (int c = 0; c < widths.length; c += 1) {
+          if (c > 0) {
+            sb.append(" | ");
+          }
+          pad(sb, row[c], widths[c], numeric[c]);
+        }
+      }
+      if (isPartial()) {
+        sb.append("\n(").append(footer()).append(')');
+      }
+      return sb.toString();
+    }
+
+    private static void pad(StringBuilder sb, String text, int width, boolean alignRight) {
+      if (!alignRight) {
+        sb.append(text);
+      }
+      for (int i = text.length(); i < width; i += 1) {
+        sb.append(' ');
+      }
+      if (alignRight) {
+        sb.append(text);
+      }
+    }
+
+    private String toHtml() {
+      StringBuilder sb = new StringBuilder();
+      HtmlWriter html = new HtmlWriter(sb);
+      html.startTable().header(names);
+      for (String[] row : cells) {
+        html.startRow();
+        for (String cell : row) {
+          html.cell(cell);
+        }
+        html.endRow();
+      }
+      html.endTable();
+      if (isPartial()) {
+        sb.append("<p>").append(footer()).append("</p>");
+      }
+      return sb.toString();
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tabular data that can be read a page at a time, for {@link TableDisplayer}.
+ * <p>
+ * Implementations should make {@link #read(long, int)} cost proportional to the
+ * number of rows read, so that displaying or paging through a large table does
+ * not depend on its size.
+ */
+public interface TableSource {
+  /**
+   * @return the names of the table's columns
+   */
+  List<String> getColumnNames();
+
+  /**
+   * @return the number of rows in the table, or -1 if it is not known
+   */
+  long getRowCount();
+
+  /**
+   * Reads consecutive rows.
+   *
+   * @param offset the index of the first row to read
+   * @param limit the maximum number of rows to read
+   * @return a ColumnBatch with up to limit rows, with fewer only at the end of the table
+   * @throws IllegalArgumentException if offset or limit is negative
+   */
+  ColumnBatch read(long offset, int limit);
+
+  /**
+   * Returns a TableSource for a list of rows, where each row is a Map from
+   * column name to value.
+   * <p>
+   * Column names are taken from the keys of the first rows, up to
+   * {@code sampleSize} rows, in the order they are first seen. Reading is
+   * proportional to the page size for {@link java.util.RandomAccess} lists.
+   *
+   * @param rows a list of rows
+   * @param sampleSize the number of rows used to find column names
+   * @return a TableSource for the rows
+   */
+  static TableSource fromRows(final List<? extends Map<String, ?>> rows, int sampleSize) {
+    final List<String> columnNames = new ArrayList<>();
+    Set<String> seen = new LinkedHashSet<>();
+    Iterator<? extends Map<String, ?>> sample = rows.iterator();
+    for (int i = 0; i < sampleSize && sample.hasNext(); i += 1) {
+      Map<String, ?> row = sample.next();
+      if (row != null) {
+        seen.addAll(row.keySet());
+      }
+    }
+    columnNames.addAll(seen);
+
+    return new TableSource() {
+      @Override
+      public List<String> getColumnNames() {
+        return columnNames;
+      }
+
+      @Override
+      public long getRowCount() {
+        return rows.size();
+      }
+
+      @Override
+      public ColumnBatch read(long offset, int limit) {
+        TableDisplayer.checkPage(offset, limit);
+        int start = (int) Math.min(offset, rows.size());
+        int numRows = Math.min(limit, rows.size() - start);
+        Object[][] columns = new Object[columnNames.size()][numRows];
+        ListIterator<? extends Map<String, ?>> iter = rows.listIterator(start);
+        for (int r = 0; r < numRows; r += 1) {
+          Map<String, ?> row = iter.next();
+          for (int c = 0; c < columns.length; c += 1) {
+            columns[c][r] = row != null ? row.get(columnNames.get(c)) : null;
+          }
+        }
+        return new ColumnBatch(start, numRows, (Object[]) columns);
+      }
+    };
+  }
+}
@@ -16,69 +16,57 @@
 
 package jupyter;
 
-import java.util.Arrays;
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * The default displayer, which shows objects as {@code text/plain} using {@link Object#toString()}
+ * and arrays using {@link ArrayFormatter}.
+ * <p>
+ * Results are immutable single-entry maps, and arrays are formatted in a reused buffer, so
+ * displaying a small object only allocates its text and the result.
+ */
 class ToStringDisplayer extends Displayer<Object> {
 
   private static final ToStringDisplayer INSTANCE = new ToStringDisplayer();
+  private static final Set<String> MIME_TYPES = Collections.singleton(MIMETypes.TEXT);
 
   public static Displayer<Object> get() {
     return INSTANCE;
   }
 
   @Override
-  public Map<String, String> display(Object obj) {
-    Map<String, String> result = new HashMap<>();
+  public Set<String> getProducedMimeTypes() {
+    return MIME_TYPES;
+  }
 
+  @Override
+  public Map<String, String> display(Object obj) {
+    String text;
     if (obj.getClass().isArray()) {
-      result.put("text/plain", displayArray(obj));
+      text = ArrayFormatter.format(obj, Displayers.registration().getLimits());
     } else {
-      result.put("text/plain", obj.toString());
+      text = obj.toString();
     }
 
-    return result;
+    return Collections.singletonMap(MIMETypes.TEXT, text);
   }
 
-  private String displayArray(Object obj) {
-    Class<?> type = obj.getClass().getComponentType();
-    if (type == Boolean.TYPE) {
-      return Arrays.toString((boolean[]) obj);
-    } else if (type == Byte.TYPE) {
-      return Arrays.toString((byte[]) obj);
-    } else if (type == Short.TYPE) {
-      return Arrays.toString((short[]) obj);
-    } else if (type == Integer.TYPE) {
-      return Arrays.toString((int[]) obj);
-    } else if (type == Long.TYPE) {
-      return Arrays.toString((long[]) obj);
-    } else if (type == Float.TYPE) {
-      return Arrays.toString((float[]) obj);
-    } else if (type == Double.TYPE) {
-      return Arrays.toString((double[]) obj);
-    } else if (type == Character.TYPE) {
-      return Arrays.toString((char[]) obj);
-    } else {
-      Object[] arr = (Object[]) obj;
-      StringBuilder sb = new StringBuilder();
-
-      sb.append("[");
-      if (arr.length > 0) {
-        sb.append(displayElement(arr[0]));
-        for (int i = 1; i < arr.length; i += 1) {
-          String asText = displayElement(arr[i]);
-          sb.append(", ").append(asText);
+  @Override
+  public void displayTo(Object obj, SinkFactory sinks) throws IOException {
+    Appendable out = sinks.open(MIMETypes.TEXT);
+    if (out != null) {
+      try {
+        if (obj.getClass().isArray()) {
+          ArrayFormatter.format(obj, Displayers.registration().getLimits(), out);
+        } else {
+          out.append(obj.toString());
         }
+      } finally {
+        sinks.close(MIMETypes.TEXT, out);
       }
-      sb.append("]");
-
-      return sb.toString();
     }
   }
-
-  private String displayElement(Object obj) {
-    // Displayers.display doesn't accept nulls
-    return obj != null ? Displayers.display(obj).get("text/plain") : "null";
-  }
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+/**
+ * Captures a parameterized type, like {@code List<Double>}, so that a displayer can be registered
+ * for it. The type is captured by creating an anonymous subclass:
+ * <pre>
+ *   Displayers.register(new TypeToken&lt;List&lt;Double&gt;&gt;() {}, new DoubleListDisplayer());
+ * </pre>
+ *
+ * @param <T> the captured type
+ * @see Registration#add(Type, Displayer)
+ */
+public abstract class TypeToken<T> {
+  private final Type type;
+
+  protected TypeToken() {
+    Type superclass = getClass().getGenericSuperclass();
+    if (!(superclass instanceof ParameterizedType)) {
+      throw new IllegalArgumentException(
+          "Invalid TypeToken: " + getClass().getName() + " (must have a type argument)");
+    }
+    this.type = ((ParameterizedType) superclass).getActualTypeArguments()[0];
+  }
+
+  /**
+   * @return the captured type
+   */
+  public Type getType() {
+    return type;
+  }
+
+  @Override
+  public String toString() {
+    return "TypeToken(" + type.getTypeName() + ")";
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TestBinaryDisplayData {
+
+  private static final byte[] PNG_BYTES = new byte[] { (byte) 0x89, 'P', 'N', 'G', 0, 1, 2, 3 };
+
+  @Before
+  @After
+  public void clearGlobals() {
+    Displayers.registration().clear();
+  }
+
+  private static class Image {
+  }
+
+  @Test
+  public void testBase64Compatibility() {
+    BinaryDisplayData data = new BinaryDisplayData().putBinary(MIMETypes.PNG, PNG_BYTES);
+    data.put(MIMETypes.TEXT, "image");
+
+    Map<String, String> expected = new HashMap<>();
+    expected.put(MIMETypes.PNG, Base64.getEncoder().encodeToString(PNG_BYTES));
+    expected.put(MIMETypes.TEXT, "image");
+
+    Assert.assertEquals("Should Base64-encode binary data for String callers", expected, data);
+    Assert.assertTrue("Should report PNG as binary", data.isBinary(MIMETypes.PNG));
+    Assert.assertFalse("Should report text as not binary", data.isBinary(MIMETypes.TEXT));
+    Assert.assertEquals("Should report size in bytes",
+        PNG_BYTES.length, data.getSize(MIMETypes.PNG));
+  }
+
+  @Test
+  public void testDirectBuffer() {
+    ByteBuffer direct = ByteBuffer.allocateDirect(PNG_BYTES.length);
+    direct.put(PNG_BYTES).flip();
+
+    BinaryDisplayData data = new BinaryDisplayData().putBinary(MIMETypes.PNG, direct);
+    ByteBuffer buffer = data.getBuffer(MIMETypes.PNG);
+
+    Assert.assertTrue("Should not copy direct buffers", buffer.isDirect());
+    Assert.assertTrue("Should return read-only buffers", buffer.isReadOnly());
+    Assert.assertEquals("Should not change the buffer position", 0, direct.position());
+    Assert.assertEquals("Should return the same bytes", ByteBuffer.wrap(PNG_BYTES), buffer);
+  }
+
+  @Test
+  public void testFileRegions() throws IOException {
+    Path file = Files.createTempFile("test-binary-display-data", ".bin");
+    try {
+      byte[] contents = new byte[PNG_BYTES.length + 4];
+      System.arraycopy(PNG_BYTES, 0, contents, 2, PNG_BYTES.length);
+      Files.write(file, contents);
+
+      BinaryDisplayData data = new BinaryDisplayData()
+          .putFile(MIMETypes.PNG, file, 2, PNG_BYTES.length);
+      Assert.assertEquals("Should read the file region",
+          ByteBuffer.wrap(PNG_BYTES), data.getBuffer(MIMETypes.PNG));
+      Assert.assertEquals("Should Base64-encode the file region",
+          Base64.getEncoder().encodeToString(PNG_BYTES), data.get(MIMETypes.PNG));
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      data.writeTo(MIMETypes.PNG, Channels.newChannel(bytes));
+      Assert.assertArrayEquals("Should write the file region", PNG_BYTES, bytes.toByteArray());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testDisplayToBinarySink() throws IOException {
+    Displayers.register(Image.class, new Displayer<Image>() {
+      @Override
+      public Map<String, String> display(Image obj) {
+        BinaryDisplayData data = new BinaryDisplayData().putBinary(MIMETypes.PNG, PNG_BYTES);
+        data.put(MIMETypes.TEXT, "image");
+        return data;
+      }
+    });
+
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final Map<String, StringBuilder> text = new HashMap<>();
+    Displayers.displayTo(new Image(), new SinkFactory() {
+      @Override
+      public Appendable open(String mimeType) {
+        StringBuilder sb = new StringBuilder();
+        text.put(mimeType, sb);
+        return sb;
+      }
+
+      @Override
+      public WritableByteChannel openBinary(String mimeType) {
+        return Channels.newChannel(bytes);
+      }
+    });
+
+    Assert.assertArrayEquals("Should write binary data as bytes", PNG_BYTES, bytes.toByteArray());
+    Assert.assertEquals("Should write text as text", "image", text.get(MIMETypes.TEXT).toString());
+    Assert.assertFalse("Should not write binary data as text", text.containsKey(MIMETypes.PNG));
+  }
+
+  @Test
+  public void testTextFile() throws IOException {
+    Path file = Files.createTempFile("test-binary-display-data", ".txt");
+    try {
+      Files.write(file, "<b>caf\u00e9</b>".getBytes(StandardCharsets.UTF_8));
+      BinaryDisplayData data = new BinaryDisplayData()
+          .putTextFile(MIMETypes.HTML, file, 0, Files.size(file));
+      Assert.assertFalse("Should not report text files as binary", data.isBinary(MIMETypes.HTML));
+      Assert.assertEquals("Should decode text files", "<b>caf\u00e9</b>", data.get(MIMETypes.HTML));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testRegionOutsideFile() throws IOException {
+    Path file = Files.createTempFile("test-binary-display-data", ".bin");
+    try {
+      Files.write(file, new byte[] { 1, 2, 3 });
+      try {
+        new BinaryDisplayData().putFile(MIMETypes.PNG, file, 0, 10);
+        Assert.fail("Should reject a region past the end of the file");
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+      try {
+        new BinaryDisplayData().putTextFile(MIMETypes.TEXT, file, -1, 2);
+        Assert.fail("Should reject a negative position");
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test(timeout = 5000)
+  public void testTruncatedFile() throws IOException {
+    Path file = Files.createTempFile("test-binary-display-data", ".bin");
+    try {
+      Files.write(file, new byte[10]);
+      BinaryDisplayData data = new BinaryDisplayData().putFile(MIMETypes.PNG, file, 0, 10);
+      Files.write(file, new byte[] { 1, 2, 3 });
+      try {
+        data.writeTo(MIMETypes.PNG, Channels.newChannel(new ByteArrayOutputStream()));
+        Assert.fail("Should fail when the file is shorter than the region");
+      } catch (EOFException e) {
+        // expected
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+}
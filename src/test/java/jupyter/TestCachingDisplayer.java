@@ -0,0 +1,237 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class TestCachingDisplayer {
+
+  @Before
+  @After
+  public void clearGlobals() {
+    Displayers.registration().clear();
+  }
+
+  private static class Model {
+    private final String name;
+    private int version = 0;
+
+    Model(String name) {
+      this.name = name;
+    }
+  }
+
+  private static class CountingDisplayer extends Displayer<Model> {
+    private int calls = 0;
+
+    @Override
+    public Map<String, String> display(Model obj) {
+      calls += 1;
+      return Collections.singletonMap(MIMETypes.TEXT, obj.name + " v" + obj.version);
+    }
+  }
+
+  @Test
+  public void testHitsAndMisses() {
+    CountingDisplayer counting = new CountingDisplayer();
+    CachingDisplayer<Model> caching = new CachingDisplayer<>(counting, 1024);
+    Displayers.register(Model.class, caching);
+
+    Model model = new Model("model");
+    Assert.assertEquals("Should display", "model v0", Displayers.display(model).get(MIMETypes.TEXT));
+    Assert.assertEquals("Should display from cache", "model v0", Displayers.display(model).get(MIMETypes.TEXT));
+    Assert.assertEquals("Should call the wrapped displayer once", 1, counting.calls);
+    Assert.assertEquals("Should count hits", 1, caching.getHitCount());
+    Assert.assertEquals("Should count misses", 1, caching.getMissCount());
+
+    Displayers.display(new Model("model"));
+    Assert.assertEquals("Should cache by identity", 2, counting.calls);
+
+    Displayers.setMimeTypes(MIMETypes.TEXT);
+    Displayers.display(model);
+    Assert.assertEquals("Should not use results cached for other MIME types", 3, counting.calls);
+
+    caching.invalidate(model);
+    Displayers.display(model);
+    Assert.assertEquals("Should not use invalidated results", 4, counting.calls);
+  }
+
+  @Test
+  public void testVersion() {
+    CountingDisplayer counting = new CountingDisplayer();
+    CachingDisplayer<Model> caching = new CachingDisplayer<>(counting, 1024,
+        new Function<Model, Object>() {
+          @Override
+          public Object apply(Model model) {
+            return model.version;
+          }
+        });
+
+    Model model = new Model("model");
+    caching.display(model);
+    caching.display(model);
+    Assert.assertEquals("Should use cached result for the same version", 1, counting.calls);
+
+    model.version = 1;
+    Assert.assertEquals("Should display the new version",
+        "model v1", caching.display(model).get(MIMETypes.TEXT));
+    Assert.assertEquals("Should call the wrapped displayer for a new version", 2, counting.calls);
+  }
+
+  @Test
+  public void testEviction() {
+    CountingDisplayer counting = new CountingDisplayer();
+    // each result is 2 * ("text/plain".length() + "mN v0".length()) = 30 bytes
+    CachingDisplayer<Model> caching = new CachingDisplayer<>(counting, 60);
+
+    Model m1 = new Model("m1");
+    Model m2 = new Model("m2");
+    Model m3 = new Model("m3");
+    caching.display(m1);
+    caching.display(m2);
+    caching.display(m1);
+    caching.display(m3);
+
+    Assert.assertEquals("Should evict to stay within the limit", 1, caching.getEvictionCount());
+    Assert.assertEquals("Should track cached bytes", 60, caching.getCachedBytes());
+
+    caching.display(m1);
+    Assert.assertEquals("Should keep the recently used result", 3, counting.calls);
+    caching.display(m2);
+    Assert.assertEquals("Should evict the least recently used result", 4, counting.calls);
+  }
+
+  /**
+   * Returns lazy HTML, PNG and text representations, counting the calls to each supplier.
+   */
+  private static class LazyModelDisplayer extends Displayer<Model> {
+    private int calls = 0;
+    private int htmlCalls = 0;
+    private int textCalls = 0;
+
+    @Override
+    public Map<String, String> display(final Model obj) {
+      calls += 1;
+      return new LazyDisplayData()
+          .add(MIMETypes.HTML, new Supplier<String>() {
+            @Override
+            public String get() {
+              htmlCalls += 1;
+              return "<b>" + obj.name + "</b>";
+            }
+          })
+          .add(MIMETypes.PNG, new Supplier<String>() {
+            @Override
+            public String get() {
+              return "iVBORw0KGgo=";
+            }
+          })
+          .add(MIMETypes.TEXT, new Supplier<String>() {
+            @Override
+            public String get() {
+              textCalls += 1;
+              return obj.name;
+            }
+          });
+    }
+  }
+
+  @Test
+  public void testWildcardHint() {
+    LazyModelDisplayer lazy = new LazyModelDisplayer();
+    CachingDisplayer<Model> caching = new CachingDisplayer<>(lazy, 1024);
+    Displayers.setMimeTypes("text/html;q=0.5, image/*");
+
+    Map<String, String> result = caching.display(new Model("model"));
+    Assert.assertEquals("Should keep types matched by a wildcard", "iVBORw0KGgo=",
+        result.get(MIMETypes.PNG));
+    Assert.assertEquals("Should keep exact types", "<b>model</b>", result.get(MIMETypes.HTML));
+    Assert.assertFalse("Should drop types that are not accepted",
+        result.containsKey(MIMETypes.TEXT));
+    Assert.assertEquals("Should not compute text", 0, lazy.textCalls);
+  }
+
+  @Test
+  public void testLazyResults() {
+    LazyModelDisplayer lazy = new LazyModelDisplayer();
+    CachingDisplayer<Model> caching = new CachingDisplayer<>(lazy, 1024);
+    Model model = new Model("model");
+
+    Map<String, String> first = caching.display(model);
+    Assert.assertTrue("Should return lazy results", first instanceof LazyDisplayData);
+    Assert.assertEquals("Should not compute representations when caching", 0, lazy.htmlCalls);
+    long keyBytes = caching.getCachedBytes();
+
+    Assert.assertEquals("<b>model</b>", first.get(MIMETypes.HTML));
+    Assert.assertEquals("Should count computed representations",
+        keyBytes + 2 * "<b>model</b>".length(), caching.getCachedBytes());
+
+    Map<String, String> second = caching.display(model);
+    Assert.assertEquals("Should share computed representations",
+        "<b>model</b>", second.get(MIMETypes.HTML));
+    Assert.assertEquals("Should compute each representation once", 1, lazy.htmlCalls);
+    Assert.assertEquals("Should not compute unused representations", 0, lazy.textCalls);
+    Assert.assertEquals("Should call the wrapped displayer once", 1, lazy.calls);
+
+    second.remove(MIMETypes.HTML);
+    Assert.assertTrue("Should not let callers change the cache",
+        caching.display(model).containsKey(MIMETypes.HTML));
+  }
+
+  @Test
+  public void testBinaryResults() {
+    final byte[] png = new byte[] { (byte) 0x89, 'P', 'N', 'G' };
+    CachingDisplayer<Model> caching = new CachingDisplayer<>(new Displayer<Model>() {
+      @Override
+      public Map<String, String> display(Model obj) {
+        return new BinaryDisplayData().putBinary(MIMETypes.PNG, png);
+      }
+    }, 1024);
+    Model model = new Model("model");
+
+    caching.display(model);
+    Map<String, String> result = caching.display(model);
+    Assert.assertEquals("Should return a cached result", 1, caching.getHitCount());
+    Assert.assertTrue("Should keep binary results", result instanceof BinaryDisplayData);
+    Assert.assertEquals("Should keep the bytes", ByteBuffer.wrap(png),
+        ((BinaryDisplayData) result).getBuffer(MIMETypes.PNG));
+  }
+
+  @Test
+  public void testScopeHint() {
+    LazyModelDisplayer lazy = new LazyModelDisplayer();
+    Displayers.register(Model.class, new CachingDisplayer<>(lazy, 1024));
+    Registration scope = Displayers.registration().newScope();
+    scope.setMimeTypes(MIMETypes.HTML);
+    Model model = new Model("model");
+
+    Assert.assertEquals("Should display all types without a hint",
+        3, Displayers.display(model).size());
+    Map<String, String> result = scope.display(model);
+    Assert.assertEquals("Should not use results cached for another scope's hint", 2, lazy.calls);
+    Assert.assertEquals("Should restrict to the scope's hint",
+        Collections.singleton(MIMETypes.HTML), result.keySet());
+  }
+}
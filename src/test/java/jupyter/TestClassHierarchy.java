@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.junit.Assert;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+public class TestClassHierarchy {
+
+  private interface A {
+  }
+
+  private interface B extends A {
+  }
+
+  private interface C extends A {
+  }
+
+  private interface D extends C, B {
+  }
+
+  private static class Base implements C {
+  }
+
+  private static class Diamond extends Base implements D, B {
+  }
+
+  private static class DeepDiamond extends Diamond implements A {
+  }
+
+  /**
+   * The breadth-first search that ClassHierarchy caches, without deduplication.
+   */
+  private static List<Class<?>> reference(Class<?> type) {
+    Set<Class<?>> order = new LinkedHashSet<>();
+    LinkedList<Class<?>> classes = new LinkedList<>();
+    classes.addLast(type);
+    while (!classes.isEmpty()) {
+      Class<?> current = classes.removeFirst();
+      order.add(current);
+      classes.addAll(Arrays.asList(current.getInterfaces()));
+      Class<?> superClass = current.getSuperclass();
+      if (superClass != null && superClass != Object.class) {
+        classes.add(superClass);
+      }
+    }
+    return new ArrayList<>(order);
+  }
+
+  @Test
+  public void testSearchOrder() {
+    Class<?>[] types = new Class<?>[] {
+        Object.class, String.class, Integer.class, int[].class, String[].class,
+        A.class, D.class, Base.class, Diamond.class, DeepDiamond.class,
+        ArrayList.class, LinkedList.class, ConcurrentSkipListMap.class,
+        Collections.unmodifiableList(new ArrayList<Object>()).getClass(),
+        Collections.emptySet().getClass()
+    };
+    for (Class<?> type : types) {
+      Assert.assertEquals("Should match breadth-first order for " + type.getName(),
+          reference(type), Arrays.asList(ClassHierarchy.searchOrder(type)));
+    }
+  }
+
+  @Test
+  public void testDiamondOrder() {
+    Assert.assertEquals("Should visit interfaces before the superclass",
+        Arrays.<Class<?>>asList(Diamond.class, D.class, B.class, Base.class, C.class, A.class),
+        Arrays.asList(ClassHierarchy.searchOrder(Diamond.class)));
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class TestCollectionDisplayer {
+
+  @Before
+  @After
+  public void clearGlobals() {
+    Displayers.registration().clear();
+  }
+
+  private static class Thing {
+    private final int n;
+
+    Thing(int n) {
+      this.n = n;
+    }
+  }
+
+  private static String text(Object obj) {
+    return Displayers.display(obj).get(MIMETypes.TEXT);
+  }
+
+  private static String html(Object obj) {
+    return Displayers.display(obj).get(MIMETypes.HTML);
+  }
+
+  private static List<Integer> range(int n) {
+    List<Integer> list = new ArrayList<>(n);
+    for (int i = 0; i < n; i += 1) {
+      list.add(i);
+    }
+    return list;
+  }
+
+  @Test
+  public void testMatchesToString() {
+    List<Object> list = Arrays.<Object>asList(1, "two", 3.0, null, 'c');
+    Assert.assertEquals("Should match toString for lists", list.toString(), text(list));
+
+    LinkedHashSet<String> set = new LinkedHashSet<>(Arrays.asList("a", "b"));
+    Assert.assertEquals("Should match toString for sets", set.toString(), text(set));
+
+    Map<String, Object> map = new TreeMap<>();
+    map.put("a", 1);
+    map.put("b", Arrays.asList(2, 3));
+    Assert.assertEquals("Should match toString for maps", map.toString(), text(map));
+
+    Assert.assertEquals("Should show empty collections", "[]", text(Collections.emptyList()));
+    Assert.assertEquals("Should show empty maps", "{}", text(Collections.emptyMap()));
+  }
+
+  @Test
+  public void testRegisteredElements() {
+    Displayers.register(Thing.class, new Displayer<Thing>() {
+      @Override
+      public Map<String, String> display(Thing obj) {
+        Map<String, String> result = new LinkedHashMap<>();
+        result.put(MIMETypes.TEXT, "Thing(" + obj.n + ")");
+        result.put(MIMETypes.HTML, "<b>" + obj.n + "</b>");
+        return result;
+      }
+    });
+
+    List<Object> list = Arrays.<Object>asList(new Thing(1), new int[] { 2, 3 }, "<x>");
+    Assert.assertEquals("Should use registered displayers for elements",
+        "[Thing(1), [2, 3], <x>]", text(list));
+    Assert.assertEquals("Should use element HTML and escape text",
+        "<ol start=\"0\"><li><b>1</b></li><li>[2, 3]</li><li>&lt;x&gt;</li></ol>", html(list));
+
+    Map<String, Thing> map = Collections.singletonMap("a&b", new Thing(4));
+    Assert.assertEquals("Should use registered displayers for values",
+        "{a&b=Thing(4)}", text(map));
+    Assert.assertEquals("Should render maps as tables",
+        "<table><tr><th>a&amp;b</th><td><b>4</b></td></tr></table>", html(map));
+  }
+
+  @Test
+  public void testSummarizedList() {
+    List<Integer> list = range(1000000);
+    Assert.assertEquals("Should show both ends of random access lists",
+        "[0, 1, 2, ..., 999997, 999998, 999999] (1000000 elements)", text(list));
+    Assert.assertEquals("Should number elements after the gap",
+        "<ol start=\"0\"><li>0</li><li>1</li><li>2</li><li>&hellip;</li>" +
+            "<li value=\"999997\">999997</li><li value=\"999998\">999998</li>" +
+            "<li value=\"999999\">999999</li></ol><p>1000000 elements</p>",
+        html(list));
+
+    LinkedList<Integer> linked = new LinkedList<>(range(2000));
+    Assert.assertEquals("Should show the start of other collections",
+        "[0, 1, 2, 3, 4, 5, ...] (2000 elements)", text(linked));
+
+    Map<Integer, Integer> map = new TreeMap<>();
+    for (int i = 0; i < 2000; i += 1) {
+      map.put(i, i * i);
+    }
+    Assert.assertEquals("Should show the start of large maps",
+        "{0=0, 1=1, 2=4, 3=9, 4=16, 5=25, ...} (2000 entries)", text(map));
+  }
+
+  @Test
+  public void testLimits() {
+    Displayers.setLimits(DisplayLimits.DEFAULT.withMaxChars(10));
+    Assert.assertEquals("Should stop at the character limit",
+        "[0, 1, 2, ...]", text(range(100)));
+
+    Displayers.setLimits(DisplayLimits.DEFAULT.withMaxWork(3));
+    Assert.assertEquals("Should stop when the work budget is spent",
+        "[0, 1, 2, ...]", text(range(100)));
+  }
+
+  @Test
+  public void testHtmlLimits() {
+    StringBuilder big = new StringBuilder();
+    for (int i = 0; i < 500000; i += 1) {
+      big.append('<');
+    }
+    List<String> list = Collections.singletonList(big.toString());
+    Assert.assertTrue("Should truncate escaped text to the character limit",
+        html(list).length() < DisplayLimits.DEFAULT.getMaxChars() + 100);
+
+    Displayers.setLimits(DisplayLimits.DEFAULT.withMaxChars(28));
+    Assert.assertEquals("Should not cut an entity in half",
+        "<ol start=\"0\"><li>&lt;&lt;...</li></ol>", html(list));
+
+    Displayers.register(Thing.class, new Displayer<Thing>() {
+      @Override
+      public Map<String, String> display(Thing obj) {
+        Map<String, String> result = new LinkedHashMap<>();
+        result.put(MIMETypes.TEXT, "Thing(" + obj.n + ")");
+        result.put(MIMETypes.HTML, "<b>" + big(obj.n) + "</b>");
+        return result;
+      }
+
+      private String big(int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i += 1) {
+          sb.append(n);
+        }
+        return sb.toString();
+      }
+    });
+    Assert.assertEquals("Should use escaped text when element HTML does not fit",
+        "<ol start=\"0\"><li>Thing(1)</li></ol>", html(Collections.singletonList(new Thing(1))));
+  }
+
+  @Test
+  public void testCycles() {
+    List<Object> list = new ArrayList<>();
+    list.add(1);
+    list.add(list);
+    Assert.assertEquals("Should show a back-reference for cycles", "[1, [...]]", text(list));
+
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("self", map);
+    map.put("list", Arrays.<Object>asList(map));
+    Assert.assertEquals("Should show a back-reference for nested cycles",
+        "{self={...}, list=[{...}]}", text(map));
+  }
+
+  @Test
+  public void testMimeTypeHint() {
+    Displayers.setMimeTypes(MIMETypes.TEXT);
+    Assert.assertEquals("Should only produce hinted types",
+        Collections.singleton(MIMETypes.TEXT), Displayers.display(range(3)).keySet());
+  }
+}
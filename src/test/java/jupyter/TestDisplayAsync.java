@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+public class TestDisplayAsync {
+
+  @Before
+  @After
+  public void clearGlobals() {
+    Displayers.registration().clear();
+  }
+
+  private static class SlowThing {
+  }
+
+  /**
+   * Blocks until interrupted, recording the interrupt.
+   */
+  private static class SlowDisplayer extends Displayer<SlowThing> {
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch interrupted = new CountDownLatch(1);
+
+    @Override
+    public Map<String, String> display(SlowThing obj) {
+      started.countDown();
+      try {
+        Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+      }
+      return Collections.singletonMap(MIMETypes.TEXT, "slow");
+    }
+  }
+
+  @Test
+  public void testDisplayAsync() throws Exception {
+    Map<String, String> result = Displayers.displayAsync("crunchy").get(10, TimeUnit.SECONDS);
+    Assert.assertEquals("Should display asynchronously",
+        Collections.singletonMap(MIMETypes.TEXT, "crunchy"), result);
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    SlowDisplayer slow = new SlowDisplayer();
+    Displayers.register(SlowThing.class, slow);
+
+    SlowThing thing = new SlowThing();
+    Map<String, String> result = Displayers.displayAsync(thing, 50, TimeUnit.MILLISECONDS)
+        .get(10, TimeUnit.SECONDS);
+
+    String text = result.get(MIMETypes.TEXT);
+    Assert.assertTrue("Should return a placeholder naming the class: " + text,
+        text.startsWith(SlowThing.class.getName() + "@"));
+    Assert.assertTrue("Should interrupt the display call",
+        slow.interrupted.await(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testTimeoutWhileRendering() throws Exception {
+    final CountDownLatch interrupted = new CountDownLatch(1);
+    Displayers.register(SlowThing.class, new Displayer<SlowThing>() {
+      @Override
+      public Map<String, String> display(SlowThing obj) {
+        return new LazyDisplayData().add(MIMETypes.TEXT, new Supplier<String>() {
+          @Override
+          public String get() {
+            try {
+              Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+              interrupted.countDown();
+            }
+            return "slow";
+          }
+        });
+      }
+    });
+
+    Map<String, String> result = Displayers.displayAsync(new SlowThing(), 50, TimeUnit.MILLISECONDS)
+        .get(10, TimeUnit.SECONDS);
+    Assert.assertTrue("Should return a placeholder when lazy rendering is slow",
+        result.get(MIMETypes.TEXT).startsWith(SlowThing.class.getName() + "@"));
+    Assert.assertTrue("Should interrupt lazy rendering",
+        interrupted.await(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    SlowDisplayer slow = new SlowDisplayer();
+    Displayers.register(SlowThing.class, slow);
+
+    CompletableFuture<Map<String, String>> future = Displayers.displayAsync(new SlowThing());
+    Assert.assertTrue("Should start the display call",
+        slow.started.await(10, TimeUnit.SECONDS));
+
+    future.cancel(true);
+    Assert.assertTrue("Should interrupt the display call",
+        slow.interrupted.await(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testExecutor() throws Exception {
+    Displayers.registration().setExecutor(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        Thread thread = new Thread(command, "custom-display-thread");
+        thread.start();
+      }
+    });
+
+    Displayers.register(SlowThing.class, new Displayer<SlowThing>() {
+      @Override
+      public Map<String, String> display(SlowThing obj) {
+        return Collections.singletonMap(MIMETypes.TEXT, Thread.currentThread().getName());
+      }
+    });
+
+    Map<String, String> result = Displayers.displayAsync(new SlowThing()).get(10, TimeUnit.SECONDS);
+    Assert.assertEquals("Should display on the configured executor",
+        "custom-display-thread", result.get(MIMETypes.TEXT));
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestDisplayBatch {
+
+  @Before
+  @After
+  public void clearGlobals() {
+    Displayers.registration().clear();
+  }
+
+  private static class Point {
+    private final int x;
+
+    Point(int x) {
+      this.x = x;
+    }
+  }
+
+  private static class SubPoint extends Point {
+    SubPoint(int x) {
+      super(x);
+    }
+  }
+
+  /**
+   * Displays points in batches and counts calls.
+   */
+  private static class PointDisplayer extends Displayer<Point> {
+    private final AtomicInteger batches = new AtomicInteger(0);
+    private final AtomicInteger displayed = new AtomicInteger(0);
+
+    @Override
+    public Map<String, String> display(Point obj) {
+      return Collections.singletonMap(MIMETypes.TEXT, "Point(" + obj.x + ")");
+    }
+
+    @Override
+    public List<Map<String, String>> displayBatch(List<? extends Point> objs) {
+      batches.incrementAndGet();
+      displayed.addAndGet(objs.size());
+      return super.displayBatch(objs);
+    }
+  }
+
+  @Test
+  public void testGroupsByDisplayer() {
+    PointDisplayer displayer = new PointDisplayer();
+    Displayers.register(Point.class, displayer);
+
+    List<Map<String, String>> results = Displayers.displayAll(Arrays.<Object>asList(
+        new Point(1), "crunchy", new SubPoint(2), null, new Point(3)));
+
+    Assert.assertEquals("Should return a result per object", 5, results.size());
+    Assert.assertEquals("Should preserve order",
+        "Point(1)", results.get(0).get(MIMETypes.TEXT));
+    Assert.assertEquals("Should use the default displayer",
+        "crunchy", results.get(1).get(MIMETypes.TEXT));
+    Assert.assertEquals("Should preserve order",
+        "Point(2)", results.get(2).get(MIMETypes.TEXT));
+    Assert.assertTrue("Should not display null", results.get(3).isEmpty());
+    Assert.assertEquals("Should preserve order",
+        "Point(3)", results.get(4).get(MIMETypes.TEXT));
+    Assert.assertEquals("Should call the displayer once", 1, displayer.batches.get());
+    Assert.assertEquals("Should display all points", 3, displayer.displayed.get());
+  }
+
+  @Test
+  public void testParallel() {
+    PointDisplayer displayer = new PointDisplayer();
+    Displayers.register(Point.class, displayer);
+
+    List<Object> objs = new ArrayList<>();
+    for (int i = 0; i < 10000; i += 1) {
+      objs.add(i % 3 == 0 ? Integer.valueOf(i) : new Point(i));
+    }
+
+    List<Map<String, String>> results = Displayers.displayAll(objs, true);
+    Assert.assertEquals("Should return a result per object", objs.size(), results.size());
+    for (int i = 0; i < objs.size(); i += 1) {
+      String expected = i % 3 == 0 ? String.valueOf(i) : "Point(" + i + ")";
+      Assert.assertEquals("Should preserve order", expected, results.get(i).get(MIMETypes.TEXT));
+    }
+    Assert.assertEquals("Should display each point once",
+        objs.size() - (objs.size() + 2) / 3, displayer.displayed.get());
+  }
+
+  @Test
+  public void testInvalidBatchResult() {
+    Displayers.register(Point.class, new Displayer<Point>() {
+      @Override
+      public Map<String, String> display(Point obj) {
+        return Collections.emptyMap();
+      }
+
+      @Override
+      public List<Map<String, String>> displayBatch(List<? extends Point> objs) {
+        return Collections.emptyList();
+      }
+    });
+
+    try {
+      Displayers.displayAll(Arrays.asList(new Point(1), new Point(2)));
+      Assert.fail("Should reject batch results with the wrong size");
+    } catch (IllegalStateException e) {
+      Assert.assertTrue("Should report the sizes",
+          e.getMessage().contains("0 results for 2 objects"));
+    }
+  }
+
+  @Test
+  public void testListeners() {
+    DisplayMetrics metrics = new DisplayMetrics();
+    Displayers.registration().addListener(metrics);
+
+    Displayers.displayAll(Arrays.asList("a", "b", "c"));
+    Assert.assertEquals("Should report each lookup", 3, metrics.getFindCount());
+    Assert.assertEquals("Should report each object", 3, metrics.getDisplayCount());
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TestDisplayHandle {
+
+  @Before
+  @After
+  public void clearGlobals() {
+    Displayers.registration().clear();
+  }
+
+  private static class Log {
+    private final List<String> lines = new ArrayList<>();
+    private String status = "running";
+  }
+
+  private static class LogDisplayer extends IncrementalDisplayer<Log> {
+    @Override
+    public Map<String, String> display(Log log) {
+      return text(String.join("\n", log.lines));
+    }
+
+    @Override
+    public Map<String, String> open(Log log, DisplayHandle handle) {
+      handle.setAttachment(log.lines.size());
+      return display(log);
+    }
+
+    @Override
+    public void update(Log log, DisplayHandle handle) {
+      int sent = (Integer) handle.getAttachment();
+      if (sent < log.lines.size()) {
+        handle.append(text(String.join("\n", log.lines.subList(sent, log.lines.size()))));
+        handle.setAttachment(log.lines.size());
+      }
+      handle.replace("status", text(log.status));
+    }
+  }
+
+  private static Map<String, String> text(String text) {
+    Map<String, String> result = new HashMap<>();
+    result.put(MIMETypes.TEXT, text);
+    return result;
+  }
+
+  private static class Collector implements DisplayHandle.Listener {
+    private final List<DisplayUpdate> updates = new ArrayList<>();
+
+    @Override
+    public void onUpdate(DisplayUpdate update) {
+      updates.add(update);
+    }
+  }
+
+  @Test
+  public void testIncrementalUpdates() {
+    Displayers.register(Log.class, new LogDisplayer());
+
+    Log log = new Log();
+    log.lines.add("one");
+    DisplayHandle handle = Displayers.displayIncremental(log);
+    Collector collector = new Collector();
+    handle.addListener(collector);
+
+    Assert.assertEquals("Should display the initial lines", text("one"), handle.getInitial());
+    Assert.assertNotNull("Should generate a display id", handle.getDisplayId());
+
+    log.lines.add("two");
+    log.lines.add("three");
+    log.status = "done";
+    handle.refresh();
+
+    Assert.assertEquals("Should send an append and a replace", 2, collector.updates.size());
+    DisplayUpdate appended = collector.updates.get(0);
+    Assert.assertEquals("Should append", DisplayUpdate.Kind.APPEND, appended.getKind());
+    Assert.assertEquals("Should only send new lines", text("two\nthree"), appended.getData());
+    Assert.assertEquals("Should use the handle's id",
+        handle.getDisplayId(), appended.getDisplayId());
+    Assert.assertEquals("Should number updates", 1, appended.getSequence());
+
+    DisplayUpdate replaced = collector.updates.get(1);
+    Assert.assertEquals("Should replace", DisplayUpdate.Kind.REPLACE, replaced.getKind());
+    Assert.assertEquals("Should replace the region", "status", replaced.getRegion());
+    Assert.assertEquals("Should number updates", 2, replaced.getSequence());
+  }
+
+  @Test
+  public void testRedisplay() {
+    List<Integer> list = new ArrayList<>();
+    list.add(1);
+    DisplayHandle handle = Displayers.registration().displayIncremental(list, "output-1");
+    Collector collector = new Collector();
+    handle.addListener(collector);
+
+    Assert.assertEquals("Should use the given display id", "output-1", handle.getDisplayId());
+    Assert.assertEquals("Should display the object", "[1]",
+        handle.getInitial().get(MIMETypes.TEXT));
+
+    handle.refresh();
+    Assert.assertEquals("Should not send an update if nothing changed",
+        0, collector.updates.size());
+
+    list.add(2);
+    handle.refresh();
+    Assert.assertEquals("Should send an update", 1, collector.updates.size());
+    DisplayUpdate update = collector.updates.get(0);
+    Assert.assertEquals("Should replace", DisplayUpdate.Kind.REPLACE, update.getKind());
+    Assert.assertNull("Should replace the whole output", update.getRegion());
+    Assert.assertEquals("Should display the object again", "[1, 2]",
+        update.getData().get(MIMETypes.TEXT));
+  }
+
+  @Test
+  public void testScope() {
+    Registration scope = Displayers.registration().newScope();
+    scope.setLimits(DisplayLimits.DEFAULT.withMaxElements(4).withEdgeItems(1));
+
+    List<Integer> list = new ArrayList<>(Collections.nCopies(3, 0));
+    DisplayHandle handle = scope.displayIncremental(list, null);
+    Collector collector = new Collector();
+    handle.addListener(collector);
+
+    list.addAll(Collections.nCopies(3, 1));
+    handle.refresh();
+    Assert.assertEquals("Should refresh with the scope's limits", "[0, ..., 1] (6 elements)",
+        collector.updates.get(0).getData().get(MIMETypes.TEXT));
+  }
+
+  @Test
+  public void testClose() {
+    DisplayHandle handle = Displayers.displayIncremental("text");
+    handle.close();
+    Assert.assertTrue("Should be closed", handle.isClosed());
+    try {
+      handle.refresh();
+      Assert.fail("Should reject updates after close");
+    } catch (IllegalStateException e) {
+      Assert.assertTrue("Should name the display", e.getMessage().contains(handle.getDisplayId()));
+    }
+  }
+}
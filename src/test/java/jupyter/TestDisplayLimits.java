@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestDisplayLimits {
+
+  private static final String PROPERTY = "jupyter.display.test";
+
+  @Before
+  @After
+  public void clearGlobals() {
+    Displayers.registration().clear();
+    System.clearProperty(PROPERTY);
+  }
+
+  @Test
+  public void testPositiveProperty() {
+    Assert.assertEquals("Should use the default when unset",
+        7, DisplayLimits.positiveProperty(PROPERTY, 7));
+
+    System.setProperty(PROPERTY, " 12 ");
+    Assert.assertEquals("Should parse the property",
+        12, DisplayLimits.positiveProperty(PROPERTY, 7));
+
+    System.setProperty(PROPERTY, "0");
+    Assert.assertEquals("Should ignore values that are not positive",
+        7, DisplayLimits.positiveProperty(PROPERTY, 7));
+
+    System.setProperty(PROPERTY, "lots");
+    Assert.assertEquals("Should ignore values that are not numbers",
+        7, DisplayLimits.positiveProperty(PROPERTY, 7));
+  }
+
+  @Test
+  public void testOverflowProperty() {
+    Assert.assertEquals("Should use the default when unset", DisplayLimits.Overflow.TRUNCATE,
+        DisplayLimits.overflowProperty(PROPERTY, DisplayLimits.Overflow.TRUNCATE));
+
+    System.setProperty(PROPERTY, "spill");
+    Assert.assertEquals("Should parse the property ignoring case", DisplayLimits.Overflow.SPILL,
+        DisplayLimits.overflowProperty(PROPERTY, DisplayLimits.Overflow.TRUNCATE));
+
+    System.setProperty(PROPERTY, "disk");
+    Assert.assertEquals("Should ignore unknown values", DisplayLimits.Overflow.TRUNCATE,
+        DisplayLimits.overflowProperty(PROPERTY, DisplayLimits.Overflow.TRUNCATE));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidLimit() {
+    DisplayLimits.DEFAULT.withMaxDepth(0);
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.management.ObjectName;
+
+public class TestDisplayMetrics {
+
+  @Before
+  @After
+  public void clearGlobals() {
+    Displayers.registration().clear();
+  }
+
+  private static class CustomClass {
+  }
+
+  private static class CustomDisplayer extends Displayer<CustomClass> {
+    @Override
+    public Map<String, String> display(CustomClass obj) {
+      return Collections.singletonMap(MIMETypes.TEXT, "custom");
+    }
+  }
+
+  private static class FailingDisplayer extends Displayer<CustomClass> {
+    @Override
+    public Map<String, String> display(CustomClass obj) {
+      throw new IllegalStateException("broken");
+    }
+  }
+
+  @Test
+  public void testDisplayCounts() {
+    DisplayMetrics metrics = new DisplayMetrics();
+    Displayers.registration().addListener(metrics);
+    Displayers.register(CustomClass.class, new CustomDisplayer());
+
+    Displayers.display(new CustomClass());
+    Displayers.display(new CustomClass());
+    Displayers.display("crunchy");
+
+    String custom = CustomDisplayer.class.getName();
+    String toString = ToStringDisplayer.class.getName();
+    Assert.assertEquals("Should count lookups", 3, metrics.getFindCount());
+    Assert.assertEquals("Should count displays", 3, metrics.getDisplayCount());
+    Assert.assertEquals("Should count displays by displayer",
+        Long.valueOf(2), metrics.getDisplayCounts().get(custom));
+    Assert.assertEquals("Should count displays by displayer",
+        Long.valueOf(1), metrics.getDisplayCounts().get(toString));
+    Assert.assertEquals("Should count fallbacks", 1, metrics.getFallbackCount());
+    Assert.assertEquals("Should count fallbacks by object class",
+        Collections.singletonMap("java.lang.String", 1L), metrics.getFallbackCounts());
+    Assert.assertEquals("Should count output size by MIME type",
+        Long.valueOf(2 * "custom".length() + "crunchy".length()),
+        metrics.getOutputSizes().get(MIMETypes.TEXT));
+    Assert.assertEquals("Should not count errors", 0, metrics.getErrorCount());
+    Assert.assertTrue("Should record latency", metrics.getDisplayNanos(CustomDisplayer.class, 1.0)
+        >= metrics.getDisplayNanos(CustomDisplayer.class, 0.0));
+
+    metrics.reset();
+    Assert.assertEquals("Should reset counts", 0, metrics.getDisplayCount());
+    Assert.assertTrue("Should reset displayers", metrics.getDisplayCounts().isEmpty());
+  }
+
+  @Test
+  public void testErrors() {
+    DisplayMetrics metrics = new DisplayMetrics();
+    Displayers.registration().addListener(metrics);
+    Displayers.register(CustomClass.class, new FailingDisplayer());
+
+    try {
+      Displayers.display(new CustomClass());
+      Assert.fail("Should rethrow displayer exceptions");
+    } catch (IllegalStateException e) {
+      Assert.assertEquals("Should rethrow the original exception", "broken", e.getMessage());
+    }
+
+    Assert.assertEquals("Should count errors", 1, metrics.getErrorCount());
+    Assert.assertEquals("Should count errors by displayer",
+        Long.valueOf(1), metrics.getErrorCounts().get(FailingDisplayer.class.getName()));
+  }
+
+  @Test
+  public void testLazySizes() {
+    DisplayMetrics metrics = new DisplayMetrics();
+    Displayers.registration().addListener(metrics);
+    Displayers.setMimeTypes(MIMETypes.TEXT);
+    Displayers.register(CustomClass.class, new Displayer<CustomClass>() {
+      @Override
+      public Map<String, String> display(CustomClass obj) {
+        return new LazyDisplayData()
+            .add(MIMETypes.TEXT, new Supplier<String>() {
+              @Override
+              public String get() {
+                return "text";
+              }
+            })
+            .add(MIMETypes.HTML, new Supplier<String>() {
+              @Override
+              public String get() {
+                return "<b>html</b>";
+              }
+            });
+      }
+    });
+
+    Displayers.display(new CustomClass());
+    Assert.assertTrue("Should not compute lazy representations to measure them",
+        metrics.getOutputSizes().isEmpty());
+  }
+
+  @Test
+  public void testRemoveListener() {
+    DisplayMetrics metrics = new DisplayMetrics();
+    Displayers.registration().addListener(metrics);
+    Assert.assertTrue("Should remove the listener",
+        Displayers.registration().removeListener(metrics));
+    Assert.assertFalse("Should not remove a listener twice",
+        Displayers.registration().removeListener(metrics));
+
+    Displayers.display("crunchy");
+    Assert.assertEquals("Should not record after removal", 0, metrics.getFindCount());
+  }
+
+  @Test
+  public void testMBean() throws Exception {
+    DisplayMetrics metrics = new DisplayMetrics();
+    Displayers.registration().addListener(metrics);
+    ObjectName name = metrics.registerMBean();
+    try {
+      Displayers.display("crunchy");
+      Assert.assertEquals("Should expose counts over JMX", 1L,
+          ManagementFactory.getPlatformMBeanServer().getAttribute(name, "DisplayCount"));
+    } finally {
+      metrics.unregisterMBean();
+    }
+    Assert.assertFalse("Should unregister the MBean",
+        ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+public class TestDisplayTo {
+
+  @Before
+  @After
+  public void clearGlobals() {
+    Displayers.registration().clear();
+  }
+
+  private static class CustomClass {
+  }
+
+  /**
+   * Collects streamed representations into Strings.
+   */
+  private static class CollectingSinks implements SinkFactory {
+    private final Map<String, StringBuilder> sinks = new HashMap<>();
+    private final String onlyType;
+
+    CollectingSinks(String onlyType) {
+      this.onlyType = onlyType;
+    }
+
+    @Override
+    public Appendable open(String mimeType) {
+      if (onlyType != null && !onlyType.equals(mimeType)) {
+        return null;
+      }
+      StringBuilder sb = new StringBuilder();
+      sinks.put(mimeType, sb);
+      return sb;
+    }
+
+    Map<String, String> result() {
+      Map<String, String> result = new HashMap<>();
+      for (Map.Entry<String, StringBuilder> entry : sinks.entrySet()) {
+        result.put(entry.getKey(), entry.getValue().toString());
+      }
+      return result;
+    }
+  }
+
+  @Test
+  public void testDefaultBridge() throws IOException {
+    Displayers.register(CustomClass.class, new Displayer<CustomClass>() {
+      @Override
+      public Map<String, String> display(CustomClass obj) {
+        Map<String, String> result = new HashMap<>();
+        result.put(MIMETypes.TEXT, "custom");
+        result.put(MIMETypes.HTML, "<b>custom</b>");
+        return result;
+      }
+    });
+
+    CollectingSinks all = new CollectingSinks(null);
+    Displayers.displayTo(new CustomClass(), all);
+    Assert.assertEquals("Should stream every representation",
+        Displayers.display(new CustomClass()), all.result());
+
+    CollectingSinks htmlOnly = new CollectingSinks(MIMETypes.HTML);
+    Displayers.displayTo(new CustomClass(), htmlOnly);
+    Assert.assertEquals("Should skip representations without a sink",
+        asMap(MIMETypes.HTML, "<b>custom</b>"), htmlOnly.result());
+  }
+
+  @Test
+  public void testToStringArrays() throws IOException {
+    CollectingSinks ints = new CollectingSinks(null);
+    Displayers.displayTo(new int[] { 34, 35, 36 }, ints);
+    Assert.assertEquals("int[]",
+        asMap(MIMETypes.TEXT, "[34, 35, 36]"), ints.result());
+
+    CollectingSinks objects = new CollectingSinks(null);
+    Displayers.displayTo(new Object[] { "tangerine", null, 34 }, objects);
+    Assert.assertEquals("Object[]",
+        asMap(MIMETypes.TEXT, "[tangerine, null, 34]"), objects.result());
+  }
+
+  @Test
+  public void testAsDisplayData() throws IOException {
+    CollectingSinks sinks = new CollectingSinks(null);
+    Displayers.displayTo(new AsDisplayData() {
+      @Override
+      public Map<String, String> display() {
+        return asMap(MIMETypes.TEXT, "Thing(2)");
+      }
+    }, sinks);
+    Assert.assertEquals("Should stream AsDisplayData representations",
+        asMap(MIMETypes.TEXT, "Thing(2)"), sinks.result());
+  }
+
+  @Test
+  public void testChannels() throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final WritableByteChannel channel = Channels.newChannel(bytes);
+
+    SinkFactory sinks = SinkFactory.toChannels(new Function<String, WritableByteChannel>() {
+      @Override
+      public WritableByteChannel apply(String mimeType) {
+        return channel;
+      }
+    });
+    Displayers.displayTo("caf\u00e9", sinks);
+
+    Assert.assertEquals("Should write UTF-8 to the channel",
+        "caf\u00e9", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    Assert.assertTrue("Should not close the channel", channel.isOpen());
+  }
+
+  private static Map<String, String> asMap(String mimeType, String asText) {
+    Map<String, String> result = new HashMap<>();
+    result.put(mimeType, asText);
+    return result;
+  }
+}
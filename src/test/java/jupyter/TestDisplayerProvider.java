@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class TestDisplayerProvider {
+
+  @Before
+  @After
+  public void clearGlobals() {
+    Displayers.registration().clear();
+    displayersCreated = 0;
+  }
+
+  private static volatile boolean unusedInitialized = false;
+  private static volatile int displayersCreated = 0;
+
+  /**
+   * A class that is named by a provider but never displayed.
+   */
+  static class Unused {
+    static {
+      unusedInitialized = true;
+    }
+  }
+
+  static class Lazy {
+  }
+
+  static class SubLazy extends Lazy {
+  }
+
+  public static class LazyProvider implements DisplayerProvider {
+    @Override
+    public Set<String> getClassNames() {
+      return new HashSet<>(Arrays.asList(
+          "jupyter.TestDisplayerProvider$Lazy", "jupyter.TestDisplayerProvider$Unused"));
+    }
+
+    @Override
+    public Displayer<?> getDisplayer(Class<?> objClass) {
+      displayersCreated += 1;
+      return new Displayer<Object>() {
+        private volatile String[] mimeTypes = null;
+
+        @Override
+        public Map<String, String> display(Object obj) {
+          String hint = mimeTypes != null ? mimeTypes[0] : "none";
+          return Collections.singletonMap(MIMETypes.TEXT, "lazy, hint=" + hint);
+        }
+
+        @Override
+        public void setMimeTypes(String... types) {
+          this.mimeTypes = types;
+        }
+      };
+    }
+  }
+
+  @Test
+  public void testLazyCreation() {
+    Displayers.registration().addProvider(new LazyProvider());
+    Displayers.display("crunchy");
+    Assert.assertEquals("Should not create a displayer", 0, displayersCreated);
+
+    Assert.assertEquals("Should use the provided displayer",
+        "lazy, hint=none", Displayers.display(new Lazy()).get(MIMETypes.TEXT));
+    Assert.assertEquals("Should use the provided displayer for subclasses",
+        "lazy, hint=none", Displayers.display(new SubLazy()).get(MIMETypes.TEXT));
+    Assert.assertEquals("Should create the displayer once", 1, displayersCreated);
+    Assert.assertFalse("Should not load classes that are not displayed", unusedInitialized);
+
+    Displayers.setMimeTypes(MIMETypes.HTML);
+    Assert.assertEquals("Should pass later hints to provided displayers",
+        "lazy, hint=text/html", Displayers.display(new Lazy()).get(MIMETypes.TEXT));
+  }
+
+  @Test
+  public void testAddProviderAfterCreation() {
+    Displayers.registration().addProvider(new LazyProvider());
+    Assert.assertEquals("Should use the provided displayer",
+        "lazy, hint=none", Displayers.display(new Lazy()).get(MIMETypes.TEXT));
+
+    Displayers.registration().addProvider(new DisplayerProvider() {
+      @Override
+      public Set<String> getClassNames() {
+        return Collections.singleton("jupyter.TestDisplayerProvider$Unused");
+      }
+
+      @Override
+      public Displayer<?> getDisplayer(Class<?> objClass) {
+        return null;
+      }
+    });
+    Assert.assertEquals("Should still use the provided displayer",
+        "lazy, hint=none", Displayers.display(new Lazy()).get(MIMETypes.TEXT));
+    Assert.assertEquals("Should not create the displayer again", 1, displayersCreated);
+
+    Displayers.setMimeTypes(MIMETypes.HTML);
+    Assert.assertEquals("Should pass later hints to displayers created before the provider",
+        "lazy, hint=text/html", Displayers.display(new Lazy()).get(MIMETypes.TEXT));
+  }
+
+  @Test
+  public void testRegisteredTakesPrecedence() {
+    Displayers.registration().addProvider(new LazyProvider());
+    Displayers.register(Lazy.class, new Displayer<Lazy>() {
+      @Override
+      public Map<String, String> display(Lazy obj) {
+        return Collections.singletonMap(MIMETypes.TEXT, "registered");
+      }
+    });
+
+    Assert.assertEquals("Should use the registered displayer",
+        "registered", Displayers.display(new SubLazy()).get(MIMETypes.TEXT));
+    Assert.assertEquals("Should not create a displayer", 0, displayersCreated);
+  }
+
+  @Test
+  public void testServiceLoader() throws Exception {
+    Path dir = Files.createTempDirectory("providers");
+    Path services = dir.resolve("META-INF/services/jupyter.DisplayerProvider");
+    Files.createDirectories(services.getParent());
+    Files.write(services, (
+        "# test providers\n" +
+        "jupyter.TestDisplayerProvider$LazyProvider\n" +
+        "jupyter.DoesNotExist\n").getBytes(StandardCharsets.UTF_8));
+
+    try (URLClassLoader loader = new URLClassLoader(
+        new URL[] { dir.toUri().toURL() }, getClass().getClassLoader())) {
+      Displayers.registration().loadProviders(loader);
+    } finally {
+      Files.delete(services);
+      for (File parent = services.getParent().toFile(); !parent.equals(dir.getParent().toFile());
+           parent = parent.getParentFile()) {
+        parent.delete();
+      }
+    }
+
+    Assert.assertEquals("Should not create a displayer when loading providers",
+        0, displayersCreated);
+    Assert.assertEquals("Should use the discovered provider",
+        "lazy, hint=none", Displayers.display(new Lazy()).get(MIMETypes.TEXT));
+  }
+}
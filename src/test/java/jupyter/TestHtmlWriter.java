@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+public class TestHtmlWriter {
+
+  @Before
+  @After
+  public void clearGlobals() {
+    Displayers.registration().clear();
+  }
+
+  @Test
+  public void testEscape() {
+    Assert.assertEquals("Should escape special characters",
+        "&lt;a href=&quot;x&quot;&gt;Tom &amp; Jerry&#39;s&lt;/a&gt;",
+        HtmlWriter.escape("<a href=\"x\">Tom & Jerry's</a>"));
+    Assert.assertEquals("Should not change plain text",
+        "crunchy bacon \u00e9\u4e2d", HtmlWriter.escape("crunchy bacon \u00e9\u4e2d"));
+    Assert.assertEquals("Should escape null as null", "null", HtmlWriter.escape((String) null));
+    Assert.assertEquals("Should append to a buffer",
+        "x: 1 &lt; 2", HtmlWriter.escape(new StringBuilder("x: "), "1 < 2").toString());
+  }
+
+  @Test
+  public void testTable() {
+    StringBuilder sb = new StringBuilder();
+    HtmlWriter html = new HtmlWriter(sb);
+    html.startTable().header("a", "b<c");
+    Assert.assertTrue("Should write the row", html.startRow());
+    html.cell(1).cell(null).endRow();
+    html.endTable();
+    Assert.assertEquals("Should write a table with a header",
+        "<table><thead><tr><th>a</th><th>b&lt;c</th></tr></thead><tbody>" +
+            "<tr><td>1</td><td>null</td></tr></tbody></table>",
+        sb.toString());
+
+    sb.setLength(0);
+    html.startTable();
+    html.startRow();
+    html.headerCell("k&v").rawCell("<b>4</b>").endRow();
+    html.endTable();
+    Assert.assertEquals("Should write a table without a header",
+        "<table><tr><th>k&amp;v</th><td><b>4</b></td></tr></table>", sb.toString());
+  }
+
+  @Test
+  public void testRowLimit() {
+    StringBuilder sb = new StringBuilder();
+    HtmlWriter html = new HtmlWriter(sb, 2);
+    html.startTable().header(Arrays.asList("n"));
+    for (int i = 0; i < 5; i += 1) {
+      html.startRow();
+      html.cell(i).endRow();
+    }
+    Assert.assertTrue("Should be full", html.isFull());
+    html.endTable();
+    Assert.assertEquals("Should skip rows after the limit",
+        "<table><thead><tr><th>n</th></tr></thead><tbody>" +
+            "<tr><td>0</td></tr><tr><td>1</td></tr><tr><td>&vellip;</td></tr></tbody></table>",
+        sb.toString());
+    Assert.assertEquals("Should count skipped rows", 3, html.getSkippedRows());
+
+    sb.setLength(0);
+    html.startList(false);
+    Assert.assertFalse("Should reset the limit for a new list", html.isFull());
+    Assert.assertTrue(html.item("a"));
+    Assert.assertTrue(html.rawItem("<i>b</i>"));
+    Assert.assertFalse("Should skip items after the limit", html.item("c"));
+    html.endList(false);
+    Assert.assertEquals("Should write an ellipsis for skipped items",
+        "<ul><li>a</li><li><i>b</i></li><li>&hellip;</li></ul>", sb.toString());
+  }
+
+  @Test
+  public void testListAndCode() {
+    StringBuilder sb = new StringBuilder();
+    HtmlWriter html = new HtmlWriter(sb);
+    html.startList(true);
+    html.item("x > y");
+    html.endList(true);
+    html.element("p", "2 elements");
+    html.code("if (a < b) {}").code("<xml/>", "xml");
+    Assert.assertEquals(
+        "<ol><li>x &gt; y</li></ol><p>2 elements</p><pre><code>if (a &lt; b) {}</code></pre>" +
+            "<pre><code class=\"language-xml\">&lt;xml/&gt;</code></pre>",
+        sb.toString());
+  }
+
+  @Test
+  public void testStreaming() {
+    final StringBuilder received = new StringBuilder();
+    Appendable out = new Appendable() {
+      @Override
+      public Appendable append(CharSequence csq) {
+        received.append(csq);
+        return this;
+      }
+
+      @Override
+      public Appendable append(CharSequence csq, int start, int end) {
+        received.append(csq, start, end);
+        return this;
+      }
+
+      @Override
+      public Appendable append(char c) {
+        received.append(c);
+        return this;
+      }
+    };
+    new HtmlWriter(out).element("b", "<&>");
+    Assert.assertEquals("<b>&lt;&amp;&gt;</b>", received.toString());
+  }
+
+  @Test(expected = UncheckedIOException.class)
+  public void testIOException() {
+    Appendable out = new Appendable() {
+      @Override
+      public Appendable append(CharSequence csq) throws IOException {
+        throw new IOException("closed");
+      }
+
+      @Override
+      public Appendable append(CharSequence csq, int start, int end) throws IOException {
+        throw new IOException("closed");
+      }
+
+      @Override
+      public Appendable append(char c) throws IOException {
+        throw new IOException("closed");
+      }
+    };
+    new HtmlWriter(out).text("x");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidMaxRows() {
+    new HtmlWriter(new StringBuilder(), 0);
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+public class TestLazyDisplayData {
+
+  @Before
+  @After
+  public void clearGlobals() {
+    Displayers.registration().clear();
+  }
+
+  private static class CountingSupplier implements Supplier<String> {
+    private final String value;
+    private int calls = 0;
+
+    CountingSupplier(String value) {
+      this.value = value;
+    }
+
+    @Override
+    public String get() {
+      calls += 1;
+      return value;
+    }
+  }
+
+  private static class LazyThing {
+  }
+
+  @Test
+  public void testComputesOnFirstGet() {
+    CountingSupplier text = new CountingSupplier("thing");
+    CountingSupplier html = new CountingSupplier("<b>thing</b>");
+    LazyDisplayData data = new LazyDisplayData()
+        .add(MIMETypes.TEXT, text)
+        .add(MIMETypes.HTML, html);
+
+    Assert.assertEquals("Should list MIME types without computing",
+        new HashSet<>(Arrays.asList(MIMETypes.TEXT, MIMETypes.HTML)), data.keySet());
+    Assert.assertEquals("Should not compute text before get", 0, text.calls);
+
+    Assert.assertEquals("Should compute html", "<b>thing</b>", data.get(MIMETypes.HTML));
+    Assert.assertEquals("Should compute html again from cache", "<b>thing</b>", data.get(MIMETypes.HTML));
+    Assert.assertEquals("Should compute html once", 1, html.calls);
+    Assert.assertEquals("Should not compute text", 0, text.calls);
+    Assert.assertTrue("Should report html as computed", data.isComputed(MIMETypes.HTML));
+    Assert.assertFalse("Should report text as not computed", data.isComputed(MIMETypes.TEXT));
+
+    Map<String, String> expected = new HashMap<>();
+    expected.put(MIMETypes.TEXT, "thing");
+    expected.put(MIMETypes.HTML, "<b>thing</b>");
+    Assert.assertEquals("Should be equal to an eager map", expected, data);
+  }
+
+  @Test
+  public void testReplaceWithoutComputing() {
+    CountingSupplier text = new CountingSupplier("thing");
+    CountingSupplier html = new CountingSupplier("<b>thing</b>");
+    LazyDisplayData data = new LazyDisplayData()
+        .add(MIMETypes.TEXT, text)
+        .add(MIMETypes.HTML, html);
+
+    Assert.assertNull("Should not return a representation that was not computed",
+        data.put(MIMETypes.TEXT, "other"));
+    Assert.assertNull("Should not return a representation that was not computed",
+        data.remove(MIMETypes.HTML));
+    Assert.assertEquals("Should not compute replaced representations", 0, text.calls);
+    Assert.assertEquals("Should not compute removed representations", 0, html.calls);
+
+    Assert.assertEquals("Should return a computed representation",
+        "other", data.put(MIMETypes.TEXT, "third"));
+    Assert.assertEquals("Should return a computed representation",
+        "third", data.remove(MIMETypes.TEXT));
+    Assert.assertTrue("Should be empty", data.isEmpty());
+  }
+
+  @Test
+  public void testDisplayRestrictsToHint() {
+    final CountingSupplier text = new CountingSupplier("thing");
+    final CountingSupplier html = new CountingSupplier("<b>thing</b>");
+    Displayers.register(LazyThing.class, new Displayer<LazyThing>() {
+      @Override
+      public Map<String, String> display(LazyThing obj) {
+        return new LazyDisplayData()
+            .add(MIMETypes.TEXT, text)
+            .add(MIMETypes.HTML, html);
+      }
+    });
+
+    Displayers.setMimeTypes(MIMETypes.HTML);
+    Map<String, String> result = Displayers.display(new LazyThing());
+    for (Map.Entry<String, String> entry : result.entrySet()) {
+      Assert.assertEquals("Should only contain hinted MIME types", MIMETypes.HTML, entry.getKey());
+      Assert.assertEquals("Should compute hinted representation", "<b>thing</b>", entry.getValue());
+    }
+    Assert.assertEquals("Should compute the hinted representation", 1, html.calls);
+    Assert.assertEquals("Should never compute other representations", 0, text.calls);
+  }
+
+  @Test
+  public void testAsDisplayDataReceivesHint() {
+    final Set<String> received = new HashSet<>();
+    AsDisplayData obj = new AsDisplayData() {
+      @Override
+      public Map<String, String> display() {
+        return new HashMap<>();
+      }
+
+      @Override
+      public void setMimeTypes(String... types) {
+        received.addAll(Arrays.asList(types));
+      }
+    };
+
+    Displayers.setMimeTypes(MIMETypes.HTML);
+    Displayers.display(obj);
+
+    Assert.assertEquals("Should pass MIME type hint to AsDisplayData",
+        new HashSet<>(Arrays.asList(MIMETypes.HTML)), received);
+  }
+}
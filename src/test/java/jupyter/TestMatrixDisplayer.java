@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.Map;
+
+public class TestMatrixDisplayer {
+
+  @Before
+  @After
+  public void clearGlobals() {
+    Displayers.registration().clear();
+  }
+
+  @Test
+  public void testRegisteredByDefault() {
+    Assert.assertEquals("Should display double[][] by default",
+        MatrixDisplayer.get(), Displayers.registration().find(double[][].class));
+    Assert.assertEquals("Should display char[][] by default",
+        MatrixDisplayer.get(), Displayers.registration().find(char[][].class));
+  }
+
+  @Test
+  public void testAlignedText() {
+    Map<String, String> result = Displayers.display(new int[][] { { 1, 20 }, { 300, 4 } });
+    Assert.assertEquals("Should align columns",
+        "[[  1,  20],\n [300,   4]]", result.get(MIMETypes.TEXT));
+    Assert.assertEquals("Should render an HTML table",
+        "<table><tr><td>1</td><td>20</td></tr><tr><td>300</td><td>4</td></tr></table>",
+        result.get(MIMETypes.HTML));
+  }
+
+  @Test
+  public void testSummarizeLargeMatrix() {
+    double[][] matrix = new double[1000][1000];
+    for (int i = 0; i < matrix.length; i += 1) {
+      matrix[i][0] = i;
+    }
+
+    Displayers.setLimits(DisplayLimits.DEFAULT.withEdgeItems(1));
+    Map<String, String> result = Displayers.display(matrix);
+    Assert.assertEquals("Should elide rows and columns",
+        "[[  0.0, ...,   0.0],\n ...,\n [999.0, ...,   0.0]]",
+        result.get(MIMETypes.TEXT));
+    Assert.assertEquals("Should elide rows and columns in HTML",
+        "<table><tr><td>0.0</td><td>&hellip;</td><td>0.0</td></tr>" +
+            "<tr><td>&vellip;</td><td>&vellip;</td><td>&vellip;</td></tr>" +
+            "<tr><td>999.0</td><td>&hellip;</td><td>0.0</td></tr></table>",
+        result.get(MIMETypes.HTML));
+  }
+
+  @Test
+  public void testEscapesHtml() {
+    Map<String, String> result = Displayers.display(new char[][] { { '<', '&' } });
+    Assert.assertEquals("Should escape HTML",
+        "<table><tr><td>&lt;</td><td>&amp;</td></tr></table>", result.get(MIMETypes.HTML));
+  }
+
+  @Test
+  public void testRaggedArrays() {
+    Map<String, String> result = Displayers.display(new long[][] { { 1, 2 }, { 3 }, null });
+    Assert.assertEquals("Should display ragged arrays as nested arrays",
+        "[[1, 2], [3], null]", result.get(MIMETypes.TEXT));
+    Assert.assertFalse("Should not render ragged arrays as tables",
+        result.containsKey(MIMETypes.HTML));
+  }
+
+  @Test
+  public void testSummarizeEmptyRows() {
+    Displayers.setLimits(DisplayLimits.DEFAULT.withEdgeItems(1));
+    Map<String, String> result = Displayers.display(new double[2000000][0]);
+    Assert.assertEquals("Should elide rows of a matrix with no columns",
+        "[[],\n ...,\n []]", result.get(MIMETypes.TEXT));
+    Assert.assertEquals("Should elide rows in HTML",
+        "<table><tr></tr><tr><td>&vellip;</td></tr><tr></tr></table>",
+        result.get(MIMETypes.HTML));
+  }
+
+  @Test
+  public void testRaggedArraysInScope() {
+    Registration scope = Displayers.registration().newScope();
+    scope.setLimits(DisplayLimits.DEFAULT.withMaxDepth(1));
+    Map<String, String> result = scope.display(new long[][] { { 1, 2 }, { 3 }, null });
+    Assert.assertEquals("Should render ragged arrays with the scope's limits",
+        "[[...], [...], null]", result.get(MIMETypes.TEXT));
+  }
+
+  @Test
+  public void testNestedMatrix() {
+    Map<String, String> result = Displayers.display(
+        new Object[] { new int[][] { { 1, 20 }, { 300, 4 } } });
+    Assert.assertEquals("Should render nested matrices on one line",
+        "[[[1, 20], [300, 4]]]", result.get(MIMETypes.TEXT));
+
+    Assert.assertEquals("Should render each slice of a 3D array on one line",
+        "[[[0.0, 0.0], [0.0, 0.0]], [[0.0, 0.0], [0.0, 0.0]]]",
+        Displayers.display(new double[2][2][2]).get(MIMETypes.TEXT));
+  }
+}
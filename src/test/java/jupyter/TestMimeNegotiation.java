@@ -0,0 +1,200 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+public class TestMimeNegotiation {
+
+  @Before
+  @After
+  public void clearGlobals() {
+    Displayers.registration().clear();
+  }
+
+  private interface Shape {
+  }
+
+  private interface Named {
+  }
+
+  private interface Plotted {
+  }
+
+  private static class Circle implements Named, Plotted, Shape {
+  }
+
+  private static class FixedDisplayer extends Displayer<Circle> {
+    private final Set<String> mimeTypes;
+    private final double cost;
+
+    private FixedDisplayer(double cost, String... mimeTypes) {
+      this.mimeTypes = mimeTypes.length > 0 ? new HashSet<>(Arrays.asList(mimeTypes)) : null;
+      this.cost = cost;
+    }
+
+    @Override
+    public Map<String, String> display(Circle obj) {
+      Map<String, String> result = new HashMap<>();
+      for (String mimeType : mimeTypes) {
+        result.put(mimeType, "shape");
+      }
+      return result;
+    }
+
+    @Override
+    public Set<String> getProducedMimeTypes() {
+      return mimeTypes;
+    }
+
+    @Override
+    public double getCost(String mimeType) {
+      return cost;
+    }
+  }
+
+  @Test
+  public void testRanking() {
+    Displayers.setMimeTypes("text/plain;q=0.5", "text/html, image/png;q=0", "image/*;q=0.8");
+    Assert.assertArrayEquals("Should rank types by quality, then by order",
+        new String[] { MIMETypes.HTML, "image/*", MIMETypes.TEXT },
+        Displayers.registration().getMimeTypes());
+
+    try {
+      Displayers.setMimeTypes("text/html;q=2");
+      Assert.fail("Should reject qualities above 1");
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("Invalid MIME type quality: text/html;q=2 (must be between 0 and 1)",
+          e.getMessage());
+    }
+  }
+
+  @Test
+  public void testFallBackAlongHierarchy() {
+    Displayer<Circle> png = new FixedDisplayer(1.0, MIMETypes.PNG);
+    Displayer<Circle> html = new FixedDisplayer(1.0, MIMETypes.HTML);
+    Displayers.register(Circle.class, png);
+    Displayers.register(Shape.class, html);
+
+    Assert.assertSame("Should use the most specific displayer without a hint",
+        png, Displayers.registration().find(Circle.class));
+
+    Displayers.setMimeTypes(MIMETypes.HTML, MIMETypes.TEXT);
+    Assert.assertSame("Should skip displayers that produce no accepted type",
+        html, Displayers.registration().find(Circle.class));
+
+    Displayers.setMimeTypes("image/*", MIMETypes.HTML);
+    Assert.assertSame("Should prefer a more specific displayer",
+        png, Displayers.registration().find(Circle.class));
+
+    Displayers.setMimeTypes("application/json");
+    Assert.assertSame("Should use the first displayer if none produce an accepted type",
+        png, Displayers.registration().find(Circle.class));
+
+    Displayers.registration().clear();
+    Displayers.register(Circle.class, png);
+    Displayers.setMimeTypes(MIMETypes.TEXT);
+    Assert.assertSame("Should fall back to the default displayer when it produces the type",
+        ToStringDisplayer.get(), Displayers.registration().find(Circle.class));
+  }
+
+  @Test
+  public void testSameLevel() {
+    Displayer<Circle> cheapHtml = new FixedDisplayer(0.5, MIMETypes.HTML);
+    Displayer<Circle> html = new FixedDisplayer(1.0, MIMETypes.HTML);
+    Displayer<Circle> text = new FixedDisplayer(0.1, MIMETypes.TEXT);
+    Displayers.register(Named.class, text);
+    Displayers.register(Plotted.class, html);
+    Displayers.register(Shape.class, cheapHtml);
+
+    Displayers.setMimeTypes(MIMETypes.HTML + ";q=0.9", MIMETypes.TEXT + ";q=0.5");
+    Assert.assertSame("Should prefer the higher quality type, then the lower cost",
+        cheapHtml, Displayers.registration().find(Circle.class));
+
+    Displayers.setMimeTypes(MIMETypes.TEXT, MIMETypes.HTML);
+    Assert.assertSame("Should prefer the higher ranked type",
+        text, Displayers.registration().find(Circle.class));
+  }
+
+  @Test
+  public void testUndeclared() {
+    Displayer<Circle> undeclared = new FixedDisplayer(1.0);
+    Displayers.register(Circle.class, undeclared);
+    Displayers.register(Shape.class, new FixedDisplayer(1.0, MIMETypes.HTML));
+
+    Displayers.setMimeTypes(MIMETypes.HTML);
+    Assert.assertSame("Should assume undeclared displayers produce accepted types",
+        undeclared, Displayers.registration().find(Circle.class));
+  }
+
+  @Test
+  public void testFindByMimeType() {
+    Displayer<Circle> png = new FixedDisplayer(1.0, MIMETypes.PNG);
+    Displayer<Circle> html = new FixedDisplayer(1.0, MIMETypes.HTML);
+    Displayers.register(Circle.class, png);
+    Displayers.register(Shape.class, html);
+
+    Registration registration = Displayers.registration();
+    Assert.assertSame("Should find the displayer for PNG",
+        png, registration.find(Circle.class, MIMETypes.PNG));
+    Assert.assertSame("Should find the displayer for HTML",
+        html, registration.find(Circle.class, MIMETypes.HTML));
+    Assert.assertSame("Should find the default displayer for text",
+        ToStringDisplayer.get(), registration.find(Circle.class, MIMETypes.TEXT));
+    Assert.assertNull("Should return null if no displayer produces the type",
+        registration.find(Circle.class, "application/json"));
+  }
+
+  @Test
+  public void testRestrictLazyResults() {
+    Displayers.register(Circle.class, new Displayer<Circle>() {
+      @Override
+      public Map<String, String> display(Circle obj) {
+        LazyDisplayData result = new LazyDisplayData();
+        for (final String mimeType :
+            Arrays.asList(MIMETypes.TEXT, MIMETypes.HTML, MIMETypes.PNG)) {
+          result.add(mimeType, new Supplier<String>() {
+            @Override
+            public String get() {
+              return mimeType;
+            }
+          });
+        }
+        return result;
+      }
+    });
+
+    Displayers.setMimeTypes("text/*;q=0.5", MIMETypes.HTML);
+    Assert.assertEquals("Should keep accepted types, highest quality first",
+        Arrays.asList(MIMETypes.HTML, MIMETypes.TEXT),
+        Arrays.asList(Displayers.display(new Circle()).keySet().toArray()));
+
+    Displayers.setMimeTypes("*/*", "text/plain;q=0");
+    Assert.assertEquals("Should exclude types with quality 0",
+        new HashSet<>(Arrays.asList(MIMETypes.HTML, MIMETypes.PNG)),
+        Displayers.display(new Circle()).keySet());
+  }
+}
@@ -201,6 +201,97 @@ public class TestRegistration {
         Displayers.display(new TestObject()));
   }
 
+  @Test
+  public void testRegistrationInvalidatesCachedLookup() {
+    Assert.assertEquals("Should return default displayer before registration",
+        ToStringDisplayer.get(), Displayers.registration().find(TestObjectSubclass.class));
+
+    Displayer<TestInterface> expected = new Displayer<TestInterface>() {
+      @Override
+      public Map<String, String> display(TestInterface obj) {
+        return asMap(MIMETypes.TEXT, "foobar");
+      }
+    };
+
+    Displayers.register(TestInterface.class, expected);
+
+    Assert.assertEquals("Should return newly registered displayer after lookup was cached",
+        expected, Displayers.registration().find(TestObjectSubclass.class));
+    Assert.assertEquals("Should return the same displayer on repeated lookup",
+        expected, Displayers.registration().find(TestObjectSubclass.class));
+
+    Displayers.registration().clear();
+
+    Assert.assertEquals("Should return default displayer after clear",
+        ToStringDisplayer.get(), Displayers.registration().find(TestObjectSubclass.class));
+  }
+
+  @Test
+  public void testSetDefaultInvalidatesCachedLookup() {
+    Assert.assertEquals("Should return default displayer for class",
+        ToStringDisplayer.get(), Displayers.registration().find(TestObject.class));
+
+    Displayers.registration().setDefault(null);
+    Assert.assertEquals("Should return new default displayer after lookup was cached",
+        null, Displayers.registration().find(TestObject.class));
+  }
+
+  @Test
+  public void testGetAllIsSnapshot() {
+    Map<Class<?>, Displayer<?>> before = Displayers.registration().getAll();
+
+    Displayers.register(TestObject.class, new Displayer<TestObject>() {
+      @Override
+      public Map<String, String> display(TestObject obj) {
+        return asMap(MIMETypes.TEXT, "foobar");
+      }
+    });
+
+    Assert.assertFalse("Should not change a previously returned snapshot",
+        before.containsKey(TestObject.class));
+    Assert.assertTrue("Should include the registration in a new snapshot",
+        Displayers.registration().getAll().containsKey(TestObject.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testConcurrentRegistration() throws Exception {
+    final int numThreads = 4;
+    final Class<?>[] classes = new Class<?>[] {
+        TestObject.class, TestObjectSubclass.class, TestInterface.class, TestSuperInterface.class
+    };
+    final Displayer<Object> displayer = new Displayer<Object>() {
+      @Override
+      public Map<String, String> display(Object obj) {
+        return asMap(MIMETypes.TEXT, "foobar");
+      }
+    };
+
+    int initialSize = Displayers.registration().getAll().size();
+    Thread[] threads = new Thread[numThreads];
+    for (int i = 0; i < numThreads; i += 1) {
+      final Class<?> objClass = classes[i];
+      threads[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 1000; j += 1) {
+            Displayers.registration().find(TestObjectSubclass.class);
+          }
+          Displayers.register((Class<Object>) objClass, displayer);
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Assert.assertEquals("Should keep every concurrent registration",
+        initialSize + numThreads, Displayers.registration().getAll().size());
+    Assert.assertEquals("Should find a concurrently registered displayer",
+        displayer, Displayers.registration().find(TestObjectSubclass.class));
+  }
+
   private Map<String, String> asMap(String mimeType, String asText) {
     Map<String, String> result = new HashMap<>();
     result.put(mimeType, asText);
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+public class TestRegistrationScopes {
+
+  @Before
+  @After
+  public void clearGlobals() {
+    Displayers.registration().clear();
+  }
+
+  private interface Shape {
+  }
+
+  private static class Circle implements Shape {
+  }
+
+  /**
+   * Displays objects with a fixed name and records the MIME type hints it receives.
+   */
+  private static class NamedDisplayer extends Displayer<Object> {
+    private final String name;
+    private volatile String[] mimeTypes = null;
+
+    NamedDisplayer(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public Map<String, String> display(Object obj) {
+      return Collections.singletonMap(MIMETypes.TEXT, name);
+    }
+
+    @Override
+    public void setMimeTypes(String... types) {
+      this.mimeTypes = types;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void add(Registration registration, Class<?> objClass,
+                          Displayer<Object> displayer) {
+    registration.add((Class<Object>) objClass, displayer);
+  }
+
+  private static String text(Registration registration, Object obj) {
+    return registration.display(obj).get(MIMETypes.TEXT);
+  }
+
+  @Test
+  public void testInheritance() {
+    Registration global = Displayers.registration();
+    Registration session = global.newScope();
+    Assert.assertSame("Should record the parent", global, session.getParent());
+
+    add(global, Shape.class, new NamedDisplayer("global shape"));
+    Assert.assertEquals("Should inherit displayers added after the scope was created",
+        "global shape", text(session, new Circle()));
+    Assert.assertEquals("Should inherit the default displayer",
+        "crunchy", text(session, "crunchy"));
+
+    add(session, Shape.class, new NamedDisplayer("session shape"));
+    Assert.assertEquals("Should use the scope's displayer for the same class",
+        "session shape", text(session, new Circle()));
+    Assert.assertEquals("Should not change the parent",
+        "global shape", text(global, new Circle()));
+
+    add(global, Circle.class, new NamedDisplayer("global circle"));
+    Assert.assertEquals("Should use a more specific inherited displayer",
+        "global circle", text(session, new Circle()));
+    Assert.assertEquals("Should include inherited displayers in getAll",
+        global.getAll().keySet(), session.getAll().keySet());
+    Assert.assertEquals("Should include the scope's displayers in getAll",
+        "session shape", session.getAll().get(Shape.class).display(null).get(MIMETypes.TEXT));
+
+    Registration other = global.newScope();
+    other.setDefault(new NamedDisplayer("other default"));
+    Assert.assertEquals("Should use the scope's default",
+        "other default", text(other, "crunchy"));
+    Assert.assertEquals("Should not change sibling scopes",
+        "crunchy", text(session, "crunchy"));
+  }
+
+  @Test
+  public void testMimeTypeHints() {
+    Registration global = Displayers.registration();
+    NamedDisplayer inherited = new NamedDisplayer("inherited");
+    add(global, Shape.class, inherited);
+    global.setMimeTypes(MIMETypes.TEXT, MIMETypes.HTML);
+
+    Registration session = global.newScope();
+    Assert.assertArrayEquals("Should inherit the hint",
+        new String[] { MIMETypes.TEXT, MIMETypes.HTML }, session.getMimeTypes());
+
+    NamedDisplayer own = new NamedDisplayer("own");
+    add(session, Circle.class, own);
+    session.setMimeTypes(MIMETypes.TEXT);
+    Assert.assertArrayEquals("Should use the scope's hint",
+        new String[] { MIMETypes.TEXT }, session.getMimeTypes());
+    Assert.assertArrayEquals("Should pass the hint to the scope's displayers",
+        new String[] { MIMETypes.TEXT }, own.mimeTypes);
+    Assert.assertArrayEquals("Should not pass the hint to inherited displayers",
+        new String[] { MIMETypes.TEXT, MIMETypes.HTML }, inherited.mimeTypes);
+    Assert.assertArrayEquals("Should not change the parent hint",
+        new String[] { MIMETypes.TEXT, MIMETypes.HTML }, global.getMimeTypes());
+
+    final Map<String, String> seen = new HashMap<>();
+    AsDisplayData selfDisplaying = new AsDisplayData() {
+      @Override
+      public Map<String, String> display() {
+        return new LazyDisplayData()
+            .add(MIMETypes.TEXT, new Supplier<String>() {
+              @Override
+              public String get() {
+                return "text";
+              }
+            })
+            .add(MIMETypes.HTML, new Supplier<String>() {
+              @Override
+              public String get() {
+                return "html";
+              }
+            });
+      }
+
+      @Override
+      public void setMimeTypes(String... types) {
+        seen.put("hint", String.join(",", types));
+      }
+    };
+
+    Assert.assertEquals("Should restrict lazy results to the scope's hint",
+        Collections.singleton(MIMETypes.TEXT), session.display(selfDisplaying).keySet());
+    Assert.assertEquals("Should pass the scope's hint to AsDisplayData",
+        MIMETypes.TEXT, seen.get("hint"));
+    Assert.assertEquals("Should use the parent's hint in the parent",
+        2, global.display(selfDisplaying).size());
+    Assert.assertEquals("Should pass the parent's hint to AsDisplayData",
+        MIMETypes.TEXT + "," + MIMETypes.HTML, seen.get("hint"));
+  }
+
+  @Test
+  public void testActiveRegistration() {
+    final Registration session = Displayers.registration().newScope();
+    session.setLimits(DisplayLimits.DEFAULT.withMaxElements(4).withEdgeItems(1));
+    add(session, Shape.class, new Displayer<Object>() {
+      @Override
+      public Map<String, String> display(Object obj) {
+        Assert.assertSame("Should be active while displaying", session, Displayers.registration());
+        return Displayers.display(new int[] { 1, 2, 3, 4, 5 });
+      }
+    });
+
+    Assert.assertEquals("Should use the scope's limits in nested displays",
+        "[1, ..., 5]", text(session, new Circle()));
+    Assert.assertEquals("Should use the parent's limits outside the scope",
+        "[1, 2, 3, 4, 5]", Displayers.display(new int[] { 1, 2, 3, 4, 5 }).get(MIMETypes.TEXT));
+    Assert.assertSame("Should restore the active registration",
+        Registration.INSTANCE, Displayers.registration());
+  }
+
+  @Test
+  public void testInheritedSettings() {
+    Registration global = Displayers.registration();
+    DisplayMetrics metrics = new DisplayMetrics();
+    global.addListener(metrics);
+    global.setLimits(DisplayLimits.UNLIMITED);
+
+    Registration session = global.newScope();
+    Assert.assertSame("Should inherit limits", DisplayLimits.UNLIMITED, session.getLimits());
+    Assert.assertSame("Should inherit the executor", global.getExecutor(), session.getExecutor());
+
+    session.display("crunchy");
+    Assert.assertEquals("Should call inherited listeners", 1, metrics.getDisplayCount());
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+public class TestRenderContext {
+
+  @Before
+  @After
+  public void clearGlobals() {
+    Displayers.registration().clear();
+  }
+
+  private static class Node {
+    private final Object[] children = new Object[1];
+  }
+
+  /**
+   * Displays a Node and its children, using the render context to stop at cycles.
+   */
+  private static class NodeDisplayer extends Displayer<Node> {
+    @Override
+    public Map<String, String> display(Node node) {
+      RenderContext context = RenderContext.current();
+      if (!context.enter(node)) {
+        return Collections.singletonMap(MIMETypes.TEXT, context.getMarker(node));
+      }
+      try {
+        return Collections.singletonMap(MIMETypes.TEXT,
+            "Node" + Displayers.display(node.children).get(MIMETypes.TEXT));
+      } finally {
+        context.exit(node);
+      }
+    }
+  }
+
+  private static String text(Object obj) {
+    return Displayers.display(obj).get(MIMETypes.TEXT);
+  }
+
+  @Test
+  public void testSelfReferencingArray() {
+    Object[] arr = new Object[] { 1, null };
+    arr[1] = arr;
+    Assert.assertEquals("Should show a back-reference like Arrays.deepToString",
+        Arrays.deepToString(arr), text(arr));
+
+    Object[] outer = new Object[] { arr, arr };
+    Assert.assertEquals("Should only mark cycles, not repeated values",
+        "[[1, [...]], [1, [...]]]", text(outer));
+  }
+
+  @Test
+  public void testCycleThroughDisplayer() {
+    Displayers.register(Node.class, new NodeDisplayer());
+    Node node = new Node();
+    node.children[0] = node;
+    Assert.assertEquals("Should stop at a cycle through another displayer",
+        "Node[...]", text(node));
+
+    Node child = new Node();
+    child.children[0] = 7;
+    node.children[0] = new Object[] { child, node };
+    Assert.assertEquals("Should render values that are not cycles",
+        "Node[[Node[7], ...]]", text(node));
+  }
+
+  @Test
+  public void testMaxDepth() {
+    Displayers.setLimits(DisplayLimits.DEFAULT.withMaxDepth(3));
+    Object[] nested = new Object[] { new Object[] { new Object[] { new Object[] { 1 } } } };
+    Assert.assertEquals("Should stop at the maximum depth", "[[[[...]]]]", text(nested));
+
+    Object[] deep = new Object[] { 1 };
+    for (int i = 0; i < 100000; i += 1) {
+      deep = new Object[] { deep };
+    }
+    Displayers.setLimits(DisplayLimits.DEFAULT);
+    Assert.assertEquals("Should not overflow the stack for deeply nested arrays",
+        "[[[[[[[[[[[[[[[[[...]]]]]]]]]]]]]]]]]", text(deep));
+  }
+
+  @Test
+  public void testWorkBudget() {
+    Displayers.setLimits(DisplayLimits.DEFAULT.withMaxWork(10));
+    int[] values = new int[100];
+    for (int i = 0; i < values.length; i += 1) {
+      values[i] = i;
+    }
+    Assert.assertEquals("Should stop when the budget is spent",
+        "[0, 1, 2, 3, 4, 5, 6, 7, 8, 9, ...]", text(values));
+
+    Displayers.setLimits(DisplayLimits.DEFAULT.withMaxWork(12));
+    Object[] nested = new Object[] { new int[] { 1, 2, 3, 4, 5 }, new int[] { 6, 7, 8, 9, 10 } };
+    Assert.assertEquals("Should share the budget between nested values",
+        "[[1, 2, 3, 4, 5], [6, 7, 8, 9, 10]]", text(nested));
+    Displayers.setLimits(DisplayLimits.DEFAULT.withMaxWork(10));
+    Assert.assertEquals("Should share the budget between nested values",
+        "[[1, 2, 3, 4, 5], [6, 7, 8, ...]]", text(nested));
+  }
+
+  @Test
+  public void testContextLifecycle() {
+    RenderContext context = RenderContext.current();
+    Object value = new Object();
+    Assert.assertTrue("Should enter a value", context.enter(value));
+    Assert.assertTrue("Should track the value", context.isRendering(value));
+    Assert.assertFalse("Should not enter a value twice", context.enter(value));
+    Assert.assertEquals("Should track depth", 1, context.getDepth());
+    context.exit(value);
+    Assert.assertFalse("Should forget exited values", context.isRendering(value));
+    Assert.assertEquals("Should track depth", 0, context.getDepth());
+
+    Assert.assertNotSame("Should not share contexts outside of display calls",
+        context, RenderContext.current());
+    Assert.assertEquals("Should mark maps", "{...}", context.getMarker(Collections.emptyMap()));
+    Assert.assertEquals("Should mark lists", "[...]", context.getMarker(Collections.emptyList()));
+  }
+}
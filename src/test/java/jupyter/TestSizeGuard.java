@@ -0,0 +1,308 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+public class TestSizeGuard {
+
+  @Before
+  @After
+  public void clearGlobals() {
+    Displayers.registration().clear();
+  }
+
+  private static class Big {
+  }
+
+  private static String repeat(char ch, int count) {
+    StringBuilder sb = new StringBuilder(count);
+    for (int i = 0; i < count; i += 1) {
+      sb.append(ch);
+    }
+    return sb.toString();
+  }
+
+  private static final Map<String, String> BIG_RESULT = new LinkedHashMap<>();
+
+  static {
+    BIG_RESULT.put(MIMETypes.TEXT, repeat('t', 6));
+    BIG_RESULT.put(MIMETypes.HTML, repeat('h', 10));
+  }
+
+  private static void registerBig() {
+    Displayers.register(Big.class, new Displayer<Big>() {
+      @Override
+      public Map<String, String> display(Big obj) {
+        return BIG_RESULT;
+      }
+    });
+  }
+
+  @Test
+  public void testWithinBudget() {
+    registerBig();
+    Displayers.setLimits(DisplayLimits.DEFAULT.withMaxResultChars(16));
+    Assert.assertSame("Should return results that fit unchanged",
+        BIG_RESULT, Displayers.display(new Big()));
+  }
+
+  @Test
+  public void testTruncate() {
+    registerBig();
+    DisplayMetrics metrics = new DisplayMetrics();
+    Displayers.registration().addListener(metrics);
+    Displayers.setLimits(DisplayLimits.DEFAULT.withMaxResultChars(10));
+
+    Map<String, String> result = Displayers.display(new Big());
+    Assert.assertEquals("Should keep representations that fit", "tttttt",
+        result.get(MIMETypes.TEXT));
+    Assert.assertEquals("Should truncate to the remaining budget", "hhhh...",
+        result.get(MIMETypes.HTML));
+    Assert.assertEquals("Should not modify the displayer's result",
+        repeat('h', 10), BIG_RESULT.get(MIMETypes.HTML));
+
+    Assert.assertEquals("Should count truncations", 1, metrics.getTruncatedCount());
+    Assert.assertEquals("Should not count spills", 0, metrics.getSpilledCount());
+    Assert.assertEquals("Should count by displayer", Long.valueOf(1),
+        metrics.getOversizedCounts().values().iterator().next());
+  }
+
+  @Test
+  public void testSpill() {
+    registerBig();
+    DisplayMetrics metrics = new DisplayMetrics();
+    Displayers.registration().addListener(metrics);
+    Displayers.setLimits(DisplayLimits.DEFAULT
+        .withMaxResultChars(10)
+        .withOverflow(DisplayLimits.Overflow.SPILL));
+
+    Map<String, String> result = Displayers.display(new Big());
+    Assert.assertTrue("Should return a reference to the spilled representation",
+        result instanceof BinaryDisplayData);
+    BinaryDisplayData data = (BinaryDisplayData) result;
+    Assert.assertNull("Should not hold the spilled representation in memory",
+        data.getString(MIMETypes.HTML));
+    Assert.assertEquals("Should report the spilled size", 10, data.getSize(MIMETypes.HTML));
+    Assert.assertEquals("Should read the spilled representation", BIG_RESULT, result);
+    Assert.assertEquals("Should count spills", 1, metrics.getSpilledCount());
+
+    long spilledBytes = SpillDirectory.get().getSize();
+    data.release();
+    Assert.assertFalse("Should remove released representations", data.containsKey(MIMETypes.HTML));
+    Assert.assertEquals("Should delete released spill files",
+        spilledBytes - 10, SpillDirectory.get().getSize());
+  }
+
+  @Test
+  public void testSpillReplaced() {
+    registerBig();
+    Displayers.setLimits(DisplayLimits.DEFAULT
+        .withMaxResultChars(10)
+        .withOverflow(DisplayLimits.Overflow.SPILL));
+
+    Map<String, String> result = Displayers.display(new Big());
+    long spilledBytes = SpillDirectory.get().getSize();
+    result.put(MIMETypes.HTML, "<b>small</b>");
+    Assert.assertEquals("Should delete replaced spill files",
+        spilledBytes - 10, SpillDirectory.get().getSize());
+  }
+
+  @Test
+  public void testSpillCopy() throws IOException {
+    Object owner = new Object();
+    Path file = SpillDirectory.get().write(owner, repeat('s', 10));
+    BinaryDisplayData original = new BinaryDisplayData()
+        .putSpilledText(MIMETypes.TEXT, file, 10, owner);
+    BinaryDisplayData copy = original.copy();
+
+    owner = null;
+    original = null;
+    for (int i = 0; i < 5; i += 1) {
+      System.gc();
+      SpillDirectory.get().getFileCount();
+    }
+    Assert.assertTrue("Should keep spill files used by a copy", Files.exists(file));
+    Assert.assertEquals("Should read the copy's spilled representation", repeat('s', 10),
+        copy.get(MIMETypes.TEXT));
+
+    copy.release();
+    Assert.assertTrue("Should not delete spill files owned by the original", Files.exists(file));
+  }
+
+  @Test
+  public void testSpillDirectoryCap() throws IOException {
+    SpillDirectory spills = new SpillDirectory(25);
+    Object owner = new Object();
+    Path first = spills.write(owner, repeat('a', 10));
+    Path second = spills.write(owner, repeat('b', 10));
+    Assert.assertEquals("Should write spill files to one directory",
+        first.getParent(), second.getParent());
+
+    Path third = spills.write(owner, repeat('c', 10));
+    Assert.assertFalse("Should evict the oldest file", Files.exists(first));
+    Assert.assertTrue("Should keep newer files", Files.exists(second) && Files.exists(third));
+    Assert.assertEquals("Should stay within the cap", 20, spills.getSize());
+
+    Assert.assertNull("Should not spill text larger than the cap",
+        spills.write(owner, repeat('d', 30)));
+    Assert.assertEquals("Should not keep files larger than the cap", 2, spills.getFileCount());
+
+    spills.delete(second);
+    spills.delete(third);
+    Assert.assertFalse("Should delete files", Files.exists(third));
+    Assert.assertEquals("Should track deleted files", 0, spills.getSize());
+  }
+
+  @Test
+  public void testLazy() {
+    Displayers.register(Big.class, new Displayer<Big>() {
+      @Override
+      public Map<String, String> display(Big obj) {
+        return new LazyDisplayData().add(MIMETypes.TEXT, new Supplier<String>() {
+          @Override
+          public String get() {
+            return repeat('t', 20);
+          }
+        });
+      }
+    });
+    Displayers.setLimits(DisplayLimits.DEFAULT.withMaxResultChars(5));
+
+    Assert.assertEquals("Should truncate lazy representations when computed", "ttttt...",
+        Displayers.display(new Big()).get(MIMETypes.TEXT));
+  }
+
+  @Test
+  public void testLazySpill() {
+    final int[] computed = new int[] { 0 };
+    Displayers.register(Big.class, new Displayer<Big>() {
+      @Override
+      public Map<String, String> display(Big obj) {
+        return new LazyDisplayData().add(MIMETypes.TEXT, new Supplier<String>() {
+          @Override
+          public String get() {
+            computed[0] += 1;
+            return repeat('t', 20);
+          }
+        });
+      }
+    });
+    DisplayMetrics metrics = new DisplayMetrics();
+    Displayers.registration().addListener(metrics);
+    Displayers.setLimits(DisplayLimits.DEFAULT
+        .withMaxResultChars(5)
+        .withOverflow(DisplayLimits.Overflow.SPILL));
+
+    Map<String, String> result = Displayers.display(new Big());
+    Assert.assertTrue("Should spill lazy representations",
+        result instanceof BinaryDisplayData);
+    Assert.assertEquals("Should not compute lazy representations early", 0, computed[0]);
+
+    BinaryDisplayData data = (BinaryDisplayData) result;
+    Assert.assertEquals("Should report the spilled size", 20, data.getSize(MIMETypes.TEXT));
+    Assert.assertNull("Should not hold the spilled representation in memory",
+        data.getString(MIMETypes.TEXT));
+    Assert.assertEquals("Should read the spilled representation", repeat('t', 20),
+        data.get(MIMETypes.TEXT));
+    Assert.assertEquals("Should compute the representation once", 1, computed[0]);
+    Assert.assertEquals("Should count spills", 1, metrics.getSpilledCount());
+  }
+
+  private static class Streamed {
+  }
+
+  @Test
+  public void testStreamSpill() {
+    Displayers.register(Streamed.class, new Displayer<Streamed>() {
+      @Override
+      public Map<String, String> display(Streamed obj) {
+        throw new AssertionError("Should stream instead of building the representations");
+      }
+
+      @Override
+      public void displayTo(Streamed obj, SinkFactory sinks) throws IOException {
+        Appendable text = sinks.open(MIMETypes.TEXT);
+        for (int i = 0; i < 10; i += 1) {
+          text.append("abc");
+        }
+        sinks.close(MIMETypes.TEXT, text);
+
+        Appendable html = sinks.open(MIMETypes.HTML);
+        html.append("<b/>");
+        sinks.close(MIMETypes.HTML, html);
+      }
+    });
+    DisplayMetrics metrics = new DisplayMetrics();
+    Displayers.registration().addListener(metrics);
+    Displayers.setLimits(DisplayLimits.DEFAULT
+        .withMaxResultChars(10)
+        .withOverflow(DisplayLimits.Overflow.SPILL));
+
+    BinaryDisplayData data = (BinaryDisplayData) Displayers.display(new Streamed());
+    Assert.assertNull("Should spill the streamed representation",
+        data.getString(MIMETypes.TEXT));
+    Assert.assertEquals("Should read the spilled representation", repeat('x', 10)
+        .replace("x", "abc"), data.get(MIMETypes.TEXT));
+    Assert.assertEquals("Should keep representations that fit", "<b/>",
+        data.getString(MIMETypes.HTML));
+    Assert.assertEquals("Should count spills", 1, metrics.getSpilledCount());
+  }
+
+  @Test
+  public void testStreamWithinBudget() {
+    Displayers.setLimits(DisplayLimits.DEFAULT
+        .withMaxResultChars(100)
+        .withOverflow(DisplayLimits.Overflow.SPILL));
+
+    Assert.assertEquals("Should keep streamed representations that fit",
+        Collections.singletonMap(MIMETypes.TEXT, "[1, 2, 3]"),
+        Displayers.display(new int[] { 1, 2, 3 }));
+  }
+
+  @Test
+  public void testBatch() {
+    registerBig();
+    Displayers.setLimits(DisplayLimits.DEFAULT.withMaxResultChars(3));
+
+    for (Map<String, String> result : Displayers.displayAll(
+        Collections.nCopies(3, new Big()))) {
+      Assert.assertEquals("Should apply the budget to each object", "ttt...",
+          result.get(MIMETypes.TEXT));
+    }
+  }
+
+  @Test
+  public void testInvalidLimit() {
+    try {
+      DisplayLimits.DEFAULT.withMaxResultChars(0);
+      Assert.fail("Should reject a non-positive limit");
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("Invalid maxResultChars: 0 (must be positive)", e.getMessage());
+    }
+  }
+}
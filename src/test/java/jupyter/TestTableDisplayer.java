@@ -0,0 +1,209 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+public class TestTableDisplayer {
+
+  @Before
+  @After
+  public void clearGlobals() {
+    Displayers.registration().clear();
+  }
+
+  /**
+   * A table of squares with a million rows, which are computed when read.
+   */
+  private static class Squares {
+    private long rowsRead = 0;
+  }
+
+  private static class SquaresDisplayer extends TableDisplayer<Squares> {
+    SquaresDisplayer() {
+      super(3);
+    }
+
+    @Override
+    protected TableSource toTable(final Squares squares) {
+      return new TableSource() {
+        @Override
+        public List<String> getColumnNames() {
+          return Arrays.asList("n", "square");
+        }
+
+        @Override
+        public long getRowCount() {
+          return 1000000;
+        }
+
+        @Override
+        public ColumnBatch read(long offset, int limit) {
+          int numRows = (int) Math.min(limit, getRowCount() - offset);
+          long[] n = new long[numRows];
+          double[] square = new double[numRows];
+          for (int i = 0; i < numRows; i += 1) {
+            n[i] = offset + i;
+            square[i] = (double) n[i] * n[i];
+          }
+          squares.rowsRead += numRows;
+          return new ColumnBatch(offset, numRows, n, square);
+        }
+      };
+    }
+  }
+
+  @Test
+  public void testFirstPage() {
+    Displayers.register(Squares.class, new SquaresDisplayer());
+    Squares squares = new Squares();
+
+    Map<String, String> result = Displayers.display(squares);
+    Assert.assertEquals("Should render the first page as text",
+        "n | square\n" +
+        "--+-------\n" +
+        "0 |    0.0\n" +
+        "1 |    1.0\n" +
+        "2 |    4.0\n" +
+        "(rows 1-3 of 1000000)",
+        result.get(MIMETypes.TEXT));
+    Assert.assertEquals("Should only read the first page", 3, squares.rowsRead);
+  }
+
+  @Test
+  public void testDisplayPage() {
+    Displayers.register(Squares.class, new SquaresDisplayer());
+    Squares squares = new Squares();
+
+    Map<String, String> result = Displayers.displayPage(squares, 999998, 10);
+    Assert.assertEquals("Should render the requested page as HTML",
+        "<table><thead><tr><th>n</th><th>square</th></tr></thead><tbody>" +
+            "<tr><td>999998</td><td>9.99996000004E11</td></tr>" +
+            "<tr><td>999999</td><td>9.99998000001E11</td></tr>" +
+            "</tbody></table><p>rows 999999-1000000 of 1000000</p>",
+        result.get(MIMETypes.HTML));
+    Assert.assertEquals("Should only read the requested rows", 2, squares.rowsRead);
+  }
+
+  @Test
+  public void testRows() {
+    List<Map<String, Object>> rows = new ArrayList<>();
+    for (int i = 0; i < 2; i += 1) {
+      Map<String, Object> row = new LinkedHashMap<>();
+      row.put("name", i == 0 ? "<alice>" : "bob");
+      row.put("age", 30 + i);
+      rows.add(row);
+    }
+
+    Map<String, String> result = TableDisplayer.ofRows().display(rows);
+    Assert.assertEquals("Should render rows without a footer when all are shown",
+        "name    | age\n" +
+        "--------+----\n" +
+        "<alice> |  30\n" +
+        "bob     |  31",
+        result.get(MIMETypes.TEXT));
+    Assert.assertEquals("Should escape HTML",
+        "<table><thead><tr><th>name</th><th>age</th></tr></thead><tbody>" +
+            "<tr><td>&lt;alice&gt;</td><td>30</td></tr>" +
+            "<tr><td>bob</td><td>31</td></tr>" +
+            "</tbody></table>",
+        result.get(MIMETypes.HTML));
+  }
+
+  @Test
+  public void testCellsWithHtmlHint() {
+    Displayers.register(Thing.class, new Displayer<Thing>() {
+      @Override
+      public Map<String, String> display(Thing obj) {
+        return new LazyDisplayData()
+            .add(MIMETypes.TEXT, new Supplier<String>() {
+              @Override
+              public String get() {
+                return "thing";
+              }
+            })
+            .add(MIMETypes.HTML, new Supplier<String>() {
+              @Override
+              public String get() {
+                return "<b>thing</b>";
+              }
+            });
+      }
+    });
+    Displayers.setMimeTypes(MIMETypes.HTML);
+
+    Map<String, Object> row = new LinkedHashMap<>();
+    row.put("value", new Thing());
+    Map<String, String> result = TableDisplayer.ofRows()
+        .display(Collections.singletonList(row));
+    Assert.assertEquals("Should render cells as text regardless of the hint",
+        "<table><thead><tr><th>value</th></tr></thead><tbody>" +
+            "<tr><td>thing</td></tr>" +
+            "</tbody></table>",
+        result.get(MIMETypes.HTML));
+  }
+
+  @Test
+  public void testDisplayPageWithoutTable() {
+    Assert.assertEquals("Should display non-tables at offset 0",
+        Displayers.display("crunchy"), Displayers.displayPage("crunchy", 0, 10));
+    Assert.assertTrue("Should not display non-tables at other offsets",
+        Displayers.displayPage("crunchy", 10, 10).isEmpty());
+  }
+
+  @Test
+  public void testInvalidPage() {
+    Displayers.register(Squares.class, new SquaresDisplayer());
+    try {
+      Displayers.displayPage(new Squares(), -1, 10);
+      Assert.fail("Should reject a negative offset");
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("Invalid offset: -1 (must be >= 0)", e.getMessage());
+    }
+    try {
+      Displayers.displayPage("crunchy", 0, -1);
+      Assert.fail("Should reject a negative limit for non-tables");
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("Invalid limit: -1 (must be >= 0)", e.getMessage());
+    }
+
+    List<Map<String, Object>> rows = Collections.singletonList(
+        Collections.<String, Object>singletonMap("n", 1));
+    try {
+      TableDisplayer.ofRows().displayPage(rows, 0, -1);
+      Assert.fail("Should reject a negative limit");
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("Invalid limit: -1 (must be >= 0)", e.getMessage());
+    }
+    try {
+      TableSource.fromRows(rows, 1).read(-1, 1);
+      Assert.fail("Should reject a negative offset when reading rows");
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("Invalid offset: -1 (must be >= 0)", e.getMessage());
+    }
+  }
+}
@@ -20,6 +20,7 @@ import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -91,6 +92,119 @@ public class TestToStringDisplayer {
         toString.display(new Object[] { new CustomClass("tangerine"), 34 }));
   }
 
+  @Test
+  public void testElementsWithoutText() {
+    Displayers.setMimeTypes(MIMETypes.HTML);
+    Object[] array = new Object[] { Arrays.asList(1, 2) };
+    Assert.assertEquals("Should fall back to toString for elements restricted to other types",
+        "[[1, 2]]", toString.display(array).get(MIMETypes.TEXT));
+  }
+
+  @Test
+  public void testPrimitiveAndBoxedArrays() {
+    Assert.assertEquals("double[]",
+        asMap(MIMETypes.TEXT, Arrays.toString(new double[] { 0.1, -2.5e-10, Double.NaN })),
+        toString.display(new double[] { 0.1, -2.5e-10, Double.NaN }));
+    Assert.assertEquals("char[]",
+        asMap(MIMETypes.TEXT, "[a, b]"),
+        toString.display(new char[] { 'a', 'b' }));
+    Assert.assertEquals("boolean[]",
+        asMap(MIMETypes.TEXT, "[true, false]"),
+        toString.display(new boolean[] { true, false }));
+    Assert.assertEquals("Double[]",
+        asMap(MIMETypes.TEXT, "[0.5, null, 1.0E20]"),
+        toString.display(new Double[] { 0.5, null, 1e20 }));
+
+    Displayers.register(Integer.class, new Displayer<Integer>() {
+      @Override
+      public Map<String, String> display(Integer obj) {
+        return asMap(MIMETypes.TEXT, "#" + obj);
+      }
+    });
+
+    Assert.assertEquals("Integer[] with custom displayer",
+        asMap(MIMETypes.TEXT, "[#34, #35]"),
+        toString.display(new Integer[] { 34, 35 }));
+  }
+
+  @Test
+  public void testSummarizeLargeArrays() {
+    int[] ints = new int[2000];
+    Object[] objects = new Object[2000];
+    for (int i = 0; i < ints.length; i += 1) {
+      ints[i] = i;
+      objects[i] = i;
+    }
+
+    Assert.assertEquals("Large int[]",
+        asMap(MIMETypes.TEXT, "[0, 1, 2, ..., 1997, 1998, 1999]"),
+        toString.display(ints));
+    Assert.assertEquals("Large Object[]",
+        asMap(MIMETypes.TEXT, "[0, 1, 2, ..., 1997, 1998, 1999]"),
+        toString.display(objects));
+    Assert.assertEquals("Nested large arrays",
+        asMap(MIMETypes.TEXT, "[[0, 1, 2, ..., 1997, 1998, 1999], [34]]"),
+        toString.display(new Object[] { ints, new int[] { 34 } }));
+
+    Displayers.setLimits(DisplayLimits.DEFAULT.withMaxElements(4).withEdgeItems(1));
+    Assert.assertEquals("Configured limits",
+        asMap(MIMETypes.TEXT, "[34.0, ..., 38.0]"),
+        toString.display(new double[] { 34, 35, 36, 37, 38 }));
+    Assert.assertEquals("Small arrays are not summarized",
+        asMap(MIMETypes.TEXT, "[34, 35, 36, 37]"),
+        toString.display(new long[] { 34, 35, 36, 37 }));
+  }
+
+  @Test
+  public void testMaxChars() {
+    Displayers.setLimits(DisplayLimits.DEFAULT.withMaxChars(10));
+    Assert.assertEquals("Truncated int[]",
+        asMap(MIMETypes.TEXT, "[1000, 1001, 10..., ...]"),
+        toString.display(new int[] { 1000, 1001, 1002, 1003, 1004 }));
+    Assert.assertEquals("Truncated element",
+        asMap(MIMETypes.TEXT, "[tangerines..., ...]"),
+        toString.display(new Object[] { "tangerines are orange", "lemons are yellow" }));
+  }
+
+  @Test
+  public void testMaxDepth() {
+    Displayers.setLimits(DisplayLimits.DEFAULT.withMaxDepth(2));
+    Assert.assertEquals("Nested arrays",
+        asMap(MIMETypes.TEXT, "[[[...]], [34]]"),
+        toString.display(new Object[] { new Object[] { new int[] { 1 } }, new int[] { 34 } }));
+  }
+
+  @Test
+  public void testImmutableResult() {
+    Map<String, String> result = toString.display("crunchy");
+    try {
+      result.put(MIMETypes.HTML, "<b>crunchy</b>");
+      Assert.fail("Should return an immutable result");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testReusedBuffers() {
+    StringBuilder sb = BuilderPool.acquire(16);
+    BuilderPool.release(sb);
+    Assert.assertSame("Should reuse the thread's builder", sb, BuilderPool.acquire(16));
+    Assert.assertNotSame("Should not share a builder that is in use", sb, BuilderPool.acquire(16));
+    BuilderPool.release(sb);
+
+    StringBuilder large = BuilderPool.acquire(BuilderPool.MAX_CAPACITY + 1);
+    BuilderPool.release(large);
+    Assert.assertNotSame("Should not keep large builders", large, BuilderPool.acquire(16));
+
+    Assert.assertEquals("Should format arrays nested in other displayers",
+        asMap(MIMETypes.TEXT, "[[[1, 2]], 3]"),
+        toString.display(new Object[] { Arrays.asList(new int[] { 1, 2 }), 3 }));
+    Assert.assertEquals("Should format arrays after nested calls",
+        asMap(MIMETypes.TEXT, "[4, 5]"),
+        toString.display(new int[] { 4, 5 }));
+  }
+
   private Map<String, String> asMap(String mimeType, String asText) {
     Map<String, String> result = new HashMap<>();
     result.put(mimeType, asText);
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2017 Netflix
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jupyter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class TestTypeTokens {
+
+  @Before
+  @After
+  public void clearGlobals() {
+    Displayers.registration().clear();
+  }
+
+  private static class NamedDisplayer<T> extends Displayer<T> {
+    private final String name;
+
+    private NamedDisplayer(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public Map<String, String> display(T obj) {
+      Map<String, String> result = new HashMap<>();
+      result.put(MIMETypes.TEXT, name);
+      return result;
+    }
+  }
+
+  private static String text(Object obj) {
+    return Displayers.display(obj).get(MIMETypes.TEXT);
+  }
+
+  private static void registerLists() {
+    Displayers.register(new TypeToken<List<Double>>() {},
+        new NamedDisplayer<List<Double>>("doubles"));
+    Displayers.register(new TypeToken<List<String>>() {},
+        new NamedDisplayer<List<String>>("strings"));
+  }
+
+  @Test
+  public void testElementDispatch() {
+    registerLists();
+
+    Assert.assertEquals("Should use the List<Double> displayer",
+        "doubles", text(Arrays.asList(1.0, 2.0, null)));
+    Assert.assertEquals("Should use the List<String> displayer",
+        "strings", text(new LinkedList<>(Arrays.asList("a", "b"))));
+    Assert.assertEquals("Should use the List displayer for other elements",
+        "[1, 2]", text(Arrays.asList(1, 2)));
+    Assert.assertEquals("Should use the List displayer for mixed elements",
+        "[1.0, a]", text(Arrays.<Object>asList(1.0, "a")));
+    Assert.assertEquals("Should use the List displayer for empty lists",
+        "[]", text(new ArrayList<Double>()));
+    Assert.assertEquals("Should use the Collection displayer for sets",
+        "[1.0]", text(Collections.singleton(1.0)));
+  }
+
+  @Test
+  public void testSampleSpansList() {
+    registerLists();
+
+    List<Object> list = new ArrayList<>(Collections.nCopies(100, (Object) 1.0));
+    Assert.assertEquals("Should match a sample", "doubles", text(list));
+    list.set(99, "last");
+    Assert.assertEquals("Should sample the end of random access lists",
+        list.toString(), text(list));
+  }
+
+  @Test
+  public void testBounds() {
+    Displayers.register(new TypeToken<List<? extends Number>>() {},
+        new NamedDisplayer<List<? extends Number>>("numbers"));
+    Displayers.register(new TypeToken<Map<String, List<Integer>>>() {},
+        new NamedDisplayer<Map<String, List<Integer>>>("groups"));
+
+    Assert.assertEquals("Should match subclasses of the bound",
+        "numbers", text(Arrays.<Number>asList(1, 2.0, 3L)));
+
+    Map<String, List<Integer>> groups = new LinkedHashMap<>();
+    groups.put("a", Arrays.asList(1, 2));
+    Assert.assertEquals("Should match map keys and values", "groups", text(groups));
+    Assert.assertEquals("Should use the Map displayer for other keys",
+        "{1=a}", text(Collections.singletonMap(1, "a")));
+  }
+
+  @Test
+  public void testSpecificClassFirst() {
+    registerLists();
+    Displayers.register(LinkedList.class, new NamedDisplayer<LinkedList<?>>("linked"));
+
+    Assert.assertEquals("Should use a displayer for a more specific class",
+        "linked", text(new LinkedList<>(Arrays.asList(1.0))));
+    Assert.assertEquals("Should use type tokens for other lists",
+        "doubles", text(new ArrayList<>(Arrays.asList(1.0))));
+  }
+
+  @Test
+  public void testScope() {
+    Registration scope = Displayers.registration().newScope();
+    scope.add(new TypeToken<List<Double>>() {}, new NamedDisplayer<List<Double>>("doubles"));
+
+    Assert.assertEquals("Should use the scope's type token",
+        "doubles", scope.display(Arrays.asList(1.0)).get(MIMETypes.TEXT));
+    Assert.assertEquals("Should not affect the parent",
+        "[1.0]", text(Arrays.asList(1.0)));
+  }
+
+  @Test
+  public void testTablePages() {
+    Displayers.register(new TypeToken<List<? extends Map<String, ?>>>() {},
+        TableDisplayer.ofRows());
+
+    List<Map<String, Object>> rows = new ArrayList<>();
+    for (int i = 0; i < 3; i += 1) {
+      rows.add(Collections.<String, Object>singletonMap("n", i));
+    }
+    Assert.assertEquals("Should page tables found by type token",
+        "n\n-\n2\n(rows 3-3 of 3)",
+        Displayers.displayPage(rows, 2, 10).get(MIMETypes.TEXT));
+  }
+
+  @Test
+  public void testInvalidType() {
+    try {
+      Displayers.register(new TypeToken<Optional<String>>() {},
+          new NamedDisplayer<Optional<String>>("optional"));
+      Assert.fail("Should reject types that are not collections or maps");
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals(
+          "Invalid type: java.util.Optional<java.lang.String> " +
+              "(must be a parameterized Collection or Map)",
+          e.getMessage());
+    }
+  }
+
+  @Test
+  public void testIncremental() {
+    Displayers.register(new TypeToken<List<String>>() {}, new IncrementalDisplayer<List<String>>() {
+      @Override
+      public Map<String, String> display(List<String> lines) {
+        return Collections.singletonMap(MIMETypes.TEXT, String.join("\n", lines));
+      }
+
+      @Override
+      public Map<String, String> open(List<String> lines, DisplayHandle handle) {
+        handle.setAttachment(lines.size());
+        return display(lines);
+      }
+
+      @Override
+      public void update(List<String> lines, DisplayHandle handle) {
+        int sent = (Integer) handle.getAttachment();
+        handle.append(display(lines.subList(sent, lines.size())));
+        handle.setAttachment(lines.size());
+      }
+    });
+
+    List<String> lines = new ArrayList<>(Arrays.asList("one"));
+    DisplayHandle handle = Displayers.displayIncremental(lines);
+    final List<DisplayUpdate> updates = new ArrayList<>();
+    handle.addListener(new DisplayHandle.Listener() {
+      @Override
+      public void onUpdate(DisplayUpdate update) {
+        updates.add(update);
+      }
+    });
+
+    lines.add("two");
+    handle.refresh();
+    Assert.assertEquals("Should open the displayer for the type token", 1, updates.size());
+    Assert.assertEquals("Should send appends", DisplayUpdate.Kind.APPEND, updates.get(0).getKind());
+    Assert.assertEquals("Should append the new line",
+        "two", updates.get(0).getData().get(MIMETypes.TEXT));
+  }
+}